@@ -0,0 +1,142 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.bench;
+
+import cientistavuador.shadowvolumeexperiment.cube.CubeVAO;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic benchmark inputs, generated from a seed so every run measures the
+ * same data.
+ *
+ * @author Cien
+ */
+public class BenchmarkMeshes {
+
+    public static final long SEED = 0x5EEDL;
+
+    //width * height pixels, each one is set with the fill probability
+    public static boolean[] randomBitmap(int width, int height, float fill, long seed) {
+        Random random = new Random(seed);
+        boolean[] data = new boolean[width * height];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextFloat() < fill;
+        }
+        return data;
+    }
+
+    //flat shaded closed octahedron sphere, 8 * 4^subdivisions triangles
+    //vertices use the CubeVAO vertex format, indices are 0, 1, 2...
+    public static float[] sphere(int subdivisions) {
+        float[] triangles = {
+            1f, 0f, 0f, 0f, 1f, 0f, 0f, 0f, 1f,
+            0f, 1f, 0f, -1f, 0f, 0f, 0f, 0f, 1f,
+            -1f, 0f, 0f, 0f, -1f, 0f, 0f, 0f, 1f,
+            0f, -1f, 0f, 1f, 0f, 0f, 0f, 0f, 1f,
+            0f, 1f, 0f, 1f, 0f, 0f, 0f, 0f, -1f,
+            -1f, 0f, 0f, 0f, 1f, 0f, 0f, 0f, -1f,
+            0f, -1f, 0f, -1f, 0f, 0f, 0f, 0f, -1f,
+            1f, 0f, 0f, 0f, -1f, 0f, 0f, 0f, -1f
+        };
+
+        for (int s = 0; s < subdivisions; s++) {
+            float[] next = new float[triangles.length * 4];
+            int written = 0;
+            for (int i = 0; i < triangles.length; i += 9) {
+                float[] a = {triangles[i + 0], triangles[i + 1], triangles[i + 2]};
+                float[] b = {triangles[i + 3], triangles[i + 4], triangles[i + 5]};
+                float[] c = {triangles[i + 6], triangles[i + 7], triangles[i + 8]};
+                float[] ab = middle(a, b);
+                float[] bc = middle(b, c);
+                float[] ca = middle(c, a);
+
+                written = put(next, written, a, ab, ca);
+                written = put(next, written, ab, b, bc);
+                written = put(next, written, ca, bc, c);
+                written = put(next, written, ab, bc, ca);
+            }
+            triangles = next;
+        }
+
+        int numberOfVertices = triangles.length / 3;
+        float[] vertices = new float[numberOfVertices * CubeVAO.VERTEX_SIZE_ELEMENTS];
+        Arrays.fill(vertices, Float.NaN);
+        for (int i = 0; i < numberOfVertices; i += 3) {
+            int t = i * 3;
+            float e0x = triangles[t + 3] - triangles[t + 0];
+            float e0y = triangles[t + 4] - triangles[t + 1];
+            float e0z = triangles[t + 5] - triangles[t + 2];
+            float e1x = triangles[t + 6] - triangles[t + 0];
+            float e1y = triangles[t + 7] - triangles[t + 1];
+            float e1z = triangles[t + 8] - triangles[t + 2];
+            float nX = (e0y * e1z) - (e0z * e1y);
+            float nY = (e0z * e1x) - (e0x * e1z);
+            float nZ = (e0x * e1y) - (e0y * e1x);
+            float length = (float) Math.sqrt((nX * nX) + (nY * nY) + (nZ * nZ));
+
+            for (int j = 0; j < 3; j++) {
+                int v = (i + j) * CubeVAO.VERTEX_SIZE_ELEMENTS;
+                vertices[v + 0] = triangles[t + (j * 3) + 0];
+                vertices[v + 1] = triangles[t + (j * 3) + 1];
+                vertices[v + 2] = triangles[t + (j * 3) + 2];
+                vertices[v + 3] = nX / length;
+                vertices[v + 4] = nY / length;
+                vertices[v + 5] = nZ / length;
+            }
+        }
+
+        return vertices;
+    }
+
+    public static int[] identityIndices(float[] vertices, int vertexSize) {
+        int[] indices = new int[vertices.length / vertexSize];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    private static float[] middle(float[] a, float[] b) {
+        float x = (a[0] + b[0]) * 0.5f;
+        float y = (a[1] + b[1]) * 0.5f;
+        float z = (a[2] + b[2]) * 0.5f;
+        float length = (float) Math.sqrt((x * x) + (y * y) + (z * z));
+        return new float[]{x / length, y / length, z / length};
+    }
+
+    private static int put(float[] output, int offset, float[] a, float[] b, float[] c) {
+        System.arraycopy(a, 0, output, offset + 0, 3);
+        System.arraycopy(b, 0, output, offset + 3, 3);
+        System.arraycopy(c, 0, output, offset + 6, 3);
+        return offset + 9;
+    }
+
+    private BenchmarkMeshes() {
+
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.bench;
+
+import cientistavuador.shadowvolumeexperiment.cube.CubeVAO;
+import cientistavuador.shadowvolumeexperiment.util.MeshAdjacency;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeGenerator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Cien
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShadowVolumeGeneratorBenchmark {
+
+    //8 * 4^subdivisions triangles, 2 is 128 and 7 is 131072
+    @Param({"2", "4", "6", "7"})
+    public int subdivisions;
+
+    private float[] vertices;
+    private int[] indices;
+    private MeshAdjacency adjacency;
+
+    @Setup
+    public void setup() {
+        this.vertices = BenchmarkMeshes.sphere(this.subdivisions);
+        this.indices = BenchmarkMeshes.identityIndices(this.vertices, CubeVAO.VERTEX_SIZE_ELEMENTS);
+        this.adjacency = MeshAdjacency.build(this.vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, this.indices);
+    }
+
+    @Benchmark
+    public int[] generateShadowVolumeIndices() {
+        return ShadowVolumeGenerator.generateShadowVolumeIndices(this.vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, this.indices);
+    }
+
+    @Benchmark
+    public int[] generateUniqueEdgeShadowVolumeIndices() {
+        return ShadowVolumeGenerator.generateUniqueEdgeShadowVolumeIndices(this.vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, this.indices);
+    }
+
+    @Benchmark
+    public int[] generate() {
+        return ShadowVolumeGenerator.generate(this.vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, this.indices);
+    }
+
+    @Benchmark
+    public MeshAdjacency buildAdjacency() {
+        return MeshAdjacency.build(this.vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, this.indices);
+    }
+
+    @Benchmark
+    public int[] generateUniqueEdgeShadowVolumeIndicesPrebuiltAdjacency() {
+        return ShadowVolumeGenerator.generateUniqueEdgeShadowVolumeIndices(this.vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, this.adjacency);
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.bench;
+
+import cientistavuador.shadowvolumeexperiment.cube.VerticesStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Appends quads to a new stream, the score is the time per quad.
+ *
+ * @author Cien
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerticesStreamBenchmark {
+
+    public static final int QUADS = 65536;
+
+    //width and height of the texture, it changes the texture coordinates scale
+    @Param({"512", "2048"})
+    public int textureSize;
+
+    @Benchmark
+    @OperationsPerInvocation(QUADS)
+    public VerticesStream appendQuads() {
+        VerticesStream stream = new VerticesStream(this.textureSize, this.textureSize);
+        for (int i = 0; i < QUADS; i++) {
+            float x = i & 255;
+            float z = i >> 8;
+
+            stream.offset();
+
+            stream.vertex(x, 0.5f, z, 0f, 1f, 0f, x, z, 0f, 0f);
+            stream.vertex(x, 0.5f, z - 1f, 0f, 1f, 0f, x, z - 1f, 0f, 1f);
+            stream.vertex(x + 1f, 0.5f, z, 0f, 1f, 0f, x + 1f, z, 1f, 0f);
+            stream.vertex(x + 1f, 0.5f, z - 1f, 0f, 1f, 0f, x + 1f, z - 1f, 1f, 1f);
+
+            stream.quad(
+                    0, 2, 1,
+                    3, 1, 2
+            );
+        }
+        return stream;
+    }
+
+}
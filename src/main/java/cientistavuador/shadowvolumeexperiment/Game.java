@@ -28,26 +28,60 @@ package cientistavuador.shadowvolumeexperiment;
 
 import cientistavuador.shadowvolumeexperiment.camera.FreeCamera;
 import cientistavuador.shadowvolumeexperiment.clouds.Clouds;
+import cientistavuador.shadowvolumeexperiment.clouds.EditableClouds;
 import cientistavuador.shadowvolumeexperiment.cube.Cube;
+import cientistavuador.shadowvolumeexperiment.cube.CubeGBufferInstancedProgram;
+import cientistavuador.shadowvolumeexperiment.cube.CubeGBufferProgram;
+import cientistavuador.shadowvolumeexperiment.cube.CubeInstancedProgram;
+import cientistavuador.shadowvolumeexperiment.cube.CubeInstances;
 import cientistavuador.shadowvolumeexperiment.cube.CubeProgram;
+import cientistavuador.shadowvolumeexperiment.cube.CubeShadowVolumeGeometryProgram;
+import cientistavuador.shadowvolumeexperiment.cube.CubeShadowVolumeInstancedProgram;
 import cientistavuador.shadowvolumeexperiment.cube.CubeShadowVolumeProgram;
 import cientistavuador.shadowvolumeexperiment.cube.CubeVAO;
+import cientistavuador.shadowvolumeexperiment.cube.DrawParameters;
+import cientistavuador.shadowvolumeexperiment.cube.MeshArena;
+import cientistavuador.shadowvolumeexperiment.cube.ShadowProxy;
+import cientistavuador.shadowvolumeexperiment.cube.ShadowVolumeMode;
+import cientistavuador.shadowvolumeexperiment.cube.SilhouetteCache;
+import cientistavuador.shadowvolumeexperiment.cube.VertexFormat;
+import cientistavuador.shadowvolumeexperiment.cube.WorldVertices;
+import cientistavuador.shadowvolumeexperiment.cube.light.Light;
 import cientistavuador.shadowvolumeexperiment.cube.light.directional.DirectionalLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.point.PointLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.spot.SpotLight;
 import cientistavuador.shadowvolumeexperiment.ubo.CameraUBO;
 import cientistavuador.shadowvolumeexperiment.ubo.UBOBindingPoints;
 import cientistavuador.shadowvolumeexperiment.debug.AabRender;
+import cientistavuador.shadowvolumeexperiment.debug.SamplesPassedQuery;
+import cientistavuador.shadowvolumeexperiment.deferred.DeferredCompositeProgram;
+import cientistavuador.shadowvolumeexperiment.deferred.DeferredLightProgram;
+import cientistavuador.shadowvolumeexperiment.deferred.FullScreenTriangle;
+import cientistavuador.shadowvolumeexperiment.deferred.GBuffer;
 import cientistavuador.shadowvolumeexperiment.rifle.Rifle;
 import cientistavuador.shadowvolumeexperiment.skybox.SkyBoxProgram;
 import cientistavuador.shadowvolumeexperiment.text.GLFontRenderer;
 import cientistavuador.shadowvolumeexperiment.text.GLFontSpecification;
 import cientistavuador.shadowvolumeexperiment.text.GLFontSpecifications;
+import cientistavuador.shadowvolumeexperiment.util.RenderQueue;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeClassifier;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeCuller;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeExtrusion;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeScissor;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import org.joml.Intersectionf;
 import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
 import org.joml.Vector3dc;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.lwjgl.PointerBuffer;
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryUtil;
 
 /**
  *
@@ -57,18 +91,275 @@ public class Game {
 
     private static final Game GAME = new Game();
 
+    private static final int PASS_CUBES = 0;
+    private static final int PASS_SHADOW_VOLUMES = 1;
+    
+    private static final int TEXTURES_NONE = 0;
+    private static final int TEXTURES_CUBE = 1;
+    private static final int TEXTURES_DRAW_PARAMETERS = 2;
+    
+    //what the binder of a pass draws for a render queue command
+    private static final int DRAW_CUBE = 0;
+    private static final int DRAW_WORLD = 1;
+    private static final int DRAW_SILHOUETTE = 2;
+    private static final int DRAW_GEOMETRY = 3;
+    private static final int DRAW_INSTANCE_BATCH = 4;
+    private static final int DRAW_MULTI_DRAW_BATCH = 5;
+    
+    //shadow volume flags are also the state of their render queue keys
+    private static final int FLAG_ZFAIL = 1;
+    private static final int FLAG_PROXY = 2;
+    private static final int FLAG_CLOUDS = 4;
+
+    //cubes drawn with the same vao, index range and state, in a single instanced draw call
+    private static class InstanceBatch {
+
+        private int vao;
+        private int count;
+        private int offset;
+        private int baseVertex;
+        private int flags;
+        private final List<Cube> cubes = new ArrayList<>();
+        private float[] extrusionDistances = new float[64];
+        private final int[] scissorRect = new int[4];
+    }
+    
+    //captured cubes drawn with the same vao and state, in a single multi draw call
+    private static class MultiDrawBatch {
+
+        private int vao;
+        private int flags;
+        private int size;
+        private int vertices;
+        private IntBuffer counts = MemoryUtil.memAllocInt(64);
+        private PointerBuffer offsets = MemoryUtil.memAllocPointer(64);
+        private IntBuffer baseVertices = MemoryUtil.memAllocInt(64);
+        private final int[] scissorRect = new int[4];
+    }
+
     public static Game get() {
         return GAME;
     }
+    
+    private class CubeBinder implements RenderQueue.Binder {
+
+        private final Matrix4f projectionView = new Matrix4f();
+        private final Vector3f cameraPosition = new Vector3f();
+        private Light light = null;
+        private boolean gBuffer = false;
+
+        @Override
+        public void programChanged(int program) {
+            if (program == CubeGBufferProgram.SHADER_PROGRAM) {
+                CubeGBufferProgram.sendPerFrameUniforms(Cube.CUBE_TEXTURE, Cube.CUBE_TEXTURE_SPECULAR, this.projectionView);
+            } else if (program == CubeGBufferInstancedProgram.SHADER_PROGRAM) {
+                CubeGBufferInstancedProgram.sendPerFrameUniforms(Cube.CUBE_TEXTURE, Cube.CUBE_TEXTURE_SPECULAR, this.projectionView);
+            } else if (program == CubeInstancedProgram.SHADER_PROGRAM) {
+                CubeInstancedProgram.sendPerFrameUniforms(Cube.CUBE_TEXTURE, Cube.CUBE_TEXTURE_SPECULAR, this.projectionView, this.cameraPosition, this.light);
+            } else {
+                CubeProgram.sendPerFrameUniforms(Cube.CUBE_TEXTURE, Cube.CUBE_TEXTURE_SPECULAR, this.projectionView, this.cameraPosition, this.light);
+            }
+        }
+
+        @Override
+        public void texturesChanged(int textures) {
+            if (textures == TEXTURES_CUBE) {
+                glActiveTexture(GL_TEXTURE0);
+                glBindTexture(GL_TEXTURE_2D, Cube.CUBE_TEXTURE);
+                glActiveTexture(GL_TEXTURE1);
+                glBindTexture(GL_TEXTURE_2D, Cube.CUBE_TEXTURE_SPECULAR);
+            }
+        }
+
+        @Override
+        public void draw(RenderQueue queue, int command) {
+            int type = queue.getType(command);
+            
+            if (type == DRAW_INSTANCE_BATCH) {
+                InstanceBatch batch = instanceBatches.get(queue.getObject(command));
+                if (this.gBuffer) {
+                    CubeGBufferInstancedProgram.sendPerDrawUniforms((batch.flags & FLAG_CLOUDS) != 0);
+                } else {
+                    CubeInstancedProgram.sendPerDrawUniforms((batch.flags & FLAG_CLOUDS) != 0);
+                }
+                drawInstanceBatch(batch);
+                return;
+            }
+            if (type == DRAW_MULTI_DRAW_BATCH) {
+                MultiDrawBatch batch = multiDrawBatches.get(queue.getObject(command));
+                if (this.gBuffer) {
+                    CubeGBufferProgram.sendPerDrawUniforms((batch.flags & FLAG_CLOUDS) != 0);
+                } else {
+                    CubeProgram.sendPerDrawUniforms((batch.flags & FLAG_CLOUDS) != 0);
+                }
+                drawMultiDrawBatch(batch);
+                return;
+            }
+            
+            Cube c = cubes.get(queue.getObject(command));
+            int count = queue.getCount(command);
+            
+            if (type == DRAW_WORLD) {
+                //captured cubes are already in world space
+                if (this.gBuffer) {
+                    CubeGBufferProgram.sendPerDrawUniforms(c instanceof Clouds);
+                } else {
+                    CubeProgram.sendPerDrawUniforms(c instanceof Clouds);
+                }
+            } else {
+                if (this.gBuffer) {
+                    CubeGBufferProgram.sendPerDrawUniforms(c.getModel(), c.getNormalModel(), c instanceof Clouds);
+                } else {
+                    CubeProgram.sendPerDrawUniforms(c.getModel(), c.getNormalModel(), c instanceof Clouds);
+                }
+                Main.NUMBER_OF_ARENA_VERTICES += count;
+            }
+            glDrawElementsBaseVertex(GL_TRIANGLES, count, GL_UNSIGNED_INT, queue.getOffset(command), queue.getBaseVertex(command));
+            
+            Main.NUMBER_OF_DRAWCALLS++;
+            Main.NUMBER_OF_VERTICES += count;
+        }
+    }
+    
+    private class ShadowVolumeBinder implements RenderQueue.Binder {
+
+        private final Matrix4f projectionView = new Matrix4f();
+        private final Vector3f objectLightDirection = new Vector3f();
+        private Light light = null;
+        private boolean stencil = true;
+        private int state = 0;
+
+        @Override
+        public void programChanged(int program) {
+            if (program == CubeShadowVolumeInstancedProgram.SHADER_PROGRAM) {
+                CubeShadowVolumeInstancedProgram.sendPerFrameUniforms(this.projectionView, this.light);
+            } else if (program == CubeShadowVolumeGeometryProgram.SHADER_PROGRAM) {
+                CubeShadowVolumeGeometryProgram.sendPerFrameUniforms(this.projectionView, this.light);
+            } else {
+                CubeShadowVolumeProgram.sendPerFrameUniforms(this.projectionView, this.light);
+            }
+        }
+
+        @Override
+        public void texturesChanged(int textures) {
+            if (textures == TEXTURES_DRAW_PARAMETERS) {
+                glActiveTexture(GL_TEXTURE0);
+                glBindTexture(GL_TEXTURE_BUFFER, DrawParameters.TEXTURE);
+            }
+        }
+
+        @Override
+        public void stateChanged(int state) {
+            this.state = state;
+            if (this.stencil) {
+                shadowVolumeStencilOps((state & FLAG_ZFAIL) != 0);
+            }
+            //proxies are inside out, swapping the front faces gives their stencil counts the same sign as the other volumes
+            glFrontFace(((state & FLAG_PROXY) != 0) ? GL_CW : GL_CCW);
+        }
+
+        @Override
+        public void draw(RenderQueue queue, int command) {
+            int type = queue.getType(command);
+            
+            if (type == DRAW_INSTANCE_BATCH) {
+                drawInstanceBatch(instanceBatches.get(queue.getObject(command)));
+                return;
+            }
+            if (type == DRAW_MULTI_DRAW_BATCH) {
+                CubeShadowVolumeProgram.sendMultiDrawUniforms(0);
+                drawMultiDrawBatch(multiDrawBatches.get(queue.getObject(command)));
+                return;
+            }
+            
+            Cube c = cubes.get(queue.getObject(command));
+            float extrusionDistance = queue.getExtrusion(command);
+            //a bounded dark cap is not past every receiver, so z-pass also needs it to close the volume
+            boolean caps = (this.state & FLAG_ZFAIL) != 0 || boundedExtrusion || this.light instanceof PointLight;
+            int count = queue.getCount(command);
+            int offset = queue.getOffset(command);
+            
+            switch (type) {
+                case DRAW_GEOMETRY -> {
+                    CubeShadowVolumeGeometryProgram.sendPerDrawUniforms(c.getModel(), c.getNormalModel(), extrusionDistance, caps);
+                    glDrawElementsBaseVertex(GL_TRIANGLES_ADJACENCY, count, GL_UNSIGNED_INT, offset, queue.getBaseVertex(command));
+                    Main.NUMBER_OF_ARENA_POSITION_VERTICES += count;
+                }
+                case DRAW_WORLD -> {
+                    //captured casters are already in world space
+                    CubeShadowVolumeProgram.sendPerDrawUniforms(extrusionDistance);
+                    glDrawElementsBaseVertex(GL_TRIANGLES, count, GL_UNSIGNED_INT, offset, queue.getBaseVertex(command));
+                }
+                case DRAW_SILHOUETTE -> {
+                    ShadowProxy proxy = ((this.state & FLAG_PROXY) != 0 ? c.getShadowProxy() : null);
+                    SilhouetteCache silhouette = (proxy != null ? proxy.getSilhouetteCache() : c.getSilhouetteCache());
+                    
+                    //the shader tests the normal model times the normal, so the object space direction is the transposed product
+                    DirectionalLight directional = (DirectionalLight) this.light;
+                    c.getNormalModel().transformTranspose(directional.getDirection(), this.objectLightDirection);
+                    
+                    //casters may share a cache, so the indices are prepared right before the draw
+                    silhouette.update(this.objectLightDirection.x(), this.objectLightDirection.y(), this.objectLightDirection.z());
+                    glBindVertexArray(silhouette.getVAO());
+                    
+                    //the caps come first, z-pass starts after them
+                    int silhouetteSkip = (caps ? 0 : silhouette.getCapsCount());
+                    count = silhouette.getCount() - silhouetteSkip;
+                    
+                    CubeShadowVolumeProgram.sendPerDrawUniforms(c.getModel(), c.getNormalModel(), extrusionDistance);
+                    glDrawElementsBaseVertex(GL_TRIANGLES, count, GL_UNSIGNED_INT, silhouette.getOffset() + (silhouetteSkip * Integer.BYTES), silhouette.getBaseVertex());
+                    Main.NUMBER_OF_ARENA_POSITION_VERTICES += count;
+                }
+                default -> {
+                    CubeShadowVolumeProgram.sendPerDrawUniforms(c.getModel(), c.getNormalModel(), extrusionDistance);
+                    glDrawElementsBaseVertex(GL_TRIANGLES, count, GL_UNSIGNED_INT, offset, queue.getBaseVertex(command));
+                    Main.NUMBER_OF_ARENA_POSITION_VERTICES += count;
+                }
+            }
+            
+            Main.NUMBER_OF_DRAWCALLS++;
+            Main.NUMBER_OF_VERTICES += count;
+        }
+    }
 
     private final Clouds clouds = new Clouds(new Matrix4f());
     private float cloudsRotation = 0f;
+    private EditableClouds editableClouds = null;
+    private boolean editClouds = false;
     
     private final FreeCamera camera = new FreeCamera();
     private final DirectionalLight sun = new DirectionalLight();
+    private final List<Light> lights = new ArrayList<>();
+    private final int[] lightScissorRect = new int[4];
+    private Light shadowVolumeLight = null;
+    private final Vector3f receiversMin = new Vector3f();
+    private final Vector3f receiversMax = new Vector3f();
     private final List<Cube> cubes = new ArrayList<>();
     private boolean textEnabled = true;
     private boolean showShadowVolumes = false;
+    private ShadowVolumeMode shadowVolumeMode = ShadowVolumeMode.GPU_EXTRUSION;
+    private boolean useShadowProxies = false;
+    private boolean automaticZPass = true;
+    private final ShadowVolumeClassifier shadowVolumeClassifier = new ShadowVolumeClassifier();
+    private final ShadowVolumeCuller shadowVolumeCuller = new ShadowVolumeCuller();
+    private boolean scissorShadowVolumes = true;
+    private final ShadowVolumeScissor shadowVolumeScissor = new ShadowVolumeScissor();
+    private final int[] scissorRect = new int[4];
+    private final SamplesPassedQuery shadowVolumeSamples = new SamplesPassedQuery();
+    private boolean boundedExtrusion = true;
+    private final ShadowVolumeExtrusion shadowVolumeExtrusion = new ShadowVolumeExtrusion();
+    private boolean instancedRendering = true;
+    private boolean worldVertexCache = false;
+    private boolean multiDrawRendering = false;
+    private boolean deferredShading = false;
+    private final GBuffer gBuffer = new GBuffer();
+    private final List<InstanceBatch> instanceBatches = new ArrayList<>();
+    private int numberOfInstanceBatches = 0;
+    private final List<MultiDrawBatch> multiDrawBatches = new ArrayList<>();
+    private int numberOfMultiDrawBatches = 0;
+    private final RenderQueue renderQueue = new RenderQueue();
+    private final CubeBinder cubeBinder = new CubeBinder();
+    private final ShadowVolumeBinder shadowVolumeBinder = new ShadowVolumeBinder();
 
     private Game() {
 
@@ -84,48 +375,480 @@ public class Game {
 
         cubes.add(new Cube(model));
         //cubes.add(this.clouds);
+        
+        lights.add(this.sun);
     }
 
-    private void renderShadowVolumes() {
-        Matrix4f cameraProjectionView = new Matrix4f(this.camera.getProjectionView());
-
-        glUseProgram(CubeShadowVolumeProgram.SHADER_PROGRAM);
-        CubeShadowVolumeProgram.sendPerFrameUniforms(cameraProjectionView, sun);
+    //z-fail counts the faces behind the pixel and z-pass the faces in front, with opposite signs so a closed volume gives the same count
+    private void shadowVolumeStencilOps(boolean zFail) {
+        if (zFail) {
+            glStencilOpSeparate(GL_FRONT, GL_KEEP, GL_INCR_WRAP, GL_KEEP);
+            glStencilOpSeparate(GL_BACK, GL_KEEP, GL_DECR_WRAP, GL_KEEP);
+        } else {
+            glStencilOpSeparate(GL_FRONT, GL_KEEP, GL_KEEP, GL_DECR_WRAP);
+            glStencilOpSeparate(GL_BACK, GL_KEEP, GL_KEEP, GL_INCR_WRAP);
+        }
+    }
+    
+    //how far the volume of a caster inside the world bounds is extruded
+    //point lights are always bounded, their extrusion scales the caster and an unbounded scale would pass the far plane
+    private float shadowVolumeExtrusionDistance(Vector3fc min, Vector3fc max) {
+        if (this.boundedExtrusion || this.shadowVolumeLight instanceof PointLight) {
+            return this.shadowVolumeExtrusion.compute(min, max);
+        }
+        return CubeShadowVolumeProgram.EXTRUSION_DISTANCE;
+    }
+    
+    //false if the volume of a caster inside the world bounds can not touch the view
+    //if stencil is true and the scissor is enabled, the window rectangle of the volume is written to scissorRect
+    private boolean isShadowVolumeVisible(boolean stencil, Vector3fc min, Vector3fc max, float extrusionDistance) {
+        boolean visible = true;
+        
+        //a caster out of the range of a point light has no shadow to draw
+        if (this.shadowVolumeLight instanceof PointLight point) {
+            visible = Intersectionf.testAabSphere(min, max, point.getPosition(), point.getRange() * point.getRange());
+        }
+        
+        visible = visible && this.shadowVolumeCuller.isVisible(min, max, extrusionDistance);
+        
+        if (visible && stencil && this.scissorShadowVolumes) {
+            int[] rect = this.scissorRect;
+            visible = this.shadowVolumeScissor.compute(min, max, extrusionDistance, rect)
+                    && intersectRect(rect, this.lightScissorRect);
+            if (visible) {
+                long fullArea = ((long) this.shadowVolumeScissor.getWidth()) * this.shadowVolumeScissor.getHeight();
+                Main.NUMBER_OF_SCISSORED_PIXELS += fullArea - (((long) rect[2]) * rect[3]);
+            }
+        }
+        
+        if (!visible && stencil) {
+            Main.NUMBER_OF_CULLED_SHADOW_VOLUMES++;
+        }
+        return visible;
+    }
+    
+    //clips rect to clip, false if nothing is left
+    private static boolean intersectRect(int[] rect, int[] clip) {
+        int minX = Math.max(rect[0], clip[0]);
+        int minY = Math.max(rect[1], clip[1]);
+        int maxX = Math.min(rect[0] + rect[2], clip[0] + clip[2]);
+        int maxY = Math.min(rect[1] + rect[3], clip[1] + clip[3]);
+        if (minX >= maxX || minY >= maxY) {
+            return false;
+        }
+        rect[0] = minX;
+        rect[1] = minY;
+        rect[2] = maxX - minX;
+        rect[3] = maxY - minY;
+        return true;
+    }
+    
+    //true if the caster needs z-fail and its caps, if stencil is true the caster is counted
+    //min and max must be the world bounds of the caster
+    private boolean prepareShadowVolume(boolean stencil, Vector3fc min, Vector3fc max) {
+        boolean zFail = true;
+        if (this.automaticZPass) {
+            zFail = this.shadowVolumeClassifier.requiresZFail(min, max);
+        }
+        
+        if (stencil) {
+            if (zFail) {
+                Main.NUMBER_OF_ZFAIL_CASTERS++;
+            } else {
+                Main.NUMBER_OF_ZPASS_CASTERS++;
+            }
+        }
+        
+        return zFail;
+    }
+    
+    private InstanceBatch instanceBatch(int vao, int count, int offset, int baseVertex, int flags) {
+        for (int i = 0; i < this.numberOfInstanceBatches; i++) {
+            InstanceBatch batch = this.instanceBatches.get(i);
+            if (batch.vao == vao && batch.count == count && batch.offset == offset && batch.baseVertex == baseVertex && batch.flags == flags) {
+                return batch;
+            }
+        }
+        
+        if (this.numberOfInstanceBatches == this.instanceBatches.size()) {
+            this.instanceBatches.add(new InstanceBatch());
+        }
+        InstanceBatch batch = this.instanceBatches.get(this.numberOfInstanceBatches);
+        this.numberOfInstanceBatches++;
+        
+        batch.vao = vao;
+        batch.count = count;
+        batch.offset = offset;
+        batch.baseVertex = baseVertex;
+        batch.flags = flags;
+        batch.cubes.clear();
+        return batch;
+    }
+    
+    //rect is the scissor of the cube, the batch scissor is the union of the scissors of its cubes
+    private void addInstance(InstanceBatch batch, Cube c, float extrusionDistance, int[] rect) {
+        int index = batch.cubes.size();
+        if (index == batch.extrusionDistances.length) {
+            batch.extrusionDistances = Arrays.copyOf(batch.extrusionDistances, index * 2);
+        }
+        batch.cubes.add(c);
+        batch.extrusionDistances[index] = extrusionDistance;
+        
+        unionRect(batch.scissorRect, rect, index == 0);
+    }
+    
+    //grows union to contain rect, if first is true union is replaced by rect
+    private static void unionRect(int[] union, int[] rect, boolean first) {
+        if (first) {
+            System.arraycopy(rect, 0, union, 0, 4);
+            return;
+        }
+        int minX = Math.min(union[0], rect[0]);
+        int minY = Math.min(union[1], rect[1]);
+        int maxX = Math.max(union[0] + union[2], rect[0] + rect[2]);
+        int maxY = Math.max(union[1] + union[3], rect[1] + rect[3]);
+        union[0] = minX;
+        union[1] = minY;
+        union[2] = maxX - minX;
+        union[3] = maxY - minY;
+    }
+    
+    //uploads the instances of the batch and draws it, the program, the vao and the state must already be set
+    private void drawInstanceBatch(InstanceBatch batch) {
+        CubeInstances.clear();
+        for (int i = 0; i < batch.cubes.size(); i++) {
+            Cube c = batch.cubes.get(i);
+            CubeInstances.add(c.getModel(), c.getNormalModel(), batch.extrusionDistances[i]);
+        }
+        CubeInstances.upload();
+        
+        glDrawElementsInstancedBaseVertex(GL_TRIANGLES, batch.count, GL_UNSIGNED_INT, batch.offset, batch.cubes.size(), batch.baseVertex);
+        
+        Main.NUMBER_OF_DRAWCALLS++;
+        Main.NUMBER_OF_VERTICES += batch.count * batch.cubes.size();
+        if (batch.vao == MeshArena.POSITION_VAO) {
+            Main.NUMBER_OF_ARENA_POSITION_VERTICES += batch.count * batch.cubes.size();
+        } else {
+            Main.NUMBER_OF_ARENA_VERTICES += batch.count * batch.cubes.size();
+        }
+    }
+    
+    private MultiDrawBatch multiDrawBatch(int vao, int flags) {
+        for (int i = 0; i < this.numberOfMultiDrawBatches; i++) {
+            MultiDrawBatch batch = this.multiDrawBatches.get(i);
+            if (batch.vao == vao && batch.flags == flags) {
+                return batch;
+            }
+        }
+        
+        if (this.numberOfMultiDrawBatches == this.multiDrawBatches.size()) {
+            this.multiDrawBatches.add(new MultiDrawBatch());
+        }
+        MultiDrawBatch batch = this.multiDrawBatches.get(this.numberOfMultiDrawBatches);
+        this.numberOfMultiDrawBatches++;
+        
+        batch.vao = vao;
+        batch.flags = flags;
+        batch.size = 0;
+        batch.vertices = 0;
+        return batch;
+    }
+    
+    //offset is in bytes, rect is the scissor of the draw, the batch scissor is the union of the scissors of its draws
+    private void addMultiDraw(MultiDrawBatch batch, int count, int offset, int baseVertex, int[] rect) {
+        int index = batch.size;
+        if (index == batch.counts.capacity()) {
+            batch.counts = MemoryUtil.memRealloc(batch.counts, index * 2);
+            batch.offsets = MemoryUtil.memRealloc(batch.offsets, index * 2);
+            batch.baseVertices = MemoryUtil.memRealloc(batch.baseVertices, index * 2);
+        }
+        batch.counts.put(index, count);
+        batch.offsets.put(index, offset);
+        batch.baseVertices.put(index, baseVertex);
+        batch.size++;
+        batch.vertices += count;
+        
+        unionRect(batch.scissorRect, rect, index == 0);
+    }
+    
+    //draws every draw of the batch with a single call, the program, the vao and the state must already be set
+    private void drawMultiDrawBatch(MultiDrawBatch batch) {
+        batch.counts.position(0).limit(batch.size);
+        batch.offsets.position(0).limit(batch.size);
+        batch.baseVertices.position(0).limit(batch.size);
+        
+        glMultiDrawElementsBaseVertex(GL_TRIANGLES, batch.counts, GL_UNSIGNED_INT, batch.offsets, batch.baseVertices);
+        
+        batch.counts.clear();
+        batch.offsets.clear();
+        batch.baseVertices.clear();
+        
+        Main.NUMBER_OF_DRAWCALLS++;
+        Main.NUMBER_OF_VERTICES += batch.vertices;
+    }
+    
+    //the scissor of a shadow volume draw call, null if the volumes are not scissored
+    private int[] shadowVolumeScissor(boolean stencil, int[] rect) {
+        if (!stencil || !this.scissorShadowVolumes) {
+            return null;
+        }
+        return rect;
+    }
+    
+    private static int shadowVolumeFlags(boolean zFail, ShadowProxy proxy) {
+        return (zFail ? FLAG_ZFAIL : 0) | (proxy != null ? FLAG_PROXY : 0);
+    }
+    
+    //classifier, culler, scissor and extrusion of the shadow volumes of the light, the receivers must already be set
+    //the shadow volumes drawn next are the ones of this light
+    private void updateShadowVolumes(Light light, Matrix4fc projectionView) {
+        this.shadowVolumeLight = light;
+        if (light instanceof PointLight point) {
+            this.shadowVolumeClassifier.updatePoint(projectionView, point.getPosition());
+            this.shadowVolumeCuller.updatePoint(projectionView, point.getPosition());
+            this.shadowVolumeScissor.setLightPosition(point.getPosition());
+            //volumes only need to reach the range of the light
+            this.shadowVolumeExtrusion.updatePoint(point.getPosition(), point.getRange(), CubeShadowVolumeProgram.EXTRUSION_DISTANCE);
+        } else if (light instanceof DirectionalLight directional) {
+            this.shadowVolumeClassifier.update(projectionView, directional.getDirection());
+            this.shadowVolumeCuller.update(projectionView, directional.getDirection());
+            this.shadowVolumeScissor.setLightDirection(directional.getDirection());
+            //volumes only need to reach and cover the receivers
+            this.shadowVolumeExtrusion.update(directional.getDirection(), this.receiversMin, this.receiversMax, CubeShadowVolumeProgram.EXTRUSION_DISTANCE);
+        }
+    }
+    
+    //window rectangle the light can change, false if it does not reach any receiver on the screen
+    private boolean computeLightScissor(Light light, int[] rect) {
+        if (light instanceof PointLight point) {
+            Vector3f min = new Vector3f();
+            Vector3f max = new Vector3f();
+            point.computeBounds(min, max);
+            return this.shadowVolumeScissor.compute(min, max, rect);
+        }
+        return this.shadowVolumeScissor.computeReceivers(rect);
+    }
+    
+    private void submitShadowVolumes(boolean stencil) {
+        this.shadowVolumeBinder.light = this.shadowVolumeLight;
+        this.shadowVolumeBinder.stencil = stencil;
+        this.shadowVolumeBinder.projectionView.set(this.camera.getProjectionView());
+        this.renderQueue.submit(this.shadowVolumeBinder);
+        glFrontFace(GL_CCW);
+    }
 
-        for (Cube c : cubes) {
-            if (c == null || c instanceof Clouds) {
+    private void renderGeometryShadowVolumes(boolean stencil) {
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+        for (int i = 0; i < this.cubes.size(); i++) {
+            Cube c = this.cubes.get(i);
+            if (c == null || !c.isShadowCaster()) {
                 continue;
             }
             
-            glBindVertexArray(c.getVAO());
-
-            CubeShadowVolumeProgram.sendPerDrawUniforms(c.getModel(), c.getNormalModel());
-            glDrawElements(GL_TRIANGLES, c.getShadowVolumeCount(), GL_UNSIGNED_INT, c.getShadowVolumeOffset());
-
-            Main.NUMBER_OF_DRAWCALLS++;
-            Main.NUMBER_OF_VERTICES += c.getShadowVolumeCount();
-
-            glBindVertexArray(0);
+            c.computeWorldBounds(min, max);
+            float extrusionDistance = shadowVolumeExtrusionDistance(min, max);
+            if (!isShadowVolumeVisible(stencil, min, max, extrusionDistance)) {
+                continue;
+            }
+            
+            boolean zFail = prepareShadowVolume(stencil, min, max);
+            
+            ShadowProxy proxy = (this.useShadowProxies ? c.getShadowProxy() : null);
+            int vao = (proxy != null ? proxy.getVAO() : c.getShadowVolumeVAO());
+            int count = (proxy != null ? proxy.getShadowVolumeAdjacencyCount() : c.getShadowVolumeAdjacencyCount());
+            int offset = (proxy != null ? proxy.getShadowVolumeAdjacencyOffset() : c.getShadowVolumeAdjacencyOffset());
+            int baseVertex = (proxy != null ? proxy.getBaseVertex() : c.getBaseVertex());
+            
+            long key = RenderQueue.key(PASS_SHADOW_VOLUMES, CubeShadowVolumeGeometryProgram.SHADER_PROGRAM, TEXTURES_NONE, shadowVolumeFlags(zFail, proxy), vao, 0);
+            this.renderQueue.add(key, DRAW_GEOMETRY, i, count, offset, baseVertex, extrusionDistance, shadowVolumeScissor(stencil, this.scissorRect));
         }
-
-        glUseProgram(0);
+        
+        submitShadowVolumes(stencil);
     }
 
-    private void renderCubes() {
-        glUseProgram(Cube.SHADER_PROGRAM);
-        CubeProgram.sendPerFrameUniforms(Cube.CUBE_TEXTURE, Cube.CUBE_TEXTURE_SPECULAR, new Matrix4f(this.camera.getProjectionView()), new Vector3f().set(camera.getPosition()), sun);
-        for (Cube c : cubes) {
-            glBindVertexArray(c.getVAO());
-
-            CubeProgram.sendPerDrawUniforms(c.getModel(), c.getNormalModel(), c instanceof Clouds);
-            glDrawElements(GL_TRIANGLES, c.getCount(), GL_UNSIGNED_INT, c.getOffset());
+    //draws the volumes of the light of the last updateShadowVolumes
+    private void renderShadowVolumes(boolean stencil) {
+        if (this.shadowVolumeMode == ShadowVolumeMode.GEOMETRY_SHADER) {
+            renderGeometryShadowVolumes(stencil);
+            return;
+        }
+        
+        //silhouettes depend on the light direction in object space, so they are never instanced
+        boolean instanced = this.instancedRendering && this.shadowVolumeMode == ShadowVolumeMode.GPU_EXTRUSION;
+        boolean multiDraw = this.multiDrawRendering && this.shadowVolumeMode == ShadowVolumeMode.GPU_EXTRUSION;
+        this.numberOfInstanceBatches = 0;
+        this.numberOfMultiDrawBatches = 0;
 
-            Main.NUMBER_OF_DRAWCALLS++;
-            Main.NUMBER_OF_VERTICES += c.getCount();
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+        for (int i = 0; i < this.cubes.size(); i++) {
+            Cube c = this.cubes.get(i);
+            if (c == null || !c.isShadowCaster()) {
+                continue;
+            }
+            
+            c.computeWorldBounds(min, max);
+            float extrusionDistance = shadowVolumeExtrusionDistance(min, max);
+            if (!isShadowVolumeVisible(stencil, min, max, extrusionDistance)) {
+                continue;
+            }
+            
+            boolean zFail = prepareShadowVolume(stencil, min, max);
+            //a bounded dark cap is not past every receiver, so z-pass also needs it to close the volume
+            boolean caps = zFail || this.boundedExtrusion || this.shadowVolumeLight instanceof PointLight;
+            
+            ShadowProxy proxy = (this.useShadowProxies ? c.getShadowProxy() : null);
+            int flags = shadowVolumeFlags(zFail, proxy);
+            
+            int vao = (proxy != null ? proxy.getVAO() : c.getShadowVolumeVAO());
+            int count = (proxy != null ? proxy.getShadowVolumeCount() : c.getShadowVolumeCount());
+            int offset = (proxy != null ? proxy.getShadowVolumeOffset() : c.getShadowVolumeOffset());
+            int baseVertex = (proxy != null ? proxy.getBaseVertex() : c.getBaseVertex());
+            int skip = 0;
+            if (!caps) {
+                //the caps come first, z-pass starts after them
+                skip = (proxy != null ? proxy.getShadowVolumeCapsCount() : c.getShadowVolumeCapsCount());
+            }
+            int volumeCount = count - skip;
+            int volumeOffset = offset + (skip * Integer.BYTES);
+            
+            int[] scissor = shadowVolumeScissor(stencil, this.scissorRect);
+            
+            //captured casters share the vao of the world vertices, so a single call draws all of them
+            if (multiDraw && proxy == null) {
+                DrawParameters.set(c.getWorldDrawIndex(), extrusionDistance);
+                addMultiDraw(multiDrawBatch(WorldVertices.getVAO(c.getEBO()), flags), volumeCount, volumeOffset, c.getWorldBaseVertex(), this.scissorRect);
+                continue;
+            }
+            
+            //captured casters are already in world space, proxies are not captured
+            if (this.worldVertexCache && proxy == null && this.shadowVolumeMode == ShadowVolumeMode.GPU_EXTRUSION) {
+                int worldVao = WorldVertices.getVAO(c.getEBO());
+                int worldBaseVertex = c.getWorldBaseVertex();
+                
+                long key = RenderQueue.key(PASS_SHADOW_VOLUMES, CubeShadowVolumeProgram.SHADER_PROGRAM, TEXTURES_NONE, flags, worldVao, 0);
+                this.renderQueue.add(key, DRAW_WORLD, i, volumeCount, volumeOffset, worldBaseVertex, extrusionDistance, scissor);
+                continue;
+            }
+            
+            if (instanced) {
+                addInstance(instanceBatch(vao, volumeCount, volumeOffset, baseVertex, flags), c, extrusionDistance, this.scissorRect);
+                continue;
+            }
+            
+            //the silhouette of a point light changes with the position of the caster, those casters use the full volume
+            SilhouetteCache silhouette = (proxy != null ? proxy.getSilhouetteCache() : c.getSilhouetteCache());
+            if (this.shadowVolumeMode == ShadowVolumeMode.CPU_SILHOUETTE && silhouette != null
+                    && this.shadowVolumeLight instanceof DirectionalLight) {
+                long key = RenderQueue.key(PASS_SHADOW_VOLUMES, CubeShadowVolumeProgram.SHADER_PROGRAM, TEXTURES_NONE, flags, silhouette.getVAO(), 0);
+                this.renderQueue.add(key, DRAW_SILHOUETTE, i, 0, 0, 0, extrusionDistance, scissor);
+                continue;
+            }
+            
+            long key = RenderQueue.key(PASS_SHADOW_VOLUMES, CubeShadowVolumeProgram.SHADER_PROGRAM, TEXTURES_NONE, flags, vao, 0);
+            this.renderQueue.add(key, DRAW_CUBE, i, volumeCount, volumeOffset, baseVertex, extrusionDistance, scissor);
+        }
+        
+        for (int i = 0; i < this.numberOfInstanceBatches; i++) {
+            InstanceBatch batch = this.instanceBatches.get(i);
+            
+            long key = RenderQueue.key(PASS_SHADOW_VOLUMES, CubeShadowVolumeInstancedProgram.SHADER_PROGRAM, TEXTURES_NONE, batch.flags, batch.vao, 0);
+            this.renderQueue.add(key, DRAW_INSTANCE_BATCH, i, 0, 0, 0, 0f, shadowVolumeScissor(stencil, batch.scissorRect));
+        }
+        
+        if (this.numberOfMultiDrawBatches != 0) {
+            DrawParameters.upload(this.cubes.size());
+        }
+        for (int i = 0; i < this.numberOfMultiDrawBatches; i++) {
+            MultiDrawBatch batch = this.multiDrawBatches.get(i);
+            
+            long key = RenderQueue.key(PASS_SHADOW_VOLUMES, CubeShadowVolumeProgram.SHADER_PROGRAM, TEXTURES_DRAW_PARAMETERS, batch.flags, batch.vao, 0);
+            this.renderQueue.add(key, DRAW_MULTI_DRAW_BATCH, i, 0, 0, 0, 0f, shadowVolumeScissor(stencil, batch.scissorRect));
+        }
+        
+        submitShadowVolumes(stencil);
+    }
 
-            glBindVertexArray(0);
+    //if gBuffer is true the surfaces are written to the g-buffer instead of shaded by the light
+    private void renderCubes(Light light, boolean gBuffer) {
+        Vector3fc cameraPosition = new Vector3f().set(this.camera.getPosition());
+        PointLight point = (light instanceof PointLight p ? p : null);
+        int program = (gBuffer ? CubeGBufferProgram.SHADER_PROGRAM : CubeProgram.SHADER_PROGRAM);
+        int instancedProgram = (gBuffer ? CubeGBufferInstancedProgram.SHADER_PROGRAM : CubeInstancedProgram.SHADER_PROGRAM);
+        
+        this.numberOfInstanceBatches = 0;
+        this.numberOfMultiDrawBatches = 0;
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+        for (int i = 0; i < this.cubes.size(); i++) {
+            Cube c = this.cubes.get(i);
+            int flags = (c instanceof Clouds ? FLAG_CLOUDS : 0);
+            
+            c.computeWorldBounds(min, max);
+            if (point != null && !Intersectionf.testAabSphere(min, max, point.getPosition(), point.getRange() * point.getRange())) {
+                continue;
+            }
+            
+            //captured cubes share the vao of the world vertices, so a single call draws all of them
+            if (this.multiDrawRendering) {
+                addMultiDraw(multiDrawBatch(WorldVertices.getVAO(c.getEBO()), flags), c.getCount(), c.getOffset(), c.getWorldBaseVertex(), this.scissorRect);
+                continue;
+            }
+            
+            //captured cubes are already in world space, so they are drawn one by one instead of instanced
+            if (this.worldVertexCache) {
+                int worldVao = WorldVertices.getVAO(c.getEBO());
+                int baseVertex = c.getWorldBaseVertex();
+                float distance = min.add(max).mul(0.5f).distance(cameraPosition);
+                
+                long key = RenderQueue.key(PASS_CUBES, program, TEXTURES_CUBE, 0, worldVao, RenderQueue.depth(distance));
+                this.renderQueue.add(key, DRAW_WORLD, i, c.getCount(), c.getOffset(), baseVertex, 0f, null);
+                continue;
+            }
+            
+            if (this.instancedRendering) {
+                addInstance(instanceBatch(c.getVAO(), c.getCount(), c.getOffset(), c.getBaseVertex(), flags), c, 0f, this.scissorRect);
+                continue;
+            }
+            
+            //front to back, so the depth test rejects the hidden fragments early
+            float distance = min.add(max).mul(0.5f).distance(cameraPosition);
+            
+            long key = RenderQueue.key(PASS_CUBES, program, TEXTURES_CUBE, 0, c.getVAO(), RenderQueue.depth(distance));
+            this.renderQueue.add(key, DRAW_CUBE, i, c.getCount(), c.getOffset(), c.getBaseVertex(), 0f, null);
         }
+        
+        for (int i = 0; i < this.numberOfInstanceBatches; i++) {
+            InstanceBatch batch = this.instanceBatches.get(i);
+            
+            long key = RenderQueue.key(PASS_CUBES, instancedProgram, TEXTURES_CUBE, 0, batch.vao, 0);
+            this.renderQueue.add(key, DRAW_INSTANCE_BATCH, i);
+        }
+        
+        for (int i = 0; i < this.numberOfMultiDrawBatches; i++) {
+            MultiDrawBatch batch = this.multiDrawBatches.get(i);
+            
+            long key = RenderQueue.key(PASS_CUBES, program, TEXTURES_CUBE, 0, batch.vao, 0);
+            this.renderQueue.add(key, DRAW_MULTI_DRAW_BATCH, i);
+        }
+        
+        this.cubeBinder.projectionView.set(this.camera.getProjectionView());
+        this.cubeBinder.cameraPosition.set(cameraPosition);
+        this.cubeBinder.light = light;
+        this.cubeBinder.gBuffer = gBuffer;
+        this.renderQueue.submit(this.cubeBinder);
+    }
+
+    //adds the light to the light target of the g-buffer, the g-buffer must be bound with bindLight
+    private void renderDeferredLight(Light light) {
+        //the triangle is in front of everything, only the stencil test applies
+        glDisable(GL_DEPTH_TEST);
+        glUseProgram(DeferredLightProgram.SHADER_PROGRAM);
+        DeferredLightProgram.sendUniforms(this.gBuffer, new Vector3f().set(this.camera.getPosition()), light);
+        FullScreenTriangle.draw();
         glUseProgram(0);
+        glEnable(GL_DEPTH_TEST);
     }
 
     public void loop() {
@@ -141,6 +864,14 @@ public class Game {
         cloudsRotation = 0f;
         }*/
         
+        //paint or erase a random spot of the editable clouds, only the changed faces are written to the arena
+        if (this.editClouds) {
+            int x = (int) (Math.random() * this.editableClouds.getWidth());
+            int y = (int) (Math.random() * this.editableClouds.getHeight());
+            this.editableClouds.paint(x, y, 2, Math.random() < 0.5);
+            this.editableClouds.upload();
+        }
+        
         camera.updateMovement();
         Matrix4f cameraProjectionView = new Matrix4f(this.camera.getProjectionView());
 
@@ -150,52 +881,124 @@ public class Game {
 
         glStencilFunc(GL_ALWAYS, 0, 0xFF);
         glStencilOp(GL_KEEP, GL_KEEP, GL_KEEP);
+        
+        //the cube passes write linear colors, so the lights add up in linear space
+        glEnable(GL_FRAMEBUFFER_SRGB);
 
-        //render ambient only
-        sun.getLightMode().ambientOnly();
-        renderCubes();
+        //transform the cubes once, every pass below reads the captured vertices
+        if (this.worldVertexCache || this.multiDrawRendering) {
+            Main.NUMBER_OF_CAPTURED_VERTICES = WorldVertices.capture(this.cubes);
+        }
+        
+        if (this.deferredShading) {
+            //write the surfaces once, every light pass reads them
+            this.gBuffer.resize(Main.WIDTH, Main.HEIGHT);
+            this.gBuffer.bindSurface();
+            glDisable(GL_BLEND);
+            renderCubes(this.sun, true);
+            glEnable(GL_BLEND);
+            
+            //render ambient only, the depth is already written
+            this.gBuffer.bindLight();
+            this.sun.getLightMode().ambientOnly();
+            renderDeferredLight(this.sun);
+        } else {
+            //render ambient and depth only
+            this.sun.getLightMode().ambientOnly();
+            renderCubes(this.sun, false);
+        }
         //
         
-        //render shadow volumes to the stencil buffer (z-fail method)
-        glDepthFunc(GL_LESS);
-        glStencilFunc(GL_ALWAYS, 0, 0xFF);
+        //the receivers of every light are all the cubes
+        this.shadowVolumeScissor.update(cameraProjectionView, this.sun.getDirection(), Main.WIDTH, Main.HEIGHT);
         {
-            glDepthMask(false);
+            Vector3f min = new Vector3f();
+            Vector3f max = new Vector3f();
+            this.receiversMin.set(Float.POSITIVE_INFINITY);
+            this.receiversMax.set(Float.NEGATIVE_INFINITY);
+            for (Cube c : cubes) {
+                c.computeWorldBounds(min, max);
+                this.receiversMin.min(min);
+                this.receiversMax.max(max);
+                this.shadowVolumeScissor.addReceiver(min, max);
+            }
+        }
+        
+        //add each light where its shadow volumes leave the stencil at zero, scissored to what the light reaches
+        glDepthMask(false);
+        glEnable(GL_SCISSOR_TEST);
+        for (Light light : this.lights) {
+            int[] rect = this.lightScissorRect;
+            if (!computeLightScissor(light, rect)) {
+                continue;
+            }
+            Main.NUMBER_OF_VISIBLE_LIGHTS++;
+            glScissor(rect[0], rect[1], rect[2], rect[3]);
+            
+            glClear(GL_STENCIL_BUFFER_BIT);
+            
+            //render shadow volumes to the stencil buffer (z-pass or z-fail for each caster)
+            updateShadowVolumes(light, cameraProjectionView);
+            glDepthFunc(GL_LESS);
+            glStencilFunc(GL_ALWAYS, 0, 0xFF);
             glColorMask(false, false, false, false);
             glDisable(GL_CULL_FACE);
-            {
-                glStencilOpSeparate(GL_FRONT, GL_KEEP, GL_INCR_WRAP, GL_KEEP);
-                glStencilOpSeparate(GL_BACK, GL_KEEP, GL_DECR_WRAP, GL_KEEP);
-                renderShadowVolumes();
+            if (light == this.sun) {
+                this.shadowVolumeSamples.begin();
+            }
+            renderShadowVolumes(true);
+            if (light == this.sun) {
+                this.shadowVolumeSamples.end();
             }
             glEnable(GL_CULL_FACE);
             glColorMask(true, true, true, true);
-            glDepthMask(true);
+            glDepthFunc(GL_LEQUAL);
+            glStencilOp(GL_KEEP, GL_KEEP, GL_KEEP);
+            
+            glScissor(rect[0], rect[1], rect[2], rect[3]);
+            glStencilFunc(GL_EQUAL, 0, 0xFF);
+            
+            glBlendFunc(GL_ONE, GL_ONE);
+            light.getLightMode().diffuseSpecularOnly();
+            if (this.deferredShading) {
+                renderDeferredLight(light);
+            } else {
+                renderCubes(light, false);
+            }
+            glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
         }
-        glStencilFunc(GL_EQUAL, 0, 0xFF);
-        glDepthFunc(GL_LEQUAL);
-
-        glStencilOp(GL_KEEP, GL_KEEP, GL_KEEP);
-        //
-
-        //render light again
-        sun.getLightMode().enableAll();
-        renderCubes();
-
+        glDisable(GL_SCISSOR_TEST);
+        glDepthMask(true);
+        
         glStencilFunc(GL_ALWAYS, 0, 0xFF);
+        
+        //copy the light and the depth of the surfaces to the window
+        if (this.deferredShading) {
+            glBindFramebuffer(GL_FRAMEBUFFER, 0);
+            glDepthFunc(GL_ALWAYS);
+            glUseProgram(DeferredCompositeProgram.SHADER_PROGRAM);
+            DeferredCompositeProgram.sendUniforms(this.gBuffer, cameraProjectionView);
+            FullScreenTriangle.draw();
+            glUseProgram(0);
+            glDepthFunc(GL_LEQUAL);
+        }
+        
+        glDisable(GL_FRAMEBUFFER_SRGB);
         //
 
         //skybox
         glCullFace(GL_FRONT);
 
         glUseProgram(SkyBoxProgram.SHADER_PROGRAM);
-        glBindVertexArray(CubeVAO.VAO);
+        //the sky box only reads the positions
+        glBindVertexArray(MeshArena.POSITION_VAO);
 
         SkyBoxProgram.sendUniforms(cameraProjectionView, new Vector3f().set(camera.getPosition()), sun);
-        glDrawElements(GL_TRIANGLES, CubeVAO.CUBE_COUNT, GL_UNSIGNED_INT, CubeVAO.CUBE_OFFSET);
+        glDrawElementsBaseVertex(GL_TRIANGLES, CubeVAO.CUBE_COUNT, GL_UNSIGNED_INT, CubeVAO.CUBE_OFFSET, CubeVAO.CUBE_BASE_VERTEX);
 
         Main.NUMBER_OF_DRAWCALLS++;
         Main.NUMBER_OF_VERTICES += CubeVAO.CUBE_COUNT;
+        Main.NUMBER_OF_ARENA_POSITION_VERTICES += CubeVAO.CUBE_COUNT;
 
         glBindVertexArray(0);
         glUseProgram(0);
@@ -206,7 +1009,8 @@ public class Game {
         //render shadow volumes
         if (this.showShadowVolumes) {
             glDepthFunc(GL_LESS);
-            renderShadowVolumes();
+            updateShadowVolumes(this.sun, cameraProjectionView);
+            renderShadowVolumes(false);
             glDepthFunc(GL_LEQUAL);
         }
         //
@@ -232,21 +1036,42 @@ public class Game {
                                 .append("\tCtrl - Unlock/Lock mouse\n")
                                 .append("\tF - Spawn Cube (+Alt Spawn Rifle)\n")
                                 .append("\tR - Remove Last Cube").append(" [").append(this.cubes.size() - 1).append(" Cubes]\n")
+                                .append("\tL - Spawn Point Light (+Alt Spawn Spot Light), K - Remove Last Light").append(" [").append(this.lights.size()).append(" Lights, ").append(Main.NUMBER_OF_VISIBLE_LIGHTS).append(" Visible]\n")
                                 .append("\tT - Hide This Wall of Text.\n")
                                 .append("\tV - ").append((this.showShadowVolumes ? "Hide" : "Show")).append(" Shadow Volumes.\n")
                                 .append("\t(Hold) Space - Change Light Direction.\n")
+                                .append("\tC - Shadow Volume Mode [").append(this.shadowVolumeMode.getDisplayName()).append("]\n")
+                                .append("\tP - ").append((this.useShadowProxies ? "Disable" : "Enable")).append(" Shadow Proxies.\n")
+                                .append("\tZ - ").append((this.automaticZPass ? "Always Use Z-Fail" : "Use Z-Pass When Possible")).append(" [").append(Main.NUMBER_OF_ZPASS_CASTERS).append(" Z-Pass, ").append(Main.NUMBER_OF_ZFAIL_CASTERS).append(" Z-Fail, ").append(Main.NUMBER_OF_CULLED_SHADOW_VOLUMES).append(" Culled]\n")
+                                .append("\tX - ").append((this.scissorShadowVolumes ? "Disable" : "Enable")).append(" Shadow Volume Scissor [").append(this.shadowVolumeSamples.getLastResult()).append(" Samples Passed, ").append(Main.NUMBER_OF_SCISSORED_PIXELS).append(" Pixels Scissored]\n")
+                                .append("\tB - ").append((this.boundedExtrusion ? "Disable" : "Enable")).append(" Bounded Shadow Volume Extrusion.\n")
+                                .append("\tI - ").append((this.instancedRendering ? "Disable" : "Enable")).append(" Instanced Rendering.\n")
+                                .append("\tG - ").append((this.worldVertexCache ? "Disable" : "Enable")).append(" World Vertex Cache [").append(Main.NUMBER_OF_CAPTURED_VERTICES).append(" Captured Vertices]\n")
+                                .append("\tM - ").append((this.multiDrawRendering ? "Disable" : "Enable")).append(" Multi-Draw Submission.\n")
+                                .append("\tN - ").append((this.deferredShading ? "Use Forward Shading" : "Use Deferred Shading")).append('\n')
+                                .append("\tVertex Format [").append(MeshArena.VERTEX_FORMAT.getDisplayName()).append(", ").append(MeshArena.VERTEX_FORMAT.getPositionSize()).append(" + ").append(MeshArena.VERTEX_FORMAT.getAttributeSize()).append(" Bytes, ")
+                                .append(arenaBytes(MeshArena.VERTEX_FORMAT.getPositionSize(), MeshArena.VERTEX_FORMAT.getVertexSize()) / 1024).append(" KB Fetched, ")
+                                .append((arenaBytes(VertexFormat.FLOAT.getVertexSize(), VertexFormat.FLOAT.getVertexSize()) - arenaBytes(MeshArena.VERTEX_FORMAT.getPositionSize(), MeshArena.VERTEX_FORMAT.getVertexSize())) / 1024).append(" KB Saved]\n")
+                                .append("\tQ - ").append((this.renderQueue.isSorted() ? "Disable" : "Enable")).append(" Render Queue Sorting [").append(Main.NUMBER_OF_STATE_CHANGES).append(" State Changes]\n")
+                                .append("\tE - ").append((this.editClouds ? "Hide" : "Show")).append(" Edited Clouds [").append(Main.NUMBER_OF_PATCHED_BYTES).append(" Bytes Patched of ").append((this.editableClouds != null ? this.editableClouds.getMesh().getSize() / 1024 : 0)).append(" KB]\n")
                                 .toString()
                     }
             );
         }
 
-        Main.WINDOW_TITLE += " (DrawCalls: " + Main.NUMBER_OF_DRAWCALLS + ", Vertices: " + Main.NUMBER_OF_VERTICES + ")";
+        Main.WINDOW_TITLE += " (DrawCalls: " + Main.NUMBER_OF_DRAWCALLS + ", Vertices: " + Main.NUMBER_OF_VERTICES + ", State Changes: " + Main.NUMBER_OF_STATE_CHANGES + ")";
         Main.WINDOW_TITLE += " (x:" + (int) Math.floor(camera.getPosition().x()) + ",y:" + (int) Math.floor(camera.getPosition().y()) + ",z:" + (int) Math.ceil(camera.getPosition().z()) + ")";
         if (!this.textEnabled) {
             Main.WINDOW_TITLE += " (T - Show Wall of Text)";
         }
     }
 
+    //bytes read from the arena this frame, the passes that do not shade only read the position stream
+    //saved bytes are compared to the interleaved float vertex, where every pass reads the whole vertex
+    private long arenaBytes(int positionSize, int vertexSize) {
+        return (Main.NUMBER_OF_ARENA_POSITION_VERTICES * positionSize) + (Main.NUMBER_OF_ARENA_VERTICES * vertexSize);
+    }
+
     private String format(double d) {
         return String.format("%.2f", d);
     }
@@ -280,6 +1105,25 @@ public class Game {
                 cubes.add(new Cube(model));
             }
         }
+        if (key == GLFW_KEY_L && action == GLFW_PRESS) {
+            Vector3dc camPos = camera.getPosition();
+            Vector3f color = new Vector3f(
+                    (float) Math.random(),
+                    (float) Math.random(),
+                    (float) Math.random()
+            ).normalize().mul(12f);
+            Vector3f position = new Vector3f((float) camPos.x(), (float) camPos.y(), (float) camPos.z());
+            if ((mods & GLFW_MOD_ALT) != 0) {
+                lights.add(new SpotLight(position, this.camera.getFront(), color));
+            } else {
+                lights.add(new PointLight(position, color));
+            }
+        }
+        if (key == GLFW_KEY_K && action == GLFW_PRESS) {
+            if (lights.size() > 1) {
+                lights.remove(lights.size() - 1);
+            }
+        }
         if (key == GLFW_KEY_R && action == GLFW_PRESS) {
             if (cubes.size() > 2) {
                 cubes.remove(cubes.size() - 1);
@@ -291,6 +1135,52 @@ public class Game {
         if (key == GLFW_KEY_V && action == GLFW_PRESS) {
             this.showShadowVolumes = !this.showShadowVolumes;
         }
+        if (key == GLFW_KEY_C && action == GLFW_PRESS) {
+            this.shadowVolumeMode = this.shadowVolumeMode.next();
+        }
+        if (key == GLFW_KEY_P && action == GLFW_PRESS) {
+            this.useShadowProxies = !this.useShadowProxies;
+        }
+        if (key == GLFW_KEY_Z && action == GLFW_PRESS) {
+            this.automaticZPass = !this.automaticZPass;
+        }
+        if (key == GLFW_KEY_X && action == GLFW_PRESS) {
+            this.scissorShadowVolumes = !this.scissorShadowVolumes;
+        }
+        if (key == GLFW_KEY_B && action == GLFW_PRESS) {
+            this.boundedExtrusion = !this.boundedExtrusion;
+        }
+        if (key == GLFW_KEY_I && action == GLFW_PRESS) {
+            this.instancedRendering = !this.instancedRendering;
+        }
+        if (key == GLFW_KEY_G && action == GLFW_PRESS) {
+            this.worldVertexCache = !this.worldVertexCache;
+        }
+        if (key == GLFW_KEY_M && action == GLFW_PRESS) {
+            this.multiDrawRendering = !this.multiDrawRendering;
+        }
+        if (key == GLFW_KEY_N && action == GLFW_PRESS) {
+            this.deferredShading = !this.deferredShading;
+        }
+        if (key == GLFW_KEY_Q && action == GLFW_PRESS) {
+            this.renderQueue.setSorted(!this.renderQueue.isSorted());
+        }
+        if (key == GLFW_KEY_E && action == GLFW_PRESS) {
+            if (this.editableClouds == null) {
+                Matrix4f model = new Matrix4f()
+                        .translate(0f, 8f, 0f)
+                        .scale(0.2f);
+                this.editableClouds = EditableClouds.create(model);
+                this.editableClouds.upload();
+            }
+            this.editClouds = !this.editClouds;
+            //after the floor, so removing the last cube never removes them
+            if (this.editClouds) {
+                cubes.add(1, this.editableClouds);
+            } else {
+                cubes.remove(this.editableClouds);
+            }
+        }
     }
 
     public void mouseCallback(long window, int button, int action, int mods) {
@@ -27,6 +27,7 @@
 package cientistavuador.shadowvolumeexperiment;
 
 import cientistavuador.shadowvolumeexperiment.cube.Cube;
+import cientistavuador.shadowvolumeexperiment.cube.VertexFormat;
 import cientistavuador.shadowvolumeexperiment.text.GLFonts;
 import cientistavuador.shadowvolumeexperiment.ubo.UBOBindingPoints;
 import java.io.PrintStream;
@@ -50,6 +51,7 @@ public class Main {
     public static final boolean USE_MSAA = false;
     public static final boolean DEBUG_ENABLED = true;
     public static final boolean SPIKE_LAG_WARNINGS = false;
+    public static final VertexFormat VERTEX_FORMAT = VertexFormat.PACKED_HALF;
     public static final int MIN_UNIFORM_BUFFER_BINDINGS = UBOBindingPoints.MIN_NUMBER_OF_UBO_BINDING_POINTS;
 
     static {
@@ -105,6 +107,17 @@ public class Main {
     public static double ONE_MINUTE_COUNTER = 0.0;
     public static int NUMBER_OF_DRAWCALLS = 0;
     public static int NUMBER_OF_VERTICES = 0;
+    public static int NUMBER_OF_ZPASS_CASTERS = 0;
+    public static int NUMBER_OF_ZFAIL_CASTERS = 0;
+    public static int NUMBER_OF_CULLED_SHADOW_VOLUMES = 0;
+    public static long NUMBER_OF_SCISSORED_PIXELS = 0;
+    public static int NUMBER_OF_STATE_CHANGES = 0;
+    public static int NUMBER_OF_VISIBLE_LIGHTS = 0;
+    public static int NUMBER_OF_CAPTURED_VERTICES = 0;
+    public static long NUMBER_OF_ARENA_VERTICES = 0;
+    public static long NUMBER_OF_ARENA_POSITION_VERTICES = 0;
+    public static long NUMBER_OF_PATCHED_BYTES = 0;
+    public static boolean SRGB_FRAMEBUFFER = false;
     public static final ConcurrentLinkedQueue<Runnable> MAIN_TASKS = new ConcurrentLinkedQueue<>();
     public static final Vector3f DEFAULT_CLEAR_COLOR = new Vector3f(0.2f, 0.4f, 0.6f);
     private static GLDebugMessageCallback DEBUG_CALLBACK = null;
@@ -186,6 +199,7 @@ public class Main {
         glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
         glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
         glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GL_TRUE);
+        glfwWindowHint(GLFW_SRGB_CAPABLE, GLFW_TRUE);
 
         WINDOW_POINTER = glfwCreateWindow(Main.WIDTH, Main.HEIGHT, Main.WINDOW_TITLE, NULL, NULL);
         if (WINDOW_POINTER == NULL) {
@@ -251,6 +265,12 @@ public class Main {
         glClearStencil(0);
         glCullFace(GL_BACK);
         glLineWidth(1f);
+        //the lights are added together in linear space, GL_FRAMEBUFFER_SRGB is enabled around the cube passes
+        //if the window is not srgb the shaders encode their output instead, read by the programs when they compile
+        SRGB_FRAMEBUFFER = glGetFramebufferAttachmentParameteri(GL_FRAMEBUFFER, GL_BACK_LEFT, GL_FRAMEBUFFER_ATTACHMENT_COLOR_ENCODING) == GL_SRGB;
+        if (!SRGB_FRAMEBUFFER) {
+            System.out.println("[sRGB Warning] The window framebuffer is not sRGB capable, the cube shaders will gamma encode their output.");
+        }
         int maxUBOBindings = glGetInteger(GL_MAX_UNIFORM_BUFFER_BINDINGS);
         if (maxUBOBindings < MIN_UNIFORM_BUFFER_BINDINGS) {
             throw new IllegalStateException("Max UBO Bindings too small! Update your drivers or buy a new GPU.");
@@ -305,6 +325,16 @@ public class Main {
             
             Main.NUMBER_OF_DRAWCALLS = 0;
             Main.NUMBER_OF_VERTICES = 0;
+            Main.NUMBER_OF_ZPASS_CASTERS = 0;
+            Main.NUMBER_OF_ZFAIL_CASTERS = 0;
+            Main.NUMBER_OF_CULLED_SHADOW_VOLUMES = 0;
+            Main.NUMBER_OF_SCISSORED_PIXELS = 0;
+            Main.NUMBER_OF_STATE_CHANGES = 0;
+            Main.NUMBER_OF_VISIBLE_LIGHTS = 0;
+            Main.NUMBER_OF_ARENA_VERTICES = 0;
+            Main.NUMBER_OF_ARENA_POSITION_VERTICES = 0;
+            Main.NUMBER_OF_CAPTURED_VERTICES = 0;
+            Main.NUMBER_OF_PATCHED_BYTES = 0;
             Main.WINDOW_TITLE = "ShadowVolumeExperiment - FPS: " + Main.FPS;
 
             if (SPIKE_LAG_WARNINGS) {
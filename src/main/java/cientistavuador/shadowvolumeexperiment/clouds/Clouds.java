@@ -27,7 +27,9 @@
 package cientistavuador.shadowvolumeexperiment.clouds;
 
 import cientistavuador.shadowvolumeexperiment.cube.Cube;
+import cientistavuador.shadowvolumeexperiment.cube.SilhouetteCache;
 import org.joml.Matrix4fc;
+import org.joml.Vector3fc;
 
 /**
  *
@@ -44,6 +46,21 @@ public class Clouds extends Cube {
         return CloudsVAO.VAO;
     }
 
+    @Override
+    public int getEBO() {
+        return CloudsVAO.EBO;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return CloudsVAO.CLOUDS_VERTEX_COUNT;
+    }
+
+    @Override
+    public int getBaseVertex() {
+        return CloudsVAO.CLOUDS_BASE_VERTEX;
+    }
+
     @Override
     public int getCount() {
         return CloudsVAO.CLOUDS_COUNT;
@@ -63,4 +80,40 @@ public class Clouds extends Cube {
     public int getShadowVolumeOffset() {
         return CloudsVAO.CLOUDS_SHADOW_VOLUME_OFFSET;
     }
+
+    @Override
+    public int getShadowVolumeCapsCount() {
+        return CloudsVAO.CLOUDS_SHADOW_VOLUME_CAPS_COUNT;
+    }
+
+    @Override
+    public Vector3fc getMin() {
+        return CloudsVAO.CLOUDS_MIN;
+    }
+
+    @Override
+    public Vector3fc getMax() {
+        return CloudsVAO.CLOUDS_MAX;
+    }
+
+    @Override
+    public int getShadowVolumeAdjacencyCount() {
+        return CloudsVAO.CLOUDS_SHADOW_VOLUME_ADJACENCY_COUNT;
+    }
+
+    @Override
+    public int getShadowVolumeAdjacencyOffset() {
+        return CloudsVAO.CLOUDS_SHADOW_VOLUME_ADJACENCY_OFFSET;
+    }
+
+    //the clouds do not cast shadow volumes
+    @Override
+    public SilhouetteCache getSilhouetteCache() {
+        return null;
+    }
+
+    @Override
+    public boolean isShadowCaster() {
+        return false;
+    }
 }
@@ -47,6 +47,11 @@ public class CloudsMesh {
     }
 
     public static VerticesStream generateMesh(NativeImage image) {
+        return generateMesh(readData(image), image.getWidth(), image.getHeight());
+    }
+
+    //a cell has a cloud if the first channel of its pixel is 128 or more
+    public static boolean[] readData(NativeImage image) {
         ByteBuffer imageData = image.getData();
 
         int width = image.getWidth();
@@ -57,7 +62,7 @@ public class CloudsMesh {
             data[i] = (imageData.get(i * image.getChannels()) < 0);
         }
 
-        return generateMesh(data, width, height);
+        return data;
     }
 
     public static VerticesStream generateMesh(boolean[] data, int width, int height) {
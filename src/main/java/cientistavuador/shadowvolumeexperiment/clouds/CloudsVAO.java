@@ -27,9 +27,13 @@
 package cientistavuador.shadowvolumeexperiment.clouds;
 
 import cientistavuador.shadowvolumeexperiment.cube.CubeVAO;
+import cientistavuador.shadowvolumeexperiment.cube.MeshArena;
 import cientistavuador.shadowvolumeexperiment.cube.VerticesStream;
-import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeGenerator;
-import static org.lwjgl.opengl.GL33C.*;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeCache;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeMesh;
+import cientistavuador.shadowvolumeexperiment.util.VertexWelder;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
 
 /**
  *
@@ -37,58 +41,56 @@ import static org.lwjgl.opengl.GL33C.*;
  */
 public class CloudsVAO {
     public static final int VAO;
+    public static final int EBO;
+    public static final int CLOUDS_VERTEX_COUNT;
+    public static final int CLOUDS_BASE_VERTEX;
     public static final int CLOUDS_COUNT;
     public static final int CLOUDS_OFFSET;
     public static final int CLOUDS_SHADOW_VOLUME_COUNT;
     public static final int CLOUDS_SHADOW_VOLUME_OFFSET;
+    public static final int CLOUDS_SHADOW_VOLUME_CAPS_COUNT;
+    public static final int CLOUDS_SHADOW_VOLUME_ADJACENCY_COUNT;
+    public static final int CLOUDS_SHADOW_VOLUME_ADJACENCY_OFFSET;
+    public static final Vector3fc CLOUDS_MIN;
+    public static final Vector3fc CLOUDS_MAX;
 
     static {
-        VAO = glGenVertexArrays();
-        glBindVertexArray(VAO);
-        
         //VerticesStream stream = CloudsMeshConvex.generateMesh();
         VerticesStream stream = CloudsMesh.generateMesh();
         
-        float[] vertices = stream.vertices();
-        int[] indices = stream.indices();
+        ShadowVolumeMesh shadowMesh = ShadowVolumeCache.get(stream.vertices(), CubeVAO.VERTEX_SIZE_ELEMENTS, stream.indices(), VertexWelder.DEFAULT_EPSILON);
         
-        int[] volumeIndices = ShadowVolumeGenerator.generateShadowVolumeIndices(vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, indices);
+        float[] vertices = shadowMesh.getVertices();
+        int[] indices = shadowMesh.getIndices();
+        System.out.println("CloudsVAO: " + shadowMesh.report());
         
-        CLOUDS_COUNT = indices.length;
-        CLOUDS_OFFSET = 0;
-        CLOUDS_SHADOW_VOLUME_COUNT = volumeIndices.length;
-        CLOUDS_SHADOW_VOLUME_OFFSET = indices.length * Integer.BYTES;
+        int[] volumeIndices = shadowMesh.getVolumeIndices();
+        int[] adjacencyIndices = shadowMesh.getAdjacencyIndices();
         
-        int[] mixedIndices = new int[indices.length + volumeIndices.length];
+        int[] mixedIndices = new int[indices.length + volumeIndices.length + adjacencyIndices.length];
         System.arraycopy(indices, 0, mixedIndices, 0, indices.length);
         System.arraycopy(volumeIndices, 0, mixedIndices, indices.length, volumeIndices.length);
-
-        int ebo = glGenBuffers();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, mixedIndices, GL_STATIC_DRAW);
-
-        int vbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
-
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, CubeVAO.VERTEX_SIZE_ELEMENTS * Float.BYTES, 0);
-
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(1, 3, GL_FLOAT, false, CubeVAO.VERTEX_SIZE_ELEMENTS * Float.BYTES, (3) * Float.BYTES);
-
-        glEnableVertexAttribArray(2);
-        glVertexAttribPointer(2, 2, GL_FLOAT, false, CubeVAO.VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3) * Float.BYTES);
-
-        glEnableVertexAttribArray(3);
-        glVertexAttribPointer(3, 2, GL_FLOAT, false, CubeVAO.VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3 + 2) * Float.BYTES);
-
-        glEnableVertexAttribArray(4);
-        glVertexAttribPointer(4, 2, GL_FLOAT, false, CubeVAO.VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3 + 2 + 2) * Float.BYTES);
-
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-
-        glBindVertexArray(0);
+        System.arraycopy(adjacencyIndices, 0, mixedIndices, indices.length + volumeIndices.length, adjacencyIndices.length);
+        
+        MeshArena.Mesh arenaMesh = MeshArena.add(vertices, mixedIndices);
+        VAO = MeshArena.VAO;
+        EBO = MeshArena.EBO;
+        
+        CLOUDS_VERTEX_COUNT = arenaMesh.getVertexCount();
+        CLOUDS_BASE_VERTEX = arenaMesh.getBaseVertex();
+        CLOUDS_COUNT = indices.length;
+        CLOUDS_OFFSET = arenaMesh.getIndexOffset();
+        CLOUDS_SHADOW_VOLUME_COUNT = volumeIndices.length;
+        CLOUDS_SHADOW_VOLUME_OFFSET = arenaMesh.getIndexOffset() + (indices.length * Integer.BYTES);
+        CLOUDS_SHADOW_VOLUME_CAPS_COUNT = shadowMesh.getCapsCount();
+        CLOUDS_SHADOW_VOLUME_ADJACENCY_COUNT = adjacencyIndices.length;
+        CLOUDS_SHADOW_VOLUME_ADJACENCY_OFFSET = arenaMesh.getIndexOffset() + ((indices.length + volumeIndices.length) * Integer.BYTES);
+        
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+        shadowMesh.computeBounds(CubeVAO.VERTEX_SIZE_ELEMENTS, min, max);
+        CLOUDS_MIN = min;
+        CLOUDS_MAX = max;
     }
 
     private CloudsVAO() {
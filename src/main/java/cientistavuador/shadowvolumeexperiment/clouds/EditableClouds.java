@@ -0,0 +1,300 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.clouds;
+
+import cientistavuador.shadowvolumeexperiment.cube.CubeVAO;
+import cientistavuador.shadowvolumeexperiment.cube.EditableMesh;
+import cientistavuador.shadowvolumeexperiment.cube.MeshArena;
+import cientistavuador.shadowvolumeexperiment.resources.image.ImageResources;
+import cientistavuador.shadowvolumeexperiment.resources.image.NativeImage;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeBuilder;
+import java.util.Arrays;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+
+/**
+ * Clouds that cast shadow volumes and can be edited a cell at a time.
+ * <p>
+ * Unlike {@link CloudsMesh} every cell of the bitmap has its own faces, so
+ * changing a cell only changes the faces of the cell and of its four
+ * neighbors, the triangles are added and removed through a
+ * {@link ShadowVolumeBuilder} and only the changed parts of the mesh are
+ * written to the arena.
+ *
+ * @author Cien
+ */
+public class EditableClouds extends Clouds {
+
+    //up, down, left, right, front and back
+    private static final int NUMBER_OF_FACES = 6;
+
+    //the x, y and z steps of the four corners of each face in the grid of the cell corners
+    //the triangles of a face are 0 2 1 and 3 1 2
+    private static final int[][] FACE_CORNERS = {
+        {0, 1, 0, 0, 1, 1, 1, 1, 0, 1, 1, 1},
+        {0, 0, 0, 1, 0, 0, 0, 0, 1, 1, 0, 1},
+        {0, 0, 0, 0, 0, 1, 0, 1, 0, 0, 1, 1},
+        {1, 0, 0, 1, 1, 0, 1, 0, 1, 1, 1, 1},
+        {0, 0, 1, 1, 0, 1, 0, 1, 1, 1, 1, 1},
+        {0, 0, 0, 0, 1, 0, 1, 0, 0, 1, 1, 0}
+    };
+    private static final float[][] FACE_NORMALS = {
+        {0f, 1f, 0f},
+        {0f, -1f, 0f},
+        {-1f, 0f, 0f},
+        {1f, 0f, 0f},
+        {0f, 0f, -1f},
+        {0f, 0f, 1f}
+    };
+    //the cell hiding each face, the top and the bottom are never hidden
+    private static final int[][] FACE_NEIGHBORS = {
+        {0, 0},
+        {0, 0},
+        {-1, 0},
+        {1, 0},
+        {0, 1},
+        {0, -1}
+    };
+
+    public static EditableClouds create(Matrix4fc model) {
+        NativeImage image = ImageResources.load("clouds.png", 0);
+        try {
+            return new EditableClouds(model, CloudsMesh.readData(image), image.getWidth(), image.getHeight());
+        } finally {
+            image.free();
+        }
+    }
+
+    private final boolean[] data;
+    private final int width;
+    private final int height;
+    //the two triangles of each face of each cell, -1 if the face is not in the mesh
+    private final int[] faceTriangles;
+    private final ShadowVolumeBuilder builder;
+    private final EditableMesh mesh;
+    private final Vector3fc min;
+    private final Vector3fc max;
+    private final float[] faceVertex = new float[CubeVAO.VERTEX_SIZE_ELEMENTS];
+    private final int[] faceVertices = new int[4];
+
+    public EditableClouds(Matrix4fc model, boolean[] data, int width, int height) {
+        super(model);
+        this.data = new boolean[width * height];
+        this.width = width;
+        this.height = height;
+        this.faceTriangles = new int[width * height * NUMBER_OF_FACES * 2];
+        Arrays.fill(this.faceTriangles, -1);
+
+        int cells = 0;
+        for (int i = 0; i < width * height; i++) {
+            if (data[i]) {
+                cells++;
+            }
+        }
+        //the top and the bottom of each cell and some room for the sides
+        this.builder = new ShadowVolumeBuilder(CubeVAO.VERTEX_SIZE_ELEMENTS, cells * 4 * 3, cells * 2 * 3);
+        this.mesh = new EditableMesh(this.builder);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                setCell(x, y, data[x + (y * width)]);
+            }
+        }
+
+        this.min = new Vector3f(-(width / 2f), -0.5f, -(height / 2f));
+        this.max = new Vector3f(width / 2f, 0.5f, height / 2f);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public EditableMesh getMesh() {
+        return mesh;
+    }
+
+    //out of the bitmap is empty
+    public boolean isFilled(int x, int y) {
+        if (x < 0 || x >= this.width || y < 0 || y >= this.height) {
+            return false;
+        }
+        return this.data[x + (y * this.width)];
+    }
+
+    public void setCell(int x, int y, boolean filled) {
+        if (isFilled(x, y) == filled) {
+            return;
+        }
+        this.data[x + (y * this.width)] = filled;
+
+        updateCell(x, y);
+        updateCell(x - 1, y);
+        updateCell(x + 1, y);
+        updateCell(x, y - 1);
+        updateCell(x, y + 1);
+    }
+
+    //fills or clears the square of cells around x y
+    public void paint(int x, int y, int radius, boolean filled) {
+        for (int j = Math.max(y - radius, 0); j <= Math.min(y + radius, this.height - 1); j++) {
+            for (int i = Math.max(x - radius, 0); i <= Math.min(x + radius, this.width - 1); i++) {
+                setCell(i, j, filled);
+            }
+        }
+    }
+
+    //writes the edits to the arena, returns the number of bytes written
+    public long upload() {
+        return this.mesh.upload();
+    }
+
+    private void updateCell(int x, int y) {
+        if (x < 0 || x >= this.width || y < 0 || y >= this.height) {
+            return;
+        }
+        boolean filled = isFilled(x, y);
+        for (int face = 0; face < NUMBER_OF_FACES; face++) {
+            int[] neighbor = FACE_NEIGHBORS[face];
+            boolean hidden = (neighbor[0] != 0 || neighbor[1] != 0) && isFilled(x + neighbor[0], y + neighbor[1]);
+
+            int triangles = ((x + (y * this.width)) * NUMBER_OF_FACES + face) * 2;
+            boolean present = this.faceTriangles[triangles] != -1;
+            if (filled && !hidden) {
+                if (!present) {
+                    addFace(x, y, face, triangles);
+                }
+            } else if (present) {
+                this.builder.removeTriangle(this.faceTriangles[triangles + 0]);
+                this.builder.removeTriangle(this.faceTriangles[triangles + 1]);
+                this.faceTriangles[triangles + 0] = -1;
+                this.faceTriangles[triangles + 1] = -1;
+            }
+        }
+    }
+
+    //same vertices as CloudsMesh, the position id is the corner of the grid
+    private void addFace(int x, int y, int face, int triangles) {
+        int[] corners = FACE_CORNERS[face];
+        float[] normal = FACE_NORMALS[face];
+        int[] vertices = this.faceVertices;
+        for (int i = 0; i < 4; i++) {
+            int gridX = x + corners[(i * 3) + 0];
+            int gridY = corners[(i * 3) + 1];
+            int gridZ = y + corners[(i * 3) + 2];
+
+            this.faceVertex[0] = gridX - (this.width / 2f);
+            this.faceVertex[1] = gridY - 0.5f;
+            this.faceVertex[2] = -(gridZ - (this.height / 2f));
+            this.faceVertex[3] = normal[0];
+            this.faceVertex[4] = normal[1];
+            this.faceVertex[5] = normal[2];
+            this.faceVertex[6] = Float.NaN;
+            this.faceVertex[7] = Float.NaN;
+
+            int position = (((gridZ * (this.width + 1)) + gridX) * 2) + gridY;
+            vertices[i] = this.builder.addVertex(this.faceVertex, 0, position);
+        }
+        this.faceTriangles[triangles + 0] = this.builder.addTriangle(vertices[0], vertices[2], vertices[1]);
+        this.faceTriangles[triangles + 1] = this.builder.addTriangle(vertices[3], vertices[1], vertices[2]);
+    }
+
+    @Override
+    public int getVAO() {
+        return MeshArena.VAO;
+    }
+
+    @Override
+    public int getEBO() {
+        return MeshArena.EBO;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return this.mesh.getVertexCount();
+    }
+
+    @Override
+    public int getBaseVertex() {
+        return this.mesh.getBaseVertex();
+    }
+
+    @Override
+    public int getCount() {
+        return this.mesh.getCount();
+    }
+
+    @Override
+    public int getOffset() {
+        return this.mesh.getOffset();
+    }
+
+    @Override
+    public int getShadowVolumeCount() {
+        return this.mesh.getShadowVolumeCount();
+    }
+
+    @Override
+    public int getShadowVolumeOffset() {
+        return this.mesh.getShadowVolumeOffset();
+    }
+
+    @Override
+    public int getShadowVolumeCapsCount() {
+        return this.mesh.getShadowVolumeCapsCount();
+    }
+
+    @Override
+    public int getShadowVolumeAdjacencyCount() {
+        return this.mesh.getShadowVolumeAdjacencyCount();
+    }
+
+    @Override
+    public int getShadowVolumeAdjacencyOffset() {
+        return this.mesh.getShadowVolumeAdjacencyOffset();
+    }
+
+    @Override
+    public Vector3fc getMin() {
+        return this.min;
+    }
+
+    @Override
+    public Vector3fc getMax() {
+        return this.max;
+    }
+
+    @Override
+    public boolean isShadowCaster() {
+        return true;
+    }
+
+}
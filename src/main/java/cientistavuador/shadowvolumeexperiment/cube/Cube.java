@@ -29,6 +29,8 @@ package cientistavuador.shadowvolumeexperiment.cube;
 import org.joml.Matrix3f;
 import org.joml.Matrix4f;
 import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
 
 /**
  *
@@ -42,10 +44,18 @@ public class Cube {
     public static final int SHADER_PROGRAM = CubeProgram.SHADER_PROGRAM;
     public static final int SHADER_PROGRAM_SHADOW_VOLUME = CubeShadowVolumeProgram.SHADER_PROGRAM;
     public static final int VAO = CubeVAO.VAO;
+    public static final int EBO = CubeVAO.EBO;
+    public static final int CUBE_VERTEX_COUNT = CubeVAO.CUBE_VERTEX_COUNT;
+    public static final int CUBE_BASE_VERTEX = CubeVAO.CUBE_BASE_VERTEX;
     public static final int CUBE_COUNT = CubeVAO.CUBE_COUNT;
     public static final int CUBE_OFFSET = CubeVAO.CUBE_OFFSET;
     public static final int CUBE_SHADOW_VOLUME_COUNT = CubeVAO.CUBE_SHADOW_VOLUME_COUNT;
     public static final int CUBE_SHADOW_VOLUME_OFFSET = CubeVAO.CUBE_SHADOW_VOLUME_OFFSET;
+    public static final int CUBE_SHADOW_VOLUME_CAPS_COUNT = CubeVAO.CUBE_SHADOW_VOLUME_CAPS_COUNT;
+    public static final int CUBE_SHADOW_VOLUME_ADJACENCY_COUNT = CubeVAO.CUBE_SHADOW_VOLUME_ADJACENCY_COUNT;
+    public static final int CUBE_SHADOW_VOLUME_ADJACENCY_OFFSET = CubeVAO.CUBE_SHADOW_VOLUME_ADJACENCY_OFFSET;
+    public static final Vector3fc CUBE_MIN = CubeVAO.CUBE_MIN;
+    public static final Vector3fc CUBE_MAX = CubeVAO.CUBE_MAX;
     
     public static void init() {
         
@@ -53,6 +63,8 @@ public class Cube {
 
     private final Matrix4f model = new Matrix4f();
     private final Matrix3f normalModel = new Matrix3f();
+    private int worldBaseVertex = -1;
+    private int worldDrawIndex = -1;
     
     public Cube(Matrix4fc model) {
         this.model.set(model);
@@ -63,6 +75,24 @@ public class Cube {
         return Cube.VAO;
     }
     
+    public int getEBO() {
+        return Cube.EBO;
+    }
+    
+    public int getVertexCount() {
+        return Cube.CUBE_VERTEX_COUNT;
+    }
+    
+    //the indices are relative to this vertex, see MeshArena
+    public int getBaseVertex() {
+        return Cube.CUBE_BASE_VERTEX;
+    }
+    
+    //vao reading only the positions and the normals, for the shadow volume passes
+    public int getShadowVolumeVAO() {
+        return MeshArena.POSITION_VAO;
+    }
+    
     public int getCount() {
         return Cube.CUBE_COUNT;
     }
@@ -79,6 +109,46 @@ public class Cube {
         return Cube.CUBE_SHADOW_VOLUME_OFFSET;
     }
     
+    //the indices of the volume before the edge quads, z-pass skips them
+    public int getShadowVolumeCapsCount() {
+        return Cube.CUBE_SHADOW_VOLUME_CAPS_COUNT;
+    }
+    
+    public int getShadowVolumeAdjacencyCount() {
+        return Cube.CUBE_SHADOW_VOLUME_ADJACENCY_COUNT;
+    }
+    
+    public int getShadowVolumeAdjacencyOffset() {
+        return Cube.CUBE_SHADOW_VOLUME_ADJACENCY_OFFSET;
+    }
+    
+    public Vector3fc getMin() {
+        return Cube.CUBE_MIN;
+    }
+    
+    public Vector3fc getMax() {
+        return Cube.CUBE_MAX;
+    }
+    
+    public void computeWorldBounds(Vector3f min, Vector3f max) {
+        Vector3fc localMin = getMin();
+        Vector3fc localMax = getMax();
+        this.model.transformAab(localMin.x(), localMin.y(), localMin.z(), localMax.x(), localMax.y(), localMax.z(), min, max);
+    }
+    
+    public ShadowProxy getShadowProxy() {
+        return null;
+    }
+    
+    //false if the shadow volume passes skip this cube
+    public boolean isShadowCaster() {
+        return true;
+    }
+
+    public SilhouetteCache getSilhouetteCache() {
+        return CubeVAO.SILHOUETTE_CACHE;
+    }
+    
     public Matrix4f getModel() {
         return model;
     }
@@ -91,4 +161,22 @@ public class Cube {
         this.normalModel.set(new Matrix4f(model).invert().transpose());
     }
     
+    //first vertex of this cube in the world space vertices captured this frame, -1 if it was not captured
+    public int getWorldBaseVertex() {
+        return worldBaseVertex;
+    }
+
+    public void setWorldBaseVertex(int worldBaseVertex) {
+        this.worldBaseVertex = worldBaseVertex;
+    }
+    
+    //index of this cube in the world space vertices captured this frame, written to every captured vertex
+    public int getWorldDrawIndex() {
+        return worldDrawIndex;
+    }
+
+    public void setWorldDrawIndex(int worldDrawIndex) {
+        this.worldDrawIndex = worldDrawIndex;
+    }
+    
 }
@@ -0,0 +1,82 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import cientistavuador.shadowvolumeexperiment.util.ProgramCompiler;
+import java.nio.FloatBuffer;
+import org.joml.Matrix4fc;
+import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryStack;
+
+/**
+ * Instanced version of {@link CubeGBufferProgram}, the vertex shader is the
+ * one of {@link CubeInstancedProgram}.
+ *
+ * @author Cien
+ */
+public class CubeGBufferInstancedProgram {
+
+    public static final String VERTEX_SHADER = CubeInstancedProgram.VERTEX_SHADER;
+
+    public static final String FRAGMENT_SHADER = CubeGBufferProgram.FRAGMENT_SHADER;
+
+    public static final int SHADER_PROGRAM = ProgramCompiler.compile(VERTEX_SHADER, FRAGMENT_SHADER);
+    public static final int PROJECTION_VIEW_INDEX = glGetUniformLocation(SHADER_PROGRAM, "projectionView");
+    public static final int CUBE_TEXTURE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "cubeTexture");
+    public static final int CUBE_TEXTURE_SPECULAR_INDEX = glGetUniformLocation(SHADER_PROGRAM, "cubeTextureSpecular");
+    public static final int CLOUDS_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "clouds");
+
+    private static void sendMatrix(int location, Matrix4fc matrix) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer matrixBuffer = stack.mallocFloat(4 * 4);
+            matrix.get(matrixBuffer);
+            glUniformMatrix4fv(location, false, matrixBuffer);
+        }
+    }
+
+    public static void sendPerFrameUniforms(int cubeTexture, int cubeTextureSpecular, Matrix4fc projectionView) {
+        sendMatrix(PROJECTION_VIEW_INDEX, projectionView);
+        
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, cubeTexture);
+        glUniform1i(CUBE_TEXTURE_INDEX, 0);
+        
+        glActiveTexture(GL_TEXTURE1);
+        glBindTexture(GL_TEXTURE_2D, cubeTextureSpecular);
+        glUniform1i(CUBE_TEXTURE_SPECULAR_INDEX, 1);
+    }
+
+    //the model and normal model matrices come from CubeInstances
+    public static void sendPerDrawUniforms(boolean clouds) {
+        glUniform1i(CLOUDS_POSITION_INDEX, (clouds ? 1 : 0));
+    }
+
+    private CubeGBufferInstancedProgram() {
+
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import cientistavuador.shadowvolumeexperiment.util.ProgramCompiler;
+import java.nio.FloatBuffer;
+import org.joml.Matrix3fc;
+import org.joml.Matrix4fc;
+import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryStack;
+
+/**
+ * Writes the surface of the cubes to the targets of a
+ * {@link cientistavuador.shadowvolumeexperiment.deferred.GBuffer}, the vertex
+ * shader is the one of {@link CubeProgram}.
+ *
+ * @author Cien
+ */
+public class CubeGBufferProgram {
+
+    public static final String VERTEX_SHADER = CubeProgram.VERTEX_SHADER;
+
+    public static final String FRAGMENT_SHADER
+            = 
+            """
+            #version 330 core
+            
+            uniform sampler2D cubeTexture;
+            uniform sampler2D cubeTextureSpecular;
+            
+            uniform bool clouds;
+            
+            in vec3 fragPosition;
+            in vec3 fragNormal;
+            in vec2 texCoords;
+            
+            layout (location = 0) out vec4 outputAlbedo;
+            layout (location = 1) out vec4 outputNormalSpecular;
+            layout (location = 2) out vec4 outputPosition;
+            
+            void main() {
+                bool noTexCoords = isnan(texCoords.x) || isnan(texCoords.y);
+                
+                vec4 textureColor = vec4((fragNormal + 1.0) / 2.0, 1.0);
+                if (!noTexCoords) {
+                    textureColor = texture(cubeTexture, texCoords);
+                }
+                textureColor.rgb = pow(textureColor.rgb, vec3(2.2));
+            
+                if (clouds) {
+                    textureColor = vec4(0.65, 0.65, 0.65, 1.0);
+                }
+                
+                vec4 specularColor = vec4(1.0);
+                if (!noTexCoords) {
+                    specularColor = texture(cubeTextureSpecular, texCoords);
+                }
+                specularColor.rgb = pow(specularColor.rrr, vec3(2.2));
+                
+                //linear, the albedo target is srgb encoded
+                outputAlbedo = textureColor;
+                outputNormalSpecular = vec4(fragNormal, specularColor.r);
+                //w marks the pixels with a surface
+                outputPosition = vec4(fragPosition, 1.0);
+            }
+            """;
+
+    public static final int SHADER_PROGRAM = ProgramCompiler.compile(VERTEX_SHADER, FRAGMENT_SHADER);
+    public static final int PROJECTION_VIEW_INDEX = glGetUniformLocation(SHADER_PROGRAM, "projectionView");
+    public static final int MODEL_INDEX = glGetUniformLocation(SHADER_PROGRAM, "model");
+    public static final int NORMAL_MODEL_INDEX = glGetUniformLocation(SHADER_PROGRAM, "normalModel");
+    public static final int WORLD_SPACE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "worldSpace");
+    public static final int CUBE_TEXTURE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "cubeTexture");
+    public static final int CUBE_TEXTURE_SPECULAR_INDEX = glGetUniformLocation(SHADER_PROGRAM, "cubeTextureSpecular");
+    public static final int CLOUDS_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "clouds");
+
+    private static void sendMatrix(int location, Matrix4fc matrix) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer matrixBuffer = stack.mallocFloat(4 * 4);
+            matrix.get(matrixBuffer);
+            glUniformMatrix4fv(location, false, matrixBuffer);
+        }
+    }
+
+    public static void sendPerFrameUniforms(int cubeTexture, int cubeTextureSpecular, Matrix4fc projectionView) {
+        sendMatrix(PROJECTION_VIEW_INDEX, projectionView);
+        
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, cubeTexture);
+        glUniform1i(CUBE_TEXTURE_INDEX, 0);
+        
+        glActiveTexture(GL_TEXTURE1);
+        glBindTexture(GL_TEXTURE_2D, cubeTextureSpecular);
+        glUniform1i(CUBE_TEXTURE_SPECULAR_INDEX, 1);
+    }
+
+    public static void sendPerDrawUniforms(Matrix4fc model, Matrix3fc normalModel, boolean clouds) {
+        sendMatrix(MODEL_INDEX, model);
+        
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer matrixBuffer = stack.mallocFloat(3 * 3);
+            normalModel.get(matrixBuffer);
+            glUniformMatrix3fv(NORMAL_MODEL_INDEX, false, matrixBuffer);
+        }
+        
+        glUniform1i(WORLD_SPACE_INDEX, 0);
+        glUniform1i(CLOUDS_POSITION_INDEX, (clouds ? 1 : 0));
+    }
+    
+    //for the vertices captured by WorldVertices
+    public static void sendPerDrawUniforms(boolean clouds) {
+        glUniform1i(WORLD_SPACE_INDEX, 1);
+        glUniform1i(CLOUDS_POSITION_INDEX, (clouds ? 1 : 0));
+    }
+
+    private CubeGBufferProgram() {
+
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import cientistavuador.shadowvolumeexperiment.cube.light.Light;
+import cientistavuador.shadowvolumeexperiment.cube.light.directional.DirectionalLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.point.PointLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.spot.SpotLight;
+import cientistavuador.shadowvolumeexperiment.util.ProgramCompiler;
+import java.nio.FloatBuffer;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryStack;
+
+/**
+ * Instanced version of {@link CubeProgram}, the model and normal model
+ * matrices are read from the instance attributes of {@link CubeInstances}.
+ *
+ * @author Cien
+ */
+public class CubeInstancedProgram {
+
+    public static final String VERTEX_SHADER
+            = 
+            """
+            #version 330 core
+            
+            uniform mat4 projectionView;
+            
+            layout (location = 0) in vec3 vertexPosition;
+            layout (location = 1) in vec3 vertexNormal;
+            layout (location = 2) in vec2 vertexTexture;
+            
+            layout (location = 5) in mat4 model;
+            layout (location = 9) in mat3 normalModel;
+            
+            out vec3 fragPosition;
+            out vec3 fragNormal;
+            out vec2 texCoords;
+            
+            void main() {
+                texCoords = vertexTexture;
+                //packed vertices mark a missing texture coordinate with 1.0, see VertexFormat
+                if (vertexTexture.x == 1.0) {
+                    texCoords = vec2(uintBitsToFloat(0x7FC00000u));
+                }
+                fragNormal = normalize(normalModel * vertexNormal);
+            
+                vec4 outputPosition = model * vec4(vertexPosition, 1.0);
+                outputPosition /= outputPosition.w;
+                fragPosition = outputPosition.xyz;
+                
+                gl_Position = projectionView * outputPosition;
+            }
+            """;
+
+    public static final String FRAGMENT_SHADER = CubeProgram.FRAGMENT_SHADER;
+
+    public static final int SHADER_PROGRAM = ProgramCompiler.compile(VERTEX_SHADER, FRAGMENT_SHADER, CubeProgram.FRAGMENT_SHADER_REPLACEMENTS);
+    public static final int PROJECTION_VIEW_INDEX = glGetUniformLocation(SHADER_PROGRAM, "projectionView");
+    public static final int CUBE_TEXTURE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "cubeTexture");
+    public static final int CUBE_TEXTURE_SPECULAR_INDEX = glGetUniformLocation(SHADER_PROGRAM, "cubeTextureSpecular");
+
+    public static final int LIGHT_DIRECTION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightDirection");
+    public static final int POINT_LIGHT_INDEX = glGetUniformLocation(SHADER_PROGRAM, "pointLight");
+    public static final int LIGHT_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightPosition");
+    public static final int LIGHT_RANGE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightRange");
+    public static final int SPOT_DIRECTION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "spotDirection");
+    public static final int SPOT_CONE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "spotCone");
+    public static final int LIGHT_DIFFUSE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightDiffuse");
+    public static final int LIGHT_SPECULAR_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightSpecular");
+    public static final int LIGHT_AMBIENT_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightAmbient");
+
+    public static final int CAM_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "camPosition");
+    public static final int CLOUDS_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "clouds");
+    
+    private static void sendMatrix(int location, Matrix4fc matrix) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer matrixBuffer = stack.mallocFloat(4 * 4);
+            matrix.get(matrixBuffer);
+            glUniformMatrix4fv(location, false, matrixBuffer);
+        }
+    }
+
+    public static void sendPerFrameUniforms(int cubeTexture, int cubeTextureSpecular, Matrix4fc projectionView, Vector3f camPosition, Light light) {
+        sendMatrix(PROJECTION_VIEW_INDEX, projectionView);
+        glUniform3f(CAM_POSITION_INDEX, camPosition.x(), camPosition.y(), camPosition.z());
+        
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, cubeTexture);
+        glUniform1i(CUBE_TEXTURE_INDEX, 0);
+        
+        glActiveTexture(GL_TEXTURE1);
+        glBindTexture(GL_TEXTURE_2D, cubeTextureSpecular);
+        glUniform1i(CUBE_TEXTURE_SPECULAR_INDEX, 1);
+
+        if (light instanceof PointLight point) {
+            glUniform1i(POINT_LIGHT_INDEX, 1);
+            glUniform3f(LIGHT_POSITION_INDEX, point.getPosition().x(), point.getPosition().y(), point.getPosition().z());
+            glUniform1f(LIGHT_RANGE_INDEX, point.getRange());
+            if (light instanceof SpotLight spot) {
+                glUniform3f(SPOT_DIRECTION_INDEX, spot.getDirection().x(), spot.getDirection().y(), spot.getDirection().z());
+                glUniform2f(SPOT_CONE_INDEX,
+                        (float) Math.cos(Math.toRadians(spot.getOuterAngle())),
+                        (float) Math.cos(Math.toRadians(spot.getInnerAngle()))
+                );
+            } else {
+                glUniform2f(SPOT_CONE_INDEX, -1f, -1f);
+            }
+        } else if (light instanceof DirectionalLight directional) {
+            glUniform1i(POINT_LIGHT_INDEX, 0);
+            glUniform3f(
+                    LIGHT_DIRECTION_INDEX,
+                    directional.getDirection().x(), directional.getDirection().y(), directional.getDirection().z()
+            );
+        }
+
+        glUniform3f(LIGHT_DIFFUSE_INDEX, 0f, 0f, 0f);
+        glUniform3f(LIGHT_SPECULAR_INDEX, 0f, 0f, 0f);
+        glUniform3f(LIGHT_AMBIENT_INDEX, 0f, 0f, 0f);
+
+        if (light.getLightMode().diffuse()) {
+            glUniform3f(
+                    LIGHT_DIFFUSE_INDEX,
+                    light.getDiffuseColor().x(), light.getDiffuseColor().y(), light.getDiffuseColor().z()
+            );
+        }
+        
+        if (light.getLightMode().specular()) {
+            glUniform3f(
+                    LIGHT_SPECULAR_INDEX,
+                    light.getSpecularColor().x(), light.getSpecularColor().y(), light.getSpecularColor().z()
+            );
+        }
+        
+        if (light.getLightMode().ambient()) {
+            glUniform3f(
+                    LIGHT_AMBIENT_INDEX,
+                    light.getAmbientColor().x(), light.getAmbientColor().y(), light.getAmbientColor().z()
+            );
+        }
+    }
+
+    //the model and normal model matrices come from CubeInstances
+    public static void sendPerDrawUniforms(boolean clouds) {
+        glUniform1i(CLOUDS_POSITION_INDEX, (clouds ? 1 : 0));
+    }
+
+    private CubeInstancedProgram() {
+
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import java.nio.FloatBuffer;
+import org.joml.Matrix3fc;
+import org.joml.Matrix4fc;
+import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Per instance data of the instanced programs, streamed into a single vertex
+ * buffer shared by every vao.
+ * <p>
+ * A instance is the model matrix, the normal model matrix and the extrusion
+ * distance of the shadow volume.
+ *
+ * @author Cien
+ */
+public class CubeInstances {
+
+    //a mat4 takes the locations 5 to 8 and a mat3 the locations 9 to 11
+    public static final int MODEL_LOCATION = 5;
+    public static final int NORMAL_MODEL_LOCATION = 9;
+    public static final int EXTRUSION_DISTANCE_LOCATION = 12;
+    public static final int INSTANCE_SIZE_ELEMENTS = (4 * 4) + (3 * 3) + 1;
+    public static final int INITIAL_CAPACITY = 256;
+
+    public static final int VBO;
+
+    static {
+        VBO = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, VBO);
+        glBufferData(GL_ARRAY_BUFFER, ((long) INITIAL_CAPACITY) * INSTANCE_SIZE_ELEMENTS * Float.BYTES, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    private static FloatBuffer instances = MemoryUtil.memAllocFloat(INITIAL_CAPACITY * INSTANCE_SIZE_ELEMENTS);
+    private static int count = 0;
+
+    //must be called with the vao bound, every vao drawn by the instanced programs needs it
+    public static void setupVertexArray() {
+        glBindBuffer(GL_ARRAY_BUFFER, VBO);
+
+        int stride = INSTANCE_SIZE_ELEMENTS * Float.BYTES;
+        for (int i = 0; i < 4; i++) {
+            glEnableVertexAttribArray(MODEL_LOCATION + i);
+            glVertexAttribPointer(MODEL_LOCATION + i, 4, GL_FLOAT, false, stride, (i * 4) * Float.BYTES);
+            glVertexAttribDivisor(MODEL_LOCATION + i, 1);
+        }
+        for (int i = 0; i < 3; i++) {
+            glEnableVertexAttribArray(NORMAL_MODEL_LOCATION + i);
+            glVertexAttribPointer(NORMAL_MODEL_LOCATION + i, 3, GL_FLOAT, false, stride, ((4 * 4) + (i * 3)) * Float.BYTES);
+            glVertexAttribDivisor(NORMAL_MODEL_LOCATION + i, 1);
+        }
+        glEnableVertexAttribArray(EXTRUSION_DISTANCE_LOCATION);
+        glVertexAttribPointer(EXTRUSION_DISTANCE_LOCATION, 1, GL_FLOAT, false, stride, ((4 * 4) + (3 * 3)) * Float.BYTES);
+        glVertexAttribDivisor(EXTRUSION_DISTANCE_LOCATION, 1);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public static void clear() {
+        count = 0;
+    }
+
+    public static int getCount() {
+        return count;
+    }
+
+    public static void add(Matrix4fc model, Matrix3fc normalModel, float extrusionDistance) {
+        if (((count + 1) * INSTANCE_SIZE_ELEMENTS) > instances.capacity()) {
+            instances = MemoryUtil.memRealloc(instances, instances.capacity() * 2);
+        }
+
+        int index = count * INSTANCE_SIZE_ELEMENTS;
+        model.get(index, instances);
+        normalModel.get(index + (4 * 4), instances);
+        instances.put(index + (4 * 4) + (3 * 3), extrusionDistance);
+
+        count++;
+    }
+
+    //replaces the storage of the vertex buffer with the added instances
+    //there is no base instance in gl 3.3, so every batch is uploaded right before its draw call
+    public static void upload() {
+        instances.position(0).limit(count * INSTANCE_SIZE_ELEMENTS);
+
+        glBindBuffer(GL_ARRAY_BUFFER, VBO);
+        glBufferData(GL_ARRAY_BUFFER, instances, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        instances.clear();
+    }
+
+    private CubeInstances() {
+
+    }
+}
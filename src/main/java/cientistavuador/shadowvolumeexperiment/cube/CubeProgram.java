@@ -26,9 +26,15 @@
  */
 package cientistavuador.shadowvolumeexperiment.cube;
 
+import cientistavuador.shadowvolumeexperiment.Main;
+import cientistavuador.shadowvolumeexperiment.cube.light.Light;
 import cientistavuador.shadowvolumeexperiment.cube.light.directional.DirectionalLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.point.PointLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.spot.SpotLight;
 import cientistavuador.shadowvolumeexperiment.util.ProgramCompiler;
 import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
 import org.joml.Matrix3fc;
 import org.joml.Matrix4fc;
 import org.joml.Vector3f;
@@ -49,6 +55,8 @@ public class CubeProgram {
             uniform mat4 projectionView;
             uniform mat4 model;
             uniform mat3 normalModel;
+            //the vertices were captured in world space, see WorldVertices
+            uniform bool worldSpace;
             
             layout (location = 0) in vec3 vertexPosition;
             layout (location = 1) in vec3 vertexNormal;
@@ -60,32 +68,86 @@ public class CubeProgram {
             
             void main() {
                 texCoords = vertexTexture;
-                fragNormal = normalize(normalModel * vertexNormal);
-            
-                vec4 outputPosition = model * vec4(vertexPosition, 1.0);
-                outputPosition /= outputPosition.w;
+                //packed vertices mark a missing texture coordinate with 1.0, see VertexFormat
+                if (vertexTexture.x == 1.0) {
+                    texCoords = vec2(uintBitsToFloat(0x7FC00000u));
+                }
+                
+                vec4 outputPosition = vec4(vertexPosition, 1.0);
+                fragNormal = vertexNormal;
+                if (!worldSpace) {
+                    outputPosition = model * outputPosition;
+                    outputPosition /= outputPosition.w;
+                    fragNormal = normalize(normalModel * vertexNormal);
+                }
                 fragPosition = outputPosition.xyz;
                 
                 gl_Position = projectionView * outputPosition;
             }
             """;
 
-    public static final String FRAGMENT_SHADER
+    //the light uniforms and the shading of a surface by them, shared with the deferred light program
+    public static final String LIGHTING
             = 
             """
-            #version 330 core
-            
-            uniform sampler2D cubeTexture;
-            uniform sampler2D cubeTextureSpecular;
-            
             uniform vec3 camPosition;
             
             uniform vec3 lightDirection;
+            uniform bool pointLight;
+            uniform vec3 lightPosition;
+            uniform float lightRange;
+            uniform vec3 spotDirection;
+            uniform vec2 spotCone;
             uniform vec3 lightDiffuse;
             uniform vec3 lightSpecular;
             uniform vec3 lightAmbient;
             
+            vec3 shade(vec3 fragPosition, vec3 fragNormal, vec3 diffuseColor, vec3 specularColor) {
+                vec3 direction = lightDirection;
+                float attenuation = 1.0;
+                if (pointLight) {
+                    vec3 toFragment = fragPosition - lightPosition;
+                    float distance = length(toFragment);
+                    direction = toFragment / max(distance, 0.0001);
+                    
+                    //inverse square, smoothly windowed to zero at the range
+                    float window = clamp(1.0 - pow(distance / lightRange, 4.0), 0.0, 1.0);
+                    attenuation = (window * window) / ((distance * distance) + 1.0);
+                    
+                    //cosines of the outer and inner angles, a point light has no cone
+                    if (spotCone.x > -1.0) {
+                        float cone = dot(direction, spotDirection);
+                        attenuation *= clamp((cone - spotCone.x) / max(spotCone.y - spotCone.x, 0.0001), 0.0, 1.0);
+                    }
+                }
+                
+                vec3 viewDir = normalize(camPosition - fragPosition);
+                vec3 reflectDir = reflect(direction, fragNormal);
+                
+                vec3 resultColor = vec3(0.0);
+                
+                resultColor += lightDiffuse * attenuation * max(dot(fragNormal, -direction), 0.0) * diffuseColor;
+                resultColor += lightSpecular * attenuation * pow(max(dot(viewDir, reflectDir), 0.0), 32.0) * specularColor;
+                resultColor += lightAmbient * diffuseColor;
+                
+                return resultColor;
+            }
+            """;
+
+    public static final String FRAGMENT_SHADER
+            = 
+            """
+            #version 330 core
+            
+            #define ENCODE_OUTPUT OUTPUT_ENCODING
+            
+            uniform sampler2D cubeTexture;
+            uniform sampler2D cubeTextureSpecular;
+            
             uniform bool clouds;
+            """
+            + LIGHTING
+            + """
             
             in vec3 fragPosition;
             in vec3 fragNormal;
@@ -112,28 +174,38 @@ public class CubeProgram {
                 }
                 specularColor.rgb = pow(specularColor.rrr, vec3(2.2));
                 
-                vec3 viewDir = normalize(camPosition - fragPosition);
-                vec3 reflectDir = reflect(lightDirection, fragNormal);
-                
-                vec3 resultColor = vec3(0.0);
-                
-                resultColor += lightDiffuse * max(dot(fragNormal, -lightDirection), 0.0) * textureColor.rgb;
-                resultColor += lightSpecular * pow(max(dot(viewDir, reflectDir), 0.0), 32.0) * specularColor.rgb;
-                resultColor += lightAmbient * textureColor.rgb;
+                vec3 resultColor = shade(fragPosition, fragNormal, textureColor.rgb, specularColor.rgb);
                 
+                //linear, the lights are added together in a srgb framebuffer
+                //otherwise encoded by each pass, as the framebuffer will not do it
+                #if ENCODE_OUTPUT
                 resultColor = pow(resultColor, vec3(1.0/2.2));
+                #endif
                 outputColor = vec4(resultColor, textureColor.a);
             }
             """;
 
-    public static final int SHADER_PROGRAM = ProgramCompiler.compile(VERTEX_SHADER, FRAGMENT_SHADER);
+    //the window framebuffer is queried before any program is compiled
+    public static final Map<String, String> FRAGMENT_SHADER_REPLACEMENTS = new HashMap<>() {
+        {
+            put("OUTPUT_ENCODING", (Main.SRGB_FRAMEBUFFER ? "0" : "1"));
+        }
+    };
+
+    public static final int SHADER_PROGRAM = ProgramCompiler.compile(VERTEX_SHADER, FRAGMENT_SHADER, FRAGMENT_SHADER_REPLACEMENTS);
     public static final int PROJECTION_VIEW_INDEX = glGetUniformLocation(SHADER_PROGRAM, "projectionView");
     public static final int MODEL_INDEX = glGetUniformLocation(SHADER_PROGRAM, "model");
     public static final int NORMAL_MODEL_INDEX = glGetUniformLocation(SHADER_PROGRAM, "normalModel");
+    public static final int WORLD_SPACE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "worldSpace");
     public static final int CUBE_TEXTURE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "cubeTexture");
     public static final int CUBE_TEXTURE_SPECULAR_INDEX = glGetUniformLocation(SHADER_PROGRAM, "cubeTextureSpecular");
 
     public static final int LIGHT_DIRECTION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightDirection");
+    public static final int POINT_LIGHT_INDEX = glGetUniformLocation(SHADER_PROGRAM, "pointLight");
+    public static final int LIGHT_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightPosition");
+    public static final int LIGHT_RANGE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightRange");
+    public static final int SPOT_DIRECTION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "spotDirection");
+    public static final int SPOT_CONE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "spotCone");
     public static final int LIGHT_DIFFUSE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightDiffuse");
     public static final int LIGHT_SPECULAR_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightSpecular");
     public static final int LIGHT_AMBIENT_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightAmbient");
@@ -149,7 +221,7 @@ public class CubeProgram {
         }
     }
 
-    public static void sendPerFrameUniforms(int cubeTexture, int cubeTextureSpecular, Matrix4fc projectionView, Vector3f camPosition, DirectionalLight light) {
+    public static void sendPerFrameUniforms(int cubeTexture, int cubeTextureSpecular, Matrix4fc projectionView, Vector3f camPosition, Light light) {
         sendMatrix(PROJECTION_VIEW_INDEX, projectionView);
         glUniform3f(CAM_POSITION_INDEX, camPosition.x(), camPosition.y(), camPosition.z());
         
@@ -161,10 +233,26 @@ public class CubeProgram {
         glBindTexture(GL_TEXTURE_2D, cubeTextureSpecular);
         glUniform1i(CUBE_TEXTURE_SPECULAR_INDEX, 1);
 
-        glUniform3f(
-                LIGHT_DIRECTION_INDEX,
-                light.getDirection().x(), light.getDirection().y(), light.getDirection().z()
-        );
+        if (light instanceof PointLight point) {
+            glUniform1i(POINT_LIGHT_INDEX, 1);
+            glUniform3f(LIGHT_POSITION_INDEX, point.getPosition().x(), point.getPosition().y(), point.getPosition().z());
+            glUniform1f(LIGHT_RANGE_INDEX, point.getRange());
+            if (light instanceof SpotLight spot) {
+                glUniform3f(SPOT_DIRECTION_INDEX, spot.getDirection().x(), spot.getDirection().y(), spot.getDirection().z());
+                glUniform2f(SPOT_CONE_INDEX,
+                        (float) Math.cos(Math.toRadians(spot.getOuterAngle())),
+                        (float) Math.cos(Math.toRadians(spot.getInnerAngle()))
+                );
+            } else {
+                glUniform2f(SPOT_CONE_INDEX, -1f, -1f);
+            }
+        } else if (light instanceof DirectionalLight directional) {
+            glUniform1i(POINT_LIGHT_INDEX, 0);
+            glUniform3f(
+                    LIGHT_DIRECTION_INDEX,
+                    directional.getDirection().x(), directional.getDirection().y(), directional.getDirection().z()
+            );
+        }
 
         glUniform3f(LIGHT_DIFFUSE_INDEX, 0f, 0f, 0f);
         glUniform3f(LIGHT_SPECULAR_INDEX, 0f, 0f, 0f);
@@ -201,6 +289,13 @@ public class CubeProgram {
             glUniformMatrix3fv(NORMAL_MODEL_INDEX, false, matrixBuffer);
         }
         
+        glUniform1i(WORLD_SPACE_INDEX, 0);
+        glUniform1i(CLOUDS_POSITION_INDEX, (clouds ? 1 : 0));
+    }
+    
+    //for the vertices captured by WorldVertices
+    public static void sendPerDrawUniforms(boolean clouds) {
+        glUniform1i(WORLD_SPACE_INDEX, 1);
         glUniform1i(CLOUDS_POSITION_INDEX, (clouds ? 1 : 0));
     }
 
@@ -0,0 +1,194 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import cientistavuador.shadowvolumeexperiment.cube.light.Light;
+import cientistavuador.shadowvolumeexperiment.cube.light.directional.DirectionalLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.point.PointLight;
+import cientistavuador.shadowvolumeexperiment.util.ProgramCompiler;
+import java.nio.FloatBuffer;
+import org.joml.Matrix3fc;
+import org.joml.Matrix4fc;
+import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryStack;
+
+/**
+ * Shadow volume program for GL_TRIANGLES_ADJACENCY indices, the geometry
+ * shader only emits the quads of the silhouette edges and the caps.
+ *
+ * @author Cien
+ */
+public class CubeShadowVolumeGeometryProgram {
+    public static final String VERTEX_SHADER
+            = 
+            """
+            #version 330 core
+            
+            uniform mat4 model;
+            uniform mat3 normalModel;
+            
+            layout (location = 0) in vec3 vertexPosition;
+            layout (location = 1) in vec3 vertexNormal;
+            
+            out vec3 worldNormal;
+            
+            void main() {
+                vec4 outputPosition = model * vec4(vertexPosition, 1.0);
+                outputPosition /= outputPosition.w;
+                worldNormal = normalize(normalModel * vertexNormal);
+                
+                gl_Position = outputPosition;
+            }
+            """;
+    
+    public static final String GEOMETRY_SHADER
+            =
+            """
+            #version 330 core
+            
+            layout (triangles_adjacency) in;
+            layout (triangle_strip, max_vertices = 15) out;
+            
+            uniform mat4 projectionView;
+            uniform vec3 lightDirection;
+            uniform bool pointLight;
+            uniform vec3 lightPosition;
+            uniform float extrusionDistance;
+            uniform bool caps;
+            
+            in vec3 worldNormal[];
+            
+            //point lights extrude away from the light, in units of the distance to the light
+            vec3 direction(int i) {
+                if (pointLight) {
+                    return gl_in[i].gl_Position.xyz - lightPosition;
+                }
+                return lightDirection;
+            }
+            
+            //same test as the vertex shader of CubeShadowVolumeProgram, a extruded side faces away from the light
+            bool extruded(int i) {
+                return dot(direction(i), worldNormal[i]) > 0;
+            }
+            
+            vec4 extrude(int i) {
+                return projectionView * vec4(gl_in[i].gl_Position.xyz + (direction(i) * extrusionDistance), 1.0);
+            }
+            
+            vec4 project(int i) {
+                return projectionView * gl_in[i].gl_Position;
+            }
+            
+            void main() {
+                bool back = extruded(0);
+                
+                if (caps) {
+                    for (int i = 0; i < 6; i += 2) {
+                        gl_Position = (back ? extrude(i) : project(i));
+                        EmitVertex();
+                    }
+                    EndPrimitive();
+                }
+                
+                if (back) {
+                    return;
+                }
+                
+                //the side facing the light emits the quad, with the same winding as the edge quads
+                for (int i = 0; i < 6; i += 2) {
+                    if (!extruded(i + 1)) {
+                        continue;
+                    }
+                    int a = i;
+                    int b = (i + 2) % 6;
+                    
+                    gl_Position = project(b);
+                    EmitVertex();
+                    gl_Position = project(a);
+                    EmitVertex();
+                    gl_Position = extrude(b);
+                    EmitVertex();
+                    gl_Position = extrude(a);
+                    EmitVertex();
+                    EndPrimitive();
+                }
+            }
+            """;
+
+    public static final String FRAGMENT_SHADER = CubeShadowVolumeProgram.FRAGMENT_SHADER;
+
+    public static final int SHADER_PROGRAM = ProgramCompiler.compile(VERTEX_SHADER, GEOMETRY_SHADER, FRAGMENT_SHADER);
+    public static final int PROJECTION_VIEW_INDEX = glGetUniformLocation(SHADER_PROGRAM, "projectionView");
+    public static final int MODEL_INDEX = glGetUniformLocation(SHADER_PROGRAM, "model");
+    public static final int NORMAL_MODEL_INDEX = glGetUniformLocation(SHADER_PROGRAM, "normalModel");
+    
+    public static final int LIGHT_DIRECTION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightDirection");
+    public static final int POINT_LIGHT_INDEX = glGetUniformLocation(SHADER_PROGRAM, "pointLight");
+    public static final int LIGHT_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightPosition");
+    public static final int EXTRUSION_DISTANCE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "extrusionDistance");
+    public static final int CAPS_INDEX = glGetUniformLocation(SHADER_PROGRAM, "caps");
+    
+    private static void sendMatrix(int location, Matrix4fc matrix) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer matrixBuffer = stack.mallocFloat(4 * 4);
+            matrix.get(matrixBuffer);
+            glUniformMatrix4fv(location, false, matrixBuffer);
+        }
+    }
+
+    public static void sendPerFrameUniforms(Matrix4fc projectionView, Light light) {
+        sendMatrix(PROJECTION_VIEW_INDEX, projectionView);
+        
+        if (light instanceof PointLight point) {
+            glUniform1i(POINT_LIGHT_INDEX, 1);
+            glUniform3f(LIGHT_POSITION_INDEX, point.getPosition().x(), point.getPosition().y(), point.getPosition().z());
+        } else if (light instanceof DirectionalLight directional) {
+            glUniform1i(POINT_LIGHT_INDEX, 0);
+            glUniform3f(
+                    LIGHT_DIRECTION_INDEX,
+                    directional.getDirection().x(), directional.getDirection().y(), directional.getDirection().z()
+            );
+        }
+    }
+
+    public static void sendPerDrawUniforms(Matrix4fc model, Matrix3fc normalModel, float extrusionDistance, boolean caps) {
+        sendMatrix(MODEL_INDEX, model);
+        
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer matrixBuffer = stack.mallocFloat(3 * 3);
+            normalModel.get(matrixBuffer);
+            glUniformMatrix3fv(NORMAL_MODEL_INDEX, false, matrixBuffer);
+        }
+        
+        glUniform1f(EXTRUSION_DISTANCE_INDEX, extrusionDistance);
+        glUniform1i(CAPS_INDEX, (caps ? 1 : 0));
+    }
+
+    private CubeShadowVolumeGeometryProgram() {
+
+    }
+}
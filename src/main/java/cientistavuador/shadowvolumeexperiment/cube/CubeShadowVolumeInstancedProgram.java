@@ -0,0 +1,118 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import cientistavuador.shadowvolumeexperiment.cube.light.Light;
+import cientistavuador.shadowvolumeexperiment.cube.light.directional.DirectionalLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.point.PointLight;
+import cientistavuador.shadowvolumeexperiment.util.ProgramCompiler;
+import java.nio.FloatBuffer;
+import org.joml.Matrix4fc;
+import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryStack;
+
+/**
+ * Instanced version of {@link CubeShadowVolumeProgram}, the matrices and the
+ * extrusion distance are read from the instance attributes of
+ * {@link CubeInstances}.
+ *
+ * @author Cien
+ */
+public class CubeShadowVolumeInstancedProgram {
+    public static final String VERTEX_SHADER
+            = 
+            """
+            #version 330 core
+            
+            uniform mat4 projectionView;
+            
+            uniform vec3 lightDirection;
+            uniform bool pointLight;
+            uniform vec3 lightPosition;
+            
+            layout (location = 0) in vec3 vertexPosition;
+            layout (location = 1) in vec3 vertexNormal;
+            
+            layout (location = 5) in mat4 model;
+            layout (location = 9) in mat3 normalModel;
+            layout (location = 12) in float extrusionDistance;
+            
+            void main() {
+                vec4 outputPosition = model * vec4(vertexPosition, 1.0);
+                outputPosition /= outputPosition.w;
+                vec3 normal = normalize(normalModel * vertexNormal);
+                
+                //point lights extrude away from the light, in units of the distance to the light
+                vec3 direction = lightDirection;
+                if (pointLight) {
+                    direction = outputPosition.xyz - lightPosition;
+                }
+                
+                if (dot(direction, normal) > 0) {
+                    outputPosition.xyz += direction * extrusionDistance;
+                }
+                
+                gl_Position = projectionView * outputPosition;
+            }
+            """;
+
+    public static final String FRAGMENT_SHADER = CubeShadowVolumeProgram.FRAGMENT_SHADER;
+
+    public static final int SHADER_PROGRAM = ProgramCompiler.compile(VERTEX_SHADER, FRAGMENT_SHADER);
+    public static final int PROJECTION_VIEW_INDEX = glGetUniformLocation(SHADER_PROGRAM, "projectionView");
+    
+    public static final int LIGHT_DIRECTION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightDirection");
+    public static final int POINT_LIGHT_INDEX = glGetUniformLocation(SHADER_PROGRAM, "pointLight");
+    public static final int LIGHT_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightPosition");
+    
+    private static void sendMatrix(int location, Matrix4fc matrix) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer matrixBuffer = stack.mallocFloat(4 * 4);
+            matrix.get(matrixBuffer);
+            glUniformMatrix4fv(location, false, matrixBuffer);
+        }
+    }
+
+    public static void sendPerFrameUniforms(Matrix4fc projectionView, Light light) {
+        sendMatrix(PROJECTION_VIEW_INDEX, projectionView);
+        
+        if (light instanceof PointLight point) {
+            glUniform1i(POINT_LIGHT_INDEX, 1);
+            glUniform3f(LIGHT_POSITION_INDEX, point.getPosition().x(), point.getPosition().y(), point.getPosition().z());
+        } else if (light instanceof DirectionalLight directional) {
+            glUniform1i(POINT_LIGHT_INDEX, 0);
+            glUniform3f(
+                    LIGHT_DIRECTION_INDEX,
+                    directional.getDirection().x(), directional.getDirection().y(), directional.getDirection().z()
+            );
+        }
+    }
+
+    private CubeShadowVolumeInstancedProgram() {
+
+    }
+}
@@ -26,7 +26,9 @@
  */
 package cientistavuador.shadowvolumeexperiment.cube;
 
+import cientistavuador.shadowvolumeexperiment.cube.light.Light;
 import cientistavuador.shadowvolumeexperiment.cube.light.directional.DirectionalLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.point.PointLight;
 import cientistavuador.shadowvolumeexperiment.util.ProgramCompiler;
 import java.nio.FloatBuffer;
 import org.joml.Matrix3fc;
@@ -39,6 +41,9 @@ import org.lwjgl.system.MemoryStack;
  * @author Cien
  */
 public class CubeShadowVolumeProgram {
+    //default distance the vertices are moved along the light direction
+    public static final float EXTRUSION_DISTANCE = 500f;
+    
     public static final String VERTEX_SHADER
             = 
             """
@@ -47,19 +52,43 @@ public class CubeShadowVolumeProgram {
             uniform mat4 projectionView;
             uniform mat4 model;
             uniform mat3 normalModel;
+            //the vertices were captured in world space, see WorldVertices
+            uniform bool worldSpace;
             
             uniform vec3 lightDirection;
+            uniform bool pointLight;
+            uniform vec3 lightPosition;
+            uniform float extrusionDistance;
+            //the extrusion distance of each captured cube is read with its draw index, see DrawParameters
+            uniform bool multiDraw;
+            uniform samplerBuffer drawExtrusionDistances;
             
             layout (location = 0) in vec3 vertexPosition;
             layout (location = 1) in vec3 vertexNormal;
+            layout (location = 13) in int vertexDrawIndex;
             
             void main() {
-                vec4 outputPosition = model * vec4(vertexPosition, 1.0);
-                outputPosition /= outputPosition.w;
-                vec3 normal = normalize(normalModel * vertexNormal);
+                vec4 outputPosition = vec4(vertexPosition, 1.0);
+                vec3 normal = vertexNormal;
+                if (!worldSpace) {
+                    outputPosition = model * outputPosition;
+                    outputPosition /= outputPosition.w;
+                    normal = normalize(normalModel * vertexNormal);
+                }
+                
+                //point lights extrude away from the light, in units of the distance to the light
+                vec3 direction = lightDirection;
+                if (pointLight) {
+                    direction = outputPosition.xyz - lightPosition;
+                }
+                
+                float distance = extrusionDistance;
+                if (multiDraw) {
+                    distance = texelFetch(drawExtrusionDistances, vertexDrawIndex).r;
+                }
                 
-                if (dot(lightDirection, normal) > 0) {
-                    outputPosition.xyz += lightDirection * 500.0;
+                if (dot(direction, normal) > 0) {
+                    outputPosition.xyz += direction * distance;
                 }
                 
                 gl_Position = projectionView * outputPosition;
@@ -82,8 +111,14 @@ public class CubeShadowVolumeProgram {
     public static final int PROJECTION_VIEW_INDEX = glGetUniformLocation(SHADER_PROGRAM, "projectionView");
     public static final int MODEL_INDEX = glGetUniformLocation(SHADER_PROGRAM, "model");
     public static final int NORMAL_MODEL_INDEX = glGetUniformLocation(SHADER_PROGRAM, "normalModel");
+    public static final int WORLD_SPACE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "worldSpace");
     
     public static final int LIGHT_DIRECTION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightDirection");
+    public static final int POINT_LIGHT_INDEX = glGetUniformLocation(SHADER_PROGRAM, "pointLight");
+    public static final int LIGHT_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightPosition");
+    public static final int EXTRUSION_DISTANCE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "extrusionDistance");
+    public static final int MULTI_DRAW_INDEX = glGetUniformLocation(SHADER_PROGRAM, "multiDraw");
+    public static final int DRAW_EXTRUSION_DISTANCES_INDEX = glGetUniformLocation(SHADER_PROGRAM, "drawExtrusionDistances");
     
     private static void sendMatrix(int location, Matrix4fc matrix) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
@@ -93,16 +128,22 @@ public class CubeShadowVolumeProgram {
         }
     }
 
-    public static void sendPerFrameUniforms(Matrix4fc projectionView, DirectionalLight light) {
+    public static void sendPerFrameUniforms(Matrix4fc projectionView, Light light) {
         sendMatrix(PROJECTION_VIEW_INDEX, projectionView);
         
-        glUniform3f(
-                LIGHT_DIRECTION_INDEX,
-                light.getDirection().x(), light.getDirection().y(), light.getDirection().z()
-        );
+        if (light instanceof PointLight point) {
+            glUniform1i(POINT_LIGHT_INDEX, 1);
+            glUniform3f(LIGHT_POSITION_INDEX, point.getPosition().x(), point.getPosition().y(), point.getPosition().z());
+        } else if (light instanceof DirectionalLight directional) {
+            glUniform1i(POINT_LIGHT_INDEX, 0);
+            glUniform3f(
+                    LIGHT_DIRECTION_INDEX,
+                    directional.getDirection().x(), directional.getDirection().y(), directional.getDirection().z()
+            );
+        }
     }
 
-    public static void sendPerDrawUniforms(Matrix4fc model, Matrix3fc normalModel) {
+    public static void sendPerDrawUniforms(Matrix4fc model, Matrix3fc normalModel, float extrusionDistance) {
         sendMatrix(MODEL_INDEX, model);
         
         try (MemoryStack stack = MemoryStack.stackPush()) {
@@ -110,6 +151,24 @@ public class CubeShadowVolumeProgram {
             normalModel.get(matrixBuffer);
             glUniformMatrix3fv(NORMAL_MODEL_INDEX, false, matrixBuffer);
         }
+        
+        glUniform1i(WORLD_SPACE_INDEX, 0);
+        glUniform1i(MULTI_DRAW_INDEX, 0);
+        glUniform1f(EXTRUSION_DISTANCE_INDEX, extrusionDistance);
+    }
+    
+    //for the vertices captured by WorldVertices
+    public static void sendPerDrawUniforms(float extrusionDistance) {
+        glUniform1i(WORLD_SPACE_INDEX, 1);
+        glUniform1i(MULTI_DRAW_INDEX, 0);
+        glUniform1f(EXTRUSION_DISTANCE_INDEX, extrusionDistance);
+    }
+    
+    //for a multi draw of the vertices captured by WorldVertices, the DrawParameters texture must be bound to drawParametersUnit
+    public static void sendMultiDrawUniforms(int drawParametersUnit) {
+        glUniform1i(WORLD_SPACE_INDEX, 1);
+        glUniform1i(MULTI_DRAW_INDEX, 1);
+        glUniform1i(DRAW_EXTRUSION_DISTANCES_INDEX, drawParametersUnit);
     }
 
     private CubeShadowVolumeProgram() {
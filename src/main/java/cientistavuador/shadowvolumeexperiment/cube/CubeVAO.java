@@ -26,8 +26,12 @@
  */
 package cientistavuador.shadowvolumeexperiment.cube;
 
-import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeGenerator;
-import static org.lwjgl.opengl.GL33C.*;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeCache;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeMesh;
+import cientistavuador.shadowvolumeexperiment.util.SilhouetteExtractor;
+import cientistavuador.shadowvolumeexperiment.util.VertexWelder;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
 
 /**
  *
@@ -37,57 +41,60 @@ public class CubeVAO {
 
     public static final int VERTEX_SIZE_ELEMENTS = 3 + 3 + 2;
     public static final int VAO;
+    public static final int EBO;
+    public static final int VBO;
+    public static final int CUBE_VERTEX_COUNT;
+    public static final int CUBE_BASE_VERTEX;
     public static final int CUBE_COUNT;
     public static final int CUBE_OFFSET;
     public static final int CUBE_SHADOW_VOLUME_COUNT;
     public static final int CUBE_SHADOW_VOLUME_OFFSET;
+    public static final int CUBE_SHADOW_VOLUME_CAPS_COUNT;
+    public static final int CUBE_SHADOW_VOLUME_ADJACENCY_COUNT;
+    public static final int CUBE_SHADOW_VOLUME_ADJACENCY_OFFSET;
+    public static final Vector3fc CUBE_MIN;
+    public static final Vector3fc CUBE_MAX;
+    public static final SilhouetteCache SILHOUETTE_CACHE;
 
     static {
-        VAO = glGenVertexArrays();
-        glBindVertexArray(VAO);
-        
         VerticesStream stream = generateVertices();
         
-        float[] vertices = stream.vertices();
+        ShadowVolumeMesh shadowMesh = ShadowVolumeCache.get(stream.vertices(), VERTEX_SIZE_ELEMENTS, stream.indices(), VertexWelder.DEFAULT_EPSILON);
         
-        int[] indices = stream.indices();
-        int[] volumeIndices = ShadowVolumeGenerator.generateShadowVolumeIndices(vertices, VERTEX_SIZE_ELEMENTS, indices);
+        float[] vertices = shadowMesh.getVertices();
         
-        CUBE_COUNT = indices.length;
-        CUBE_OFFSET = 0;
-        CUBE_SHADOW_VOLUME_COUNT = volumeIndices.length;
-        CUBE_SHADOW_VOLUME_OFFSET = indices.length * Integer.BYTES;
+        int[] indices = shadowMesh.getIndices();
+        System.out.println("CubeVAO: " + shadowMesh.report());
+        int[] volumeIndices = shadowMesh.getVolumeIndices();
+        int[] adjacencyIndices = shadowMesh.getAdjacencyIndices();
         
-        int[] mixedIndices = new int[indices.length + volumeIndices.length];
+        int[] mixedIndices = new int[indices.length + volumeIndices.length + adjacencyIndices.length];
         System.arraycopy(indices, 0, mixedIndices, 0, indices.length);
         System.arraycopy(volumeIndices, 0, mixedIndices, indices.length, volumeIndices.length);
-
-        int ebo = glGenBuffers();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, mixedIndices, GL_STATIC_DRAW);
-
-        int vbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
-
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, VERTEX_SIZE_ELEMENTS * Float.BYTES, 0);
-
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(1, 3, GL_FLOAT, false, VERTEX_SIZE_ELEMENTS * Float.BYTES, (3) * Float.BYTES);
-
-        glEnableVertexAttribArray(2);
-        glVertexAttribPointer(2, 2, GL_FLOAT, false, VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3) * Float.BYTES);
-
-        glEnableVertexAttribArray(3);
-        glVertexAttribPointer(3, 2, GL_FLOAT, false, VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3 + 2) * Float.BYTES);
-
-        glEnableVertexAttribArray(4);
-        glVertexAttribPointer(4, 2, GL_FLOAT, false, VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3 + 2 + 2) * Float.BYTES);
-
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-
-        glBindVertexArray(0);
+        System.arraycopy(adjacencyIndices, 0, mixedIndices, indices.length + volumeIndices.length, adjacencyIndices.length);
+        
+        MeshArena.Mesh arenaMesh = MeshArena.add(vertices, mixedIndices);
+        VAO = MeshArena.VAO;
+        EBO = MeshArena.EBO;
+        VBO = MeshArena.POSITION_VBO;
+        
+        CUBE_VERTEX_COUNT = arenaMesh.getVertexCount();
+        CUBE_BASE_VERTEX = arenaMesh.getBaseVertex();
+        CUBE_COUNT = indices.length;
+        CUBE_OFFSET = arenaMesh.getIndexOffset();
+        CUBE_SHADOW_VOLUME_COUNT = volumeIndices.length;
+        CUBE_SHADOW_VOLUME_OFFSET = arenaMesh.getIndexOffset() + (indices.length * Integer.BYTES);
+        CUBE_SHADOW_VOLUME_CAPS_COUNT = shadowMesh.getCapsCount();
+        CUBE_SHADOW_VOLUME_ADJACENCY_COUNT = adjacencyIndices.length;
+        CUBE_SHADOW_VOLUME_ADJACENCY_OFFSET = arenaMesh.getIndexOffset() + ((indices.length + volumeIndices.length) * Integer.BYTES);
+        
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+        shadowMesh.computeBounds(VERTEX_SIZE_ELEMENTS, min, max);
+        CUBE_MIN = min;
+        CUBE_MAX = max;
+        
+        SILHOUETTE_CACHE = new SilhouetteCache(SilhouetteExtractor.build(vertices, VERTEX_SIZE_ELEMENTS, indices, shadowMesh.getEdgeIndices()), VBO, CUBE_BASE_VERTEX);
     }
 
     private static VerticesStream generateVertices() {
@@ -0,0 +1,89 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import java.nio.FloatBuffer;
+import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Per draw data of the multi draws, one float per captured cube in a buffer
+ * texture indexed by the draw index of {@link WorldVertices}.
+ * <p>
+ * Gl 3.3 has no draw id, so the vertex shader finds the data of its draw
+ * through the draw index stored in the captured vertices.
+ *
+ * @author Cien
+ */
+public class DrawParameters {
+
+    public static final int INITIAL_CAPACITY = 256;
+
+    public static final int VBO;
+    public static final int TEXTURE;
+
+    static {
+        VBO = glGenBuffers();
+        glBindBuffer(GL_TEXTURE_BUFFER, VBO);
+        glBufferData(GL_TEXTURE_BUFFER, ((long) INITIAL_CAPACITY) * Float.BYTES, GL_STREAM_DRAW);
+        glBindBuffer(GL_TEXTURE_BUFFER, 0);
+
+        TEXTURE = glGenTextures();
+        glBindTexture(GL_TEXTURE_BUFFER, TEXTURE);
+        glTexBuffer(GL_TEXTURE_BUFFER, GL_R32F, VBO);
+        glBindTexture(GL_TEXTURE_BUFFER, 0);
+    }
+
+    private static FloatBuffer parameters = MemoryUtil.memAllocFloat(INITIAL_CAPACITY);
+
+    //the value of draws that are not set is undefined
+    public static void set(int drawIndex, float value) {
+        if (drawIndex >= parameters.capacity()) {
+            int newCapacity = parameters.capacity();
+            while (newCapacity <= drawIndex) {
+                newCapacity *= 2;
+            }
+            parameters = MemoryUtil.memRealloc(parameters, newCapacity);
+        }
+        parameters.put(drawIndex, value);
+    }
+
+    //replaces the storage of the buffer with the first count parameters
+    public static void upload(int count) {
+        parameters.position(0).limit(Math.min(count, parameters.capacity()));
+
+        glBindBuffer(GL_TEXTURE_BUFFER, VBO);
+        glBufferData(GL_TEXTURE_BUFFER, parameters, GL_STREAM_DRAW);
+        glBindBuffer(GL_TEXTURE_BUFFER, 0);
+
+        parameters.clear();
+    }
+
+    private DrawParameters() {
+
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import cientistavuador.shadowvolumeexperiment.Main;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeBuilder;
+
+/**
+ * A range of the {@link MeshArena} written by a {@link ShadowVolumeBuilder},
+ * only the vertices and the indices changed since the last upload are
+ * written to the arena buffers.
+ * <p>
+ * When the builder outgrows the range, a range with the new size of the
+ * builder is reserved and written in full, the old one is left unused.
+ *
+ * @author Cien
+ */
+public class EditableMesh {
+
+    private final ShadowVolumeBuilder builder;
+    private MeshArena.Mesh mesh = null;
+    private long uploadedBytes = 0;
+
+    private final ShadowVolumeBuilder.RangeConsumer vertexUpload = this::uploadVertices;
+    private final ShadowVolumeBuilder.RangeConsumer indexUpload = this::uploadIndices;
+    private final ShadowVolumeBuilder.RangeConsumer discard = (offset, count) -> {
+    };
+
+    public EditableMesh(ShadowVolumeBuilder builder) {
+        if (builder.getVertexSize() != CubeVAO.VERTEX_SIZE_ELEMENTS) {
+            throw new IllegalArgumentException("The vertices must use the layout of CubeVAO.");
+        }
+        this.builder = builder;
+    }
+
+    public ShadowVolumeBuilder getBuilder() {
+        return builder;
+    }
+
+    private void uploadVertices(int offset, int count) {
+        MeshArena.updateVertices(this.mesh, offset, this.builder.getVertices(), offset, count);
+        this.uploadedBytes += ((long) count) * MeshArena.VERTEX_FORMAT.getVertexSize();
+    }
+
+    private void uploadIndices(int offset, int count) {
+        MeshArena.updateIndices(this.mesh, offset, this.builder.getIndices(), offset, count);
+        this.uploadedBytes += ((long) count) * Integer.BYTES;
+    }
+
+    //call after editing the builder and before drawing, returns the number of bytes written to the arena
+    public long upload() {
+        this.uploadedBytes = 0;
+        int[] indices = this.builder.getIndices();
+        if (this.mesh == null
+                || this.builder.getVertexCapacity() > this.mesh.getVertexCount()
+                || indices.length > this.mesh.getIndexCount()) {
+            this.mesh = MeshArena.reserve(this.builder.getVertexCapacity(), indices.length);
+            this.builder.flush(this.discard, this.discard);
+            uploadVertices(0, this.builder.getNumberOfVertices());
+            uploadIndices(0, indices.length);
+        } else {
+            this.builder.flush(this.vertexUpload, this.indexUpload);
+        }
+        Main.NUMBER_OF_PATCHED_BYTES += this.uploadedBytes;
+        return this.uploadedBytes;
+    }
+
+    //bytes of the arena range in use
+    public long getSize() {
+        if (this.mesh == null) {
+            return 0;
+        }
+        return (((long) this.mesh.getVertexCount()) * MeshArena.VERTEX_FORMAT.getVertexSize())
+                + (((long) this.mesh.getIndexCount()) * Integer.BYTES);
+    }
+
+    public int getVertexCount() {
+        return this.builder.getNumberOfVertices();
+    }
+
+    public int getBaseVertex() {
+        return this.mesh.getBaseVertex();
+    }
+
+    public int getCount() {
+        return this.builder.getCount();
+    }
+
+    public int getOffset() {
+        return this.mesh.getIndexOffset();
+    }
+
+    public int getShadowVolumeCount() {
+        return this.builder.getVolumeCount();
+    }
+
+    public int getShadowVolumeOffset() {
+        return this.mesh.getIndexOffset();
+    }
+
+    public int getShadowVolumeCapsCount() {
+        return this.builder.getCapsCount();
+    }
+
+    public int getShadowVolumeAdjacencyCount() {
+        return this.builder.getAdjacencyCount();
+    }
+
+    public int getShadowVolumeAdjacencyOffset() {
+        return this.mesh.getIndexOffset() + (this.builder.getAdjacencyOffset() * Integer.BYTES);
+    }
+
+}
@@ -0,0 +1,289 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import cientistavuador.shadowvolumeexperiment.Main;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Vertex buffers and one index buffer shared by every mesh.
+ * <p>
+ * The indices of a mesh are relative to its first vertex, so a mesh is drawn
+ * with the base vertex variants of the draw calls. The buffers grow in
+ * place, their names and the vaos never change. The vertices are stored in
+ * the {@link VertexFormat} of Main, as a position stream and an attribute
+ * stream in their own buffers. VAO reads both streams and POSITION_VAO only
+ * the position stream, for the passes that do not shade.
+ * <p>
+ * A mesh that changes after it is added reserves its range and writes parts
+ * of it with the update methods, ranges are never freed.
+ *
+ * @author Cien
+ */
+public class MeshArena {
+
+    public static final int INITIAL_VERTEX_CAPACITY = 65536;
+    public static final int INITIAL_INDEX_CAPACITY = 262144;
+    public static final VertexFormat VERTEX_FORMAT = Main.VERTEX_FORMAT;
+
+    //a range of the arena owned by a mesh
+    public static class Mesh {
+
+        private final int baseVertex;
+        private final int vertexCount;
+        private final int indexOffset;
+        private final int indexCount;
+
+        private Mesh(int baseVertex, int vertexCount, int indexOffset, int indexCount) {
+            this.baseVertex = baseVertex;
+            this.vertexCount = vertexCount;
+            this.indexOffset = indexOffset;
+            this.indexCount = indexCount;
+        }
+
+        public int getBaseVertex() {
+            return baseVertex;
+        }
+
+        public int getVertexCount() {
+            return vertexCount;
+        }
+
+        //in bytes
+        public int getIndexOffset() {
+            return indexOffset;
+        }
+
+        public int getIndexCount() {
+            return indexCount;
+        }
+    }
+
+    public static final int VAO;
+    public static final int POSITION_VAO;
+    public static final int POSITION_VBO;
+    public static final int ATTRIBUTE_VBO;
+    public static final int EBO;
+
+    private static int vertexCapacity = INITIAL_VERTEX_CAPACITY;
+    private static int indexCapacity = INITIAL_INDEX_CAPACITY;
+    private static int numberOfVertices = 0;
+    private static int numberOfIndices = 0;
+
+    static {
+        POSITION_VBO = glGenBuffers();
+        glBindBuffer(GL_COPY_WRITE_BUFFER, POSITION_VBO);
+        glBufferData(GL_COPY_WRITE_BUFFER, positionBytes(vertexCapacity), GL_STATIC_DRAW);
+
+        ATTRIBUTE_VBO = glGenBuffers();
+        glBindBuffer(GL_COPY_WRITE_BUFFER, ATTRIBUTE_VBO);
+        glBufferData(GL_COPY_WRITE_BUFFER, attributeBytes(vertexCapacity), GL_STATIC_DRAW);
+
+        EBO = glGenBuffers();
+        glBindBuffer(GL_COPY_WRITE_BUFFER, EBO);
+        glBufferData(GL_COPY_WRITE_BUFFER, indexBytes(indexCapacity), GL_STATIC_DRAW);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+
+        VAO = glGenVertexArrays();
+        glBindVertexArray(VAO);
+
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, EBO);
+
+        VERTEX_FORMAT.setupPositionStream(POSITION_VBO);
+        VERTEX_FORMAT.setupAttributeStream(ATTRIBUTE_VBO);
+
+        CubeInstances.setupVertexArray();
+
+        glBindVertexArray(0);
+
+        POSITION_VAO = glGenVertexArrays();
+        glBindVertexArray(POSITION_VAO);
+
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, EBO);
+
+        VERTEX_FORMAT.setupPositionStream(POSITION_VBO);
+
+        CubeInstances.setupVertexArray();
+
+        glBindVertexArray(0);
+    }
+
+    private static long positionBytes(int vertices) {
+        return ((long) vertices) * VERTEX_FORMAT.getPositionSize();
+    }
+
+    private static long attributeBytes(int vertices) {
+        return ((long) vertices) * VERTEX_FORMAT.getAttributeSize();
+    }
+
+    private static long indexBytes(int indices) {
+        return ((long) indices) * Integer.BYTES;
+    }
+
+    //reallocates the storage of the buffer keeping its name and its first usedBytes
+    private static void grow(int buffer, long usedBytes, long newBytes) {
+        int copy = glGenBuffers();
+        glBindBuffer(GL_COPY_WRITE_BUFFER, copy);
+        glBufferData(GL_COPY_WRITE_BUFFER, usedBytes, GL_STREAM_COPY);
+        glBindBuffer(GL_COPY_READ_BUFFER, buffer);
+        glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, 0, 0, usedBytes);
+
+        glBufferData(GL_COPY_READ_BUFFER, newBytes, GL_STATIC_DRAW);
+        glCopyBufferSubData(GL_COPY_WRITE_BUFFER, GL_COPY_READ_BUFFER, 0, 0, usedBytes);
+
+        glBindBuffer(GL_COPY_READ_BUFFER, 0);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        glDeleteBuffers(copy);
+    }
+
+    private static void ensureCapacity(int vertexCount, int indexCount) {
+        if ((numberOfVertices + vertexCount) > vertexCapacity) {
+            int newCapacity = vertexCapacity;
+            while (newCapacity < (numberOfVertices + vertexCount)) {
+                newCapacity *= 2;
+            }
+            grow(POSITION_VBO, positionBytes(numberOfVertices), positionBytes(newCapacity));
+            grow(ATTRIBUTE_VBO, attributeBytes(numberOfVertices), attributeBytes(newCapacity));
+            vertexCapacity = newCapacity;
+        }
+        if ((numberOfIndices + indexCount) > indexCapacity) {
+            int newCapacity = indexCapacity;
+            while (newCapacity < (numberOfIndices + indexCount)) {
+                newCapacity *= 2;
+            }
+            grow(EBO, indexBytes(numberOfIndices), indexBytes(newCapacity));
+            indexCapacity = newCapacity;
+        }
+    }
+
+    //the copy target is not part of the vao state, so the bound vao is never changed
+    private static void writeVertices(int firstVertex, float[] vertices) {
+        int vertexCount = vertices.length / CubeVAO.VERTEX_SIZE_ELEMENTS;
+
+        ByteBuffer positions = MemoryUtil.memAlloc((int) positionBytes(vertexCount));
+        ByteBuffer attributes = MemoryUtil.memAlloc((int) attributeBytes(vertexCount));
+        try {
+            VERTEX_FORMAT.pack(vertices, positions, attributes);
+            positions.flip();
+            attributes.flip();
+
+            glBindBuffer(GL_COPY_WRITE_BUFFER, POSITION_VBO);
+            glBufferSubData(GL_COPY_WRITE_BUFFER, positionBytes(firstVertex), positions);
+            glBindBuffer(GL_COPY_WRITE_BUFFER, ATTRIBUTE_VBO);
+            glBufferSubData(GL_COPY_WRITE_BUFFER, attributeBytes(firstVertex), attributes);
+            glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        } finally {
+            MemoryUtil.memFree(positions);
+            MemoryUtil.memFree(attributes);
+        }
+    }
+
+    private static Mesh allocate(int vertexCount, int indexCount) {
+        ensureCapacity(vertexCount, indexCount);
+
+        Mesh mesh = new Mesh(numberOfVertices, vertexCount, numberOfIndices * Integer.BYTES, indexCount);
+
+        numberOfVertices += vertexCount;
+        numberOfIndices += indexCount;
+
+        return mesh;
+    }
+
+    //the vertices must use the float layout of CubeVAO and are converted to the vertex format, the indices are relative to the first vertex
+    public static Mesh add(float[] vertices, int[] indices) {
+        Mesh mesh = allocate(vertices.length / CubeVAO.VERTEX_SIZE_ELEMENTS, indices.length);
+
+        writeVertices(mesh.getBaseVertex(), vertices);
+        updateIndices(mesh, 0, indices, 0, indices.length);
+
+        return mesh;
+    }
+
+    //a range written later by the update methods, its contents are undefined until then
+    public static Mesh reserve(int vertexCount, int indexCount) {
+        return allocate(vertexCount, indexCount);
+    }
+
+    private static void checkRange(int first, int count, int size) {
+        if (first < 0 || count < 0 || (first + count) > size) {
+            throw new IllegalArgumentException("Range " + first + " to " + (first + count) + " is out of the mesh range of " + size + ".");
+        }
+    }
+
+    //writes count vertices of the array, starting at the vertex offset, to the vertex first of the mesh
+    //the vertices must use the float layout of CubeVAO
+    public static void updateVertices(Mesh mesh, int first, float[] vertices, int offset, int count) {
+        checkRange(first, count, mesh.getVertexCount());
+        if (count == 0) {
+            return;
+        }
+        int start = offset * CubeVAO.VERTEX_SIZE_ELEMENTS;
+        int end = (offset + count) * CubeVAO.VERTEX_SIZE_ELEMENTS;
+        if (start != 0 || end != vertices.length) {
+            vertices = Arrays.copyOfRange(vertices, start, end);
+        }
+        writeVertices(mesh.getBaseVertex() + first, vertices);
+    }
+
+    //writes count indices of the array, starting at offset, to the index first of the mesh
+    public static void updateIndices(Mesh mesh, int first, int[] indices, int offset, int count) {
+        checkRange(first, count, mesh.getIndexCount());
+        if (count == 0) {
+            return;
+        }
+        long byteOffset = mesh.getIndexOffset() + indexBytes(first);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, EBO);
+        if (offset == 0 && count == indices.length) {
+            glBufferSubData(GL_COPY_WRITE_BUFFER, byteOffset, indices);
+        } else {
+            IntBuffer buffer = MemoryUtil.memAllocInt(count);
+            try {
+                buffer.put(indices, offset, count).flip();
+                glBufferSubData(GL_COPY_WRITE_BUFFER, byteOffset, buffer);
+            } finally {
+                MemoryUtil.memFree(buffer);
+            }
+        }
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+    }
+
+    public static int getNumberOfVertices() {
+        return numberOfVertices;
+    }
+
+    public static int getNumberOfIndices() {
+        return numberOfIndices;
+    }
+
+    private MeshArena() {
+
+    }
+}
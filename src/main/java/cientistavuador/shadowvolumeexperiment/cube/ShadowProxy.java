@@ -0,0 +1,128 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeCache;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeMesh;
+import cientistavuador.shadowvolumeexperiment.util.SilhouetteExtractor;
+import cientistavuador.shadowvolumeexperiment.util.VertexWelder;
+import java.util.Map;
+
+/**
+ * Shadow volume of a low detail proxy mesh, drawn instead of the shadow
+ * volume of the render mesh.
+ *
+ * @author Cien
+ */
+public class ShadowProxy {
+
+    private final int vao;
+    private final int vbo;
+    private final int baseVertex;
+    private final int numberOfTriangles;
+    private final int shadowVolumeCount;
+    private final int shadowVolumeOffset;
+    private final int shadowVolumeCapsCount;
+    private final int shadowVolumeAdjacencyCount;
+    private final int shadowVolumeAdjacencyOffset;
+    private final SilhouetteCache silhouetteCache;
+
+    //proxy is the output of ShadowProxyGenerator.generate
+    public ShadowProxy(String name, Map.Entry<float[], int[]> proxy, int renderTriangles) {
+        ShadowVolumeMesh shadowMesh = ShadowVolumeCache.get(proxy.getKey(), CubeVAO.VERTEX_SIZE_ELEMENTS, proxy.getValue(), VertexWelder.DEFAULT_EPSILON);
+
+        float[] vertices = shadowMesh.getVertices();
+        int[] indices = shadowMesh.getIndices();
+        int[] volumeIndices = shadowMesh.getVolumeIndices();
+        int[] adjacencyIndices = shadowMesh.getAdjacencyIndices();
+
+        this.numberOfTriangles = indices.length / 3;
+        System.out.println(name + ": shadow proxy " + this.numberOfTriangles + " triangles vs " + renderTriangles
+                + " (" + String.format("%.1f", renderTriangles / ((double) Math.max(this.numberOfTriangles, 1))) + "x fewer), "
+                + volumeIndices.length + " shadow volume indices, " + shadowMesh.getOpenEdges() + " open edges");
+
+        int[] mixedIndices = new int[volumeIndices.length + adjacencyIndices.length];
+        System.arraycopy(volumeIndices, 0, mixedIndices, 0, volumeIndices.length);
+        System.arraycopy(adjacencyIndices, 0, mixedIndices, volumeIndices.length, adjacencyIndices.length);
+
+        MeshArena.Mesh arenaMesh = MeshArena.add(vertices, mixedIndices);
+        //proxies are only drawn by the shadow volume passes
+        this.vao = MeshArena.POSITION_VAO;
+        this.vbo = MeshArena.POSITION_VBO;
+        this.baseVertex = arenaMesh.getBaseVertex();
+
+        this.shadowVolumeCount = volumeIndices.length;
+        this.shadowVolumeOffset = arenaMesh.getIndexOffset();
+        this.shadowVolumeCapsCount = shadowMesh.getCapsCount();
+        this.shadowVolumeAdjacencyCount = adjacencyIndices.length;
+        this.shadowVolumeAdjacencyOffset = arenaMesh.getIndexOffset() + (volumeIndices.length * Integer.BYTES);
+
+        this.silhouetteCache = new SilhouetteCache(SilhouetteExtractor.build(vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, indices, shadowMesh.getEdgeIndices()), this.vbo, this.baseVertex);
+    }
+
+    public int getVAO() {
+        return vao;
+    }
+
+    public int getVBO() {
+        return vbo;
+    }
+
+    //the indices are relative to this vertex, see MeshArena
+    public int getBaseVertex() {
+        return baseVertex;
+    }
+
+    public int getNumberOfTriangles() {
+        return numberOfTriangles;
+    }
+
+    public int getShadowVolumeCount() {
+        return shadowVolumeCount;
+    }
+
+    public int getShadowVolumeOffset() {
+        return shadowVolumeOffset;
+    }
+
+    public int getShadowVolumeCapsCount() {
+        return shadowVolumeCapsCount;
+    }
+
+    public int getShadowVolumeAdjacencyCount() {
+        return shadowVolumeAdjacencyCount;
+    }
+
+    public int getShadowVolumeAdjacencyOffset() {
+        return shadowVolumeAdjacencyOffset;
+    }
+
+    public SilhouetteCache getSilhouetteCache() {
+        return silhouetteCache;
+    }
+
+}
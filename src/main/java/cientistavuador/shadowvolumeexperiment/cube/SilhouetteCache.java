@@ -0,0 +1,180 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import cientistavuador.shadowvolumeexperiment.util.SilhouetteExtractor;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Silhouette shadow volume indices of a mesh streamed into a dynamic index
+ * buffer, cached by the quantized object space light direction.
+ *
+ * @author Cien
+ */
+public class SilhouetteCache {
+
+    public static final int QUANTIZATION = 256;
+    //max distance between a normalized direction and its quantized direction, plus the error of the packed normals the gpu reads
+    public static final float TOLERANCE = (float) (Math.sqrt(3.0) / (2.0 * QUANTIZATION)) + 0.0005f + MeshArena.VERTEX_FORMAT.getNormalError();
+    public static final int MIN_CAPACITY = 65536;
+
+    public static int NUMBER_OF_HITS = 0;
+    public static int NUMBER_OF_MISSES = 0;
+
+    private static class Entry {
+
+        private final long offset;
+        private final int count;
+
+        public Entry(long offset, int count) {
+            this.offset = offset;
+            this.count = count;
+        }
+    }
+
+    private final SilhouetteExtractor extractor;
+    private final int vao;
+    private final int ebo;
+    private final int baseVertex;
+    private final Map<Long, Entry> cache = new HashMap<>();
+
+    private int capacity;
+    private int written = 0;
+    private int[] scratch;
+    private IntBuffer uploadBuffer;
+
+    private long lastOffset = 0;
+    private int lastCount = 0;
+
+    //vbo must be the position stream of MeshArena, the indices of the extractor are relative to baseVertex
+    public SilhouetteCache(SilhouetteExtractor extractor, int vbo, int baseVertex) {
+        this.extractor = extractor;
+        this.baseVertex = baseVertex;
+        this.scratch = new int[extractor.maxIndices()];
+        this.uploadBuffer = MemoryUtil.memAllocInt(extractor.maxIndices());
+        this.capacity = Math.max(MIN_CAPACITY, extractor.maxIndices() * 16);
+
+        this.vao = glGenVertexArrays();
+        glBindVertexArray(this.vao);
+
+        this.ebo = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, this.ebo);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, ((long) this.capacity) * Integer.BYTES, GL_DYNAMIC_DRAW);
+
+        MeshArena.VERTEX_FORMAT.setupPositionStream(vbo);
+
+        glBindVertexArray(0);
+    }
+
+    public SilhouetteExtractor getExtractor() {
+        return extractor;
+    }
+
+    public int getVAO() {
+        return vao;
+    }
+
+    public int getBaseVertex() {
+        return baseVertex;
+    }
+
+    private static int quantize(float f) {
+        return Math.round(f * QUANTIZATION);
+    }
+
+    //prepares the indices for the object space light direction, the result is in getOffset and getCount
+    public void update(float dX, float dY, float dZ) {
+        float length = (float) Math.sqrt((dX * dX) + (dY * dY) + (dZ * dZ));
+        if (length != 0f) {
+            dX /= length;
+            dY /= length;
+            dZ /= length;
+        }
+
+        int qX = quantize(dX);
+        int qY = quantize(dY);
+        int qZ = quantize(dZ);
+
+        long key = ((qX & 0xFFFFL) << 32) | ((qY & 0xFFFFL) << 16) | (qZ & 0xFFFFL);
+
+        Entry entry = this.cache.get(key);
+        if (entry != null) {
+            NUMBER_OF_HITS++;
+            this.lastOffset = entry.offset;
+            this.lastCount = entry.count;
+            return;
+        }
+        NUMBER_OF_MISSES++;
+
+        int count = this.extractor.extract(
+                qX / ((float) QUANTIZATION),
+                qY / ((float) QUANTIZATION),
+                qZ / ((float) QUANTIZATION),
+                TOLERANCE,
+                this.scratch, 0
+        );
+
+        //the element array binding belongs to the vao
+        glBindVertexArray(this.vao);
+        if ((this.written + count) > this.capacity) {
+            //full, forget everything and orphan the old storage
+            this.cache.clear();
+            this.written = 0;
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, ((long) this.capacity) * Integer.BYTES, GL_DYNAMIC_DRAW);
+        }
+
+        this.uploadBuffer.clear();
+        this.uploadBuffer.put(this.scratch, 0, count).flip();
+        long offset = ((long) this.written) * Integer.BYTES;
+        glBufferSubData(GL_ELEMENT_ARRAY_BUFFER, offset, this.uploadBuffer);
+        glBindVertexArray(0);
+
+        this.written += count;
+        this.cache.put(key, new Entry(offset, count));
+
+        this.lastOffset = offset;
+        this.lastCount = count;
+    }
+
+    //the caps are written before the silhouette quads
+    public int getCapsCount() {
+        return this.extractor.getCapsCount();
+    }
+
+    public long getOffset() {
+        return lastOffset;
+    }
+
+    public int getCount() {
+        return lastCount;
+    }
+
+}
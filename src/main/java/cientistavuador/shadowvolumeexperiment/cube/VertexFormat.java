@@ -0,0 +1,230 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * Layout of the vertices in the gpu, the meshes are always built with the
+ * float layout of CubeVAO and converted when uploaded to the MeshArena.
+ * <p>
+ * A vertex is split in two streams, the position stream has the position and
+ * the normal, the only attributes the shadow volume passes read, and the
+ * attribute stream has the rest.
+ * <p>
+ * The packed layouts store the normal as a normalized
+ * {@code GL_INT_2_10_10_10_REV} and the texture coordinates as unorm16, a
+ * missing (nan) texture coordinate is stored as 1.0, which the vertex shaders
+ * turn back into nan.
+ *
+ * @author Cien
+ */
+public enum VertexFormat {
+    //3 floats position and 3 floats normal (24 bytes), 2 floats texture (8 bytes)
+    FLOAT("Float", (3 + 3) * Float.BYTES, 2 * Float.BYTES, false, false),
+    //3 floats position and packed normal (16 bytes), unorm16 texture (4 bytes)
+    PACKED("Packed", (3 * Float.BYTES) + Integer.BYTES, 2 * Short.BYTES, false, true),
+    //4 halfs position, the last one is padding, and packed normal (12 bytes), unorm16 texture (4 bytes)
+    PACKED_HALF("Packed Half", (4 * Short.BYTES) + Integer.BYTES, 2 * Short.BYTES, true, true);
+
+    private final String displayName;
+    private final int positionSize;
+    private final int attributeSize;
+    private final boolean halfPositions;
+    private final boolean packedAttributes;
+
+    private VertexFormat(String displayName, int positionSize, int attributeSize, boolean halfPositions, boolean packedAttributes) {
+        this.displayName = displayName;
+        this.positionSize = positionSize;
+        this.attributeSize = attributeSize;
+        this.halfPositions = halfPositions;
+        this.packedAttributes = packedAttributes;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    //in bytes, of the position stream
+    public int getPositionSize() {
+        return positionSize;
+    }
+
+    //in bytes, of the attribute stream
+    public int getAttributeSize() {
+        return attributeSize;
+    }
+
+    //in bytes, of both streams
+    public int getVertexSize() {
+        return this.positionSize + this.attributeSize;
+    }
+
+    //max difference between the dot product of a direction with a normal and with the packed normal
+    //a component is rounded by up to 0.5/511 and gl 3.3 may decode it with (2c+1)/1023 instead of c/511
+    public float getNormalError() {
+        if (!this.packedAttributes) {
+            return 0f;
+        }
+        return (float) (Math.sqrt(3.0) / 511.0);
+    }
+
+    //must be called with the vao bound, sets the locations 0 and 1 reading the position stream in vbo
+    public void setupPositionStream(int vbo) {
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+
+        if (!this.packedAttributes) {
+            glEnableVertexAttribArray(0);
+            glVertexAttribPointer(0, 3, GL_FLOAT, false, this.positionSize, 0);
+
+            glEnableVertexAttribArray(1);
+            glVertexAttribPointer(1, 3, GL_FLOAT, false, this.positionSize, (3) * Float.BYTES);
+        } else {
+            int normalOffset = (this.halfPositions ? 4 * Short.BYTES : 3 * Float.BYTES);
+
+            glEnableVertexAttribArray(0);
+            glVertexAttribPointer(0, 3, (this.halfPositions ? GL_HALF_FLOAT : GL_FLOAT), false, this.positionSize, 0);
+
+            glEnableVertexAttribArray(1);
+            glVertexAttribPointer(1, 4, GL_INT_2_10_10_10_REV, true, this.positionSize, normalOffset);
+        }
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    //must be called with the vao bound, sets the location 2 reading the attribute stream in vbo
+    public void setupAttributeStream(int vbo) {
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+
+        glEnableVertexAttribArray(2);
+        if (!this.packedAttributes) {
+            glVertexAttribPointer(2, 2, GL_FLOAT, false, this.attributeSize, 0);
+        } else {
+            glVertexAttribPointer(2, 2, GL_UNSIGNED_SHORT, true, this.attributeSize, 0);
+        }
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    //round to nearest even, values out of the half range become infinity
+    private static short toHalf(float f) {
+        int bits = Float.floatToRawIntBits(f);
+        int sign = (bits >>> 16) & 0x8000;
+        int floatExponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+
+        if (floatExponent == 0xFF) {
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x0200 : 0));
+        }
+
+        int exponent = floatExponent - 127 + 15;
+        if (exponent >= 31) {
+            return (short) (sign | 0x7C00);
+        }
+
+        if (exponent <= 0) {
+            //subnormal half
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >>> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+
+        //a carry out of the mantissa correctly moves to the next exponent
+        int half = (exponent << 10) | (mantissa >>> 13);
+        int remainder = mantissa & 0x1FFF;
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    private static int toSnorm10(float f) {
+        return Math.round(Math.max(-1f, Math.min(1f, f)) * 511f) & 0x3FF;
+    }
+
+    private static short toUnorm16(float f) {
+        if (Float.isNaN(f)) {
+            return (short) 0xFFFF;
+        }
+        //1.0 is reserved for nan
+        return (short) Math.round(Math.max(0f, Math.min(65534f / 65535f, f)) * 65535f);
+    }
+
+    //vertices must use the float layout of CubeVAO, the streams are written at the position of their buffers
+    public void pack(float[] vertices, ByteBuffer positionOutput, ByteBuffer attributeOutput) {
+        ByteBuffer positions = positionOutput.slice().order(ByteOrder.nativeOrder());
+        ByteBuffer attributes = attributeOutput.slice().order(ByteOrder.nativeOrder());
+        int numberOfVertices = vertices.length / CubeVAO.VERTEX_SIZE_ELEMENTS;
+
+        for (int i = 0; i < numberOfVertices; i++) {
+            int v = i * CubeVAO.VERTEX_SIZE_ELEMENTS;
+
+            if (!this.packedAttributes) {
+                for (int j = 0; j < 3 + 3; j++) {
+                    positions.putFloat(vertices[v + j]);
+                }
+                attributes.putFloat(vertices[v + 6]);
+                attributes.putFloat(vertices[v + 7]);
+                continue;
+            }
+
+            if (this.halfPositions) {
+                positions.putShort(toHalf(vertices[v + 0]));
+                positions.putShort(toHalf(vertices[v + 1]));
+                positions.putShort(toHalf(vertices[v + 2]));
+                positions.putShort((short) 0);
+            } else {
+                positions.putFloat(vertices[v + 0]);
+                positions.putFloat(vertices[v + 1]);
+                positions.putFloat(vertices[v + 2]);
+            }
+
+            int normal = toSnorm10(vertices[v + 3])
+                    | (toSnorm10(vertices[v + 4]) << 10)
+                    | (toSnorm10(vertices[v + 5]) << 20);
+            positions.putInt(normal);
+
+            attributes.putShort(toUnorm16(vertices[v + 6]));
+            attributes.putShort(toUnorm16(vertices[v + 7]));
+        }
+
+        positionOutput.position(positionOutput.position() + positions.position());
+        attributeOutput.position(attributeOutput.position() + attributes.position());
+    }
+
+}
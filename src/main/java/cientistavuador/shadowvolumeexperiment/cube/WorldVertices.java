@@ -0,0 +1,270 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube;
+
+import cientistavuador.shadowvolumeexperiment.Main;
+import cientistavuador.shadowvolumeexperiment.util.ProgramCompiler;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * World space vertices of the cubes captured with transform feedback once per
+ * frame, so the passes drawing a cube many times do not transform it again.
+ * <p>
+ * The captured vertices use the same layout as the mesh vertices, with the
+ * normal already transformed and normalized, followed by the draw index of
+ * their cube. A cube is drawn from them with the indices of its mesh and its
+ * world base vertex, so cubes drawn together by a multi draw can still read
+ * their own data through the draw index.
+ * <p>
+ * The cubes sharing a mesh are captured by a single instanced draw reading
+ * their matrices from {@link CubeInstances}, so the number of gl calls of the
+ * capture grows with the number of meshes, not with the number of cubes.
+ *
+ * @author Cien
+ */
+public class WorldVertices {
+
+    public static final String VERTEX_SHADER
+            = 
+            """
+            #version 330 core
+            
+            uniform int baseDrawIndex;
+            
+            layout (location = 0) in vec3 vertexPosition;
+            layout (location = 1) in vec3 vertexNormal;
+            layout (location = 2) in vec2 vertexTexture;
+            layout (location = 5) in mat4 model;
+            layout (location = 9) in mat3 normalModel;
+            
+            out vec3 worldPosition;
+            out vec3 worldNormal;
+            out vec2 worldTexture;
+            flat out int worldDraw;
+            
+            void main() {
+                vec4 position = model * vec4(vertexPosition, 1.0);
+                worldPosition = position.xyz / position.w;
+                worldNormal = normalize(normalModel * vertexNormal);
+                worldTexture = vertexTexture;
+                //packed vertices mark a missing texture coordinate with 1.0, see VertexFormat
+                if (vertexTexture.x == 1.0) {
+                    worldTexture = vec2(uintBitsToFloat(0x7FC00000u));
+                }
+                worldDraw = baseDrawIndex + gl_InstanceID;
+            }
+            """;
+
+    public static final int SHADER_PROGRAM = ProgramCompiler.compileTransformFeedback(VERTEX_SHADER, "worldPosition", "worldNormal", "worldTexture", "worldDraw");
+    public static final int BASE_DRAW_INDEX_INDEX = glGetUniformLocation(SHADER_PROGRAM, "baseDrawIndex");
+
+    //the draw index is a int after the floats of the mesh vertex
+    public static final int VERTEX_SIZE_ELEMENTS = CubeVAO.VERTEX_SIZE_ELEMENTS + 1;
+    //after the locations of CubeInstances
+    public static final int DRAW_INDEX_LOCATION = 13;
+
+    public static final int INITIAL_CAPACITY = 65536;
+
+    public static final int VBO;
+
+    static {
+        VBO = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, VBO);
+        glBufferData(GL_ARRAY_BUFFER, ((long) INITIAL_CAPACITY) * VERTEX_SIZE_ELEMENTS * Float.BYTES, GL_STREAM_COPY);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    private static int capacity = INITIAL_CAPACITY;
+
+    //the meshes of the last capture, a mesh is a vao and a range of its vertices
+    private static int[] meshes = new int[16 * 3];
+    private static int numberOfMeshes = 0;
+    //number of cubes, first draw index and world base vertex of each mesh
+    private static int[] meshCubes = new int[16];
+    private static int[] meshStarts = new int[16];
+    private static int[] meshBaseVertices = new int[16];
+    //the mesh of each cube and the indices of the cubes grouped by mesh
+    private static int[] cubeMeshes = new int[256];
+    private static int[] order = new int[256];
+    //vaos of the captured vertices by the ebo of the mesh
+    private static final Map<Integer, Integer> vertexArrays = new HashMap<>();
+
+    //vao reading the captured vertices with the indices of a mesh, only the locations 0 to 2 and the draw index are set
+    public static int getVAO(int ebo) {
+        Integer vao = vertexArrays.get(ebo);
+        if (vao != null) {
+            return vao;
+        }
+
+        int newVao = glGenVertexArrays();
+        glBindVertexArray(newVao);
+
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+        glBindBuffer(GL_ARRAY_BUFFER, VBO);
+
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, VERTEX_SIZE_ELEMENTS * Float.BYTES, 0);
+
+        glEnableVertexAttribArray(1);
+        glVertexAttribPointer(1, 3, GL_FLOAT, false, VERTEX_SIZE_ELEMENTS * Float.BYTES, (3) * Float.BYTES);
+
+        glEnableVertexAttribArray(2);
+        glVertexAttribPointer(2, 2, GL_FLOAT, false, VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3) * Float.BYTES);
+
+        glEnableVertexAttribArray(DRAW_INDEX_LOCATION);
+        glVertexAttribIPointer(DRAW_INDEX_LOCATION, 1, GL_INT, VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3 + 2) * Float.BYTES);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        glBindVertexArray(0);
+
+        vertexArrays.put(ebo, newVao);
+        return newVao;
+    }
+
+    private static int meshOf(Cube c) {
+        for (int i = 0; i < numberOfMeshes; i++) {
+            if (meshes[(i * 3) + 0] == c.getVAO()
+                    && meshes[(i * 3) + 1] == c.getBaseVertex()
+                    && meshes[(i * 3) + 2] == c.getVertexCount()) {
+                return i;
+            }
+        }
+
+        if (numberOfMeshes == meshCubes.length) {
+            int newCapacity = numberOfMeshes * 2;
+            meshes = Arrays.copyOf(meshes, newCapacity * 3);
+            meshCubes = Arrays.copyOf(meshCubes, newCapacity);
+            meshStarts = new int[newCapacity];
+            meshBaseVertices = new int[newCapacity];
+        }
+        int mesh = numberOfMeshes;
+        numberOfMeshes++;
+        meshes[(mesh * 3) + 0] = c.getVAO();
+        meshes[(mesh * 3) + 1] = c.getBaseVertex();
+        meshes[(mesh * 3) + 2] = c.getVertexCount();
+        meshCubes[mesh] = 0;
+        return mesh;
+    }
+
+    //captures every vertex of the cubes and sets their world base vertex and draw index, returns the number of captured vertices
+    public static int capture(List<Cube> cubes) {
+        //1-group the cubes by mesh, keeping the order of the cubes of each mesh
+        if (cubeMeshes.length < cubes.size()) {
+            int newCapacity = Math.max(cubes.size(), cubeMeshes.length * 2);
+            cubeMeshes = new int[newCapacity];
+            order = new int[newCapacity];
+        }
+
+        numberOfMeshes = 0;
+        int total = 0;
+        for (int i = 0; i < cubes.size(); i++) {
+            Cube c = cubes.get(i);
+            int mesh = meshOf(c);
+            cubeMeshes[i] = mesh;
+            meshCubes[mesh]++;
+            total += c.getVertexCount();
+        }
+
+        //the instances of a mesh are captured one after the other, so each mesh owns a range of the vertices and of the draw indices
+        int start = 0;
+        int baseVertex = 0;
+        for (int i = 0; i < numberOfMeshes; i++) {
+            meshStarts[i] = start;
+            meshBaseVertices[i] = baseVertex;
+            start += meshCubes[i];
+            baseVertex += meshCubes[i] * meshes[(i * 3) + 2];
+            meshCubes[i] = 0;
+        }
+        for (int i = 0; i < cubes.size(); i++) {
+            Cube c = cubes.get(i);
+            int mesh = cubeMeshes[i];
+            int instance = meshCubes[mesh];
+            meshCubes[mesh]++;
+
+            order[meshStarts[mesh] + instance] = i;
+            c.setWorldBaseVertex(meshBaseVertices[mesh] + (instance * c.getVertexCount()));
+            c.setWorldDrawIndex(meshStarts[mesh] + instance);
+        }
+
+        //orphaned every frame, so the capture does not wait for the draws of the last frame
+        while (capacity < total) {
+            capacity *= 2;
+        }
+        glBindBuffer(GL_TRANSFORM_FEEDBACK_BUFFER, VBO);
+        glBufferData(GL_TRANSFORM_FEEDBACK_BUFFER, ((long) capacity) * VERTEX_SIZE_ELEMENTS * Float.BYTES, GL_STREAM_COPY);
+        glBindBuffer(GL_TRANSFORM_FEEDBACK_BUFFER, 0);
+
+        glEnable(GL_RASTERIZER_DISCARD);
+        glUseProgram(SHADER_PROGRAM);
+        glBindBufferBase(GL_TRANSFORM_FEEDBACK_BUFFER, 0, VBO);
+
+        //2-one instanced draw per mesh, each draw is appended after the vertices of the previous one
+        glBeginTransformFeedback(GL_POINTS);
+        int vao = 0;
+        for (int mesh = 0; mesh < numberOfMeshes; mesh++) {
+            int meshVao = meshes[(mesh * 3) + 0];
+            int meshBaseVertex = meshes[(mesh * 3) + 1];
+            int vertexCount = meshes[(mesh * 3) + 2];
+            int instances = meshCubes[mesh];
+
+            CubeInstances.clear();
+            for (int i = meshStarts[mesh]; i < meshStarts[mesh] + instances; i++) {
+                Cube c = cubes.get(order[i]);
+                CubeInstances.add(c.getModel(), c.getNormalModel(), 0f);
+            }
+            CubeInstances.upload();
+
+            if (meshVao != vao) {
+                vao = meshVao;
+                glBindVertexArray(vao);
+            }
+            glUniform1i(BASE_DRAW_INDEX_INDEX, meshStarts[mesh]);
+            glDrawArraysInstanced(GL_POINTS, meshBaseVertex, vertexCount, instances);
+
+            Main.NUMBER_OF_DRAWCALLS++;
+            Main.NUMBER_OF_VERTICES += vertexCount * instances;
+            Main.NUMBER_OF_ARENA_VERTICES += vertexCount * instances;
+        }
+        glEndTransformFeedback();
+
+        glBindBufferBase(GL_TRANSFORM_FEEDBACK_BUFFER, 0, 0);
+        glBindVertexArray(0);
+        glUseProgram(0);
+        glDisable(GL_RASTERIZER_DISCARD);
+
+        return total;
+    }
+
+    private WorldVertices() {
+
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube.light.point;
+
+import cientistavuador.shadowvolumeexperiment.cube.light.Light;
+import cientistavuador.shadowvolumeexperiment.cube.light.LightMode;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+
+/**
+ * A light at a position, its contribution fades to zero at the range.
+ *
+ * @author Cien
+ */
+public class PointLight implements Light {
+    
+    public static final float DEFAULT_RANGE = 12f;
+    
+    private final Vector3f position = new Vector3f();
+    private final Vector3f diffuseColor = new Vector3f(8f);
+    private final Vector3f specularColor = new Vector3f(8f);
+    private final Vector3f ambientColor = new Vector3f(0f);
+    private final LightMode lightMode = new LightMode();
+    private float range = DEFAULT_RANGE;
+    
+    public PointLight(Vector3fc position, Vector3fc color) {
+        if (position != null) {
+            this.position.set(position);
+        }
+        if (color != null) {
+            this.diffuseColor.set(color);
+            this.specularColor.set(color);
+        }
+    }
+    
+    public PointLight() {
+        this(null, null);
+    }
+
+    @Override
+    public Vector3f getPosition() {
+        return position;
+    }
+
+    public float getRange() {
+        return range;
+    }
+
+    public void setRange(float range) {
+        this.range = range;
+    }
+    
+    //world space bounds of the sphere the light reaches
+    public void computeBounds(Vector3f min, Vector3f max) {
+        min.set(this.position).sub(this.range, this.range, this.range);
+        max.set(this.position).add(this.range, this.range, this.range);
+    }
+
+    @Override
+    public Vector3f getDiffuseColor() {
+        return diffuseColor;
+    }
+    
+    @Override
+    public Vector3f getSpecularColor() {
+        return specularColor;
+    }
+    
+    @Override
+    public Vector3f getAmbientColor() {
+        return ambientColor;
+    }
+
+    @Override
+    public LightMode getLightMode() {
+        return lightMode;
+    }
+    
+}
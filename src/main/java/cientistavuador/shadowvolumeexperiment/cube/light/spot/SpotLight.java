@@ -0,0 +1,81 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.cube.light.spot;
+
+import cientistavuador.shadowvolumeexperiment.cube.light.point.PointLight;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+
+/**
+ * A point light limited to a cone, it fades between the inner and the outer
+ * angle.
+ *
+ * @author Cien
+ */
+public class SpotLight extends PointLight {
+    
+    public static final float DEFAULT_INNER_ANGLE = 20f;
+    public static final float DEFAULT_OUTER_ANGLE = 30f;
+    
+    private final Vector3f direction = new Vector3f(0f, -1f, 0f);
+    private float innerAngle = DEFAULT_INNER_ANGLE;
+    private float outerAngle = DEFAULT_OUTER_ANGLE;
+    
+    public SpotLight(Vector3fc position, Vector3fc direction, Vector3fc color) {
+        super(position, color);
+        if (direction != null) {
+            this.direction.set(direction).normalize();
+        }
+    }
+    
+    public SpotLight() {
+        this(null, null, null);
+    }
+
+    public Vector3f getDirection() {
+        return direction;
+    }
+
+    //in degrees
+    public float getInnerAngle() {
+        return innerAngle;
+    }
+
+    public void setInnerAngle(float innerAngle) {
+        this.innerAngle = innerAngle;
+    }
+
+    //in degrees
+    public float getOuterAngle() {
+        return outerAngle;
+    }
+
+    public void setOuterAngle(float outerAngle) {
+        this.outerAngle = outerAngle;
+    }
+    
+}
@@ -0,0 +1,70 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.debug;
+
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * Counts the samples that pass the depth and stencil tests between begin and
+ * end, the result is read one frame later so the cpu never waits for the gpu.
+ *
+ * @author Cien
+ */
+public class SamplesPassedQuery {
+
+    private final int[] queries = new int[2];
+    private final boolean[] pending = new boolean[2];
+    private int current = 0;
+    private long lastResult = -1;
+
+    public SamplesPassedQuery() {
+        glGenQueries(this.queries);
+    }
+
+    public void begin() {
+        glBeginQuery(GL_SAMPLES_PASSED, this.queries[this.current]);
+    }
+
+    public void end() {
+        glEndQuery(GL_SAMPLES_PASSED);
+        this.pending[this.current] = true;
+        this.current = (this.current + 1) % this.queries.length;
+
+        //the next query was issued on the previous frame
+        int query = this.queries[this.current];
+        if (this.pending[this.current] && glGetQueryObjecti(query, GL_QUERY_RESULT_AVAILABLE) != GL_FALSE) {
+            this.lastResult = glGetQueryObjecti64(query, GL_QUERY_RESULT);
+            this.pending[this.current] = false;
+        }
+    }
+
+    //-1 if no result is available yet
+    public long getLastResult() {
+        return lastResult;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.deferred;
+
+import cientistavuador.shadowvolumeexperiment.Main;
+import cientistavuador.shadowvolumeexperiment.util.ProgramCompiler;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import org.joml.Matrix4fc;
+import static org.lwjgl.opengl.GL33C.*;
+import org.lwjgl.system.MemoryStack;
+
+/**
+ * Copies the light of a {@link GBuffer} to the bound framebuffer, the depth
+ * of the surfaces is projected again from their position so the passes
+ * after it are depth tested against them, the light is encoded here if the
+ * window framebuffer is not srgb.
+ *
+ * @author Cien
+ */
+public class DeferredCompositeProgram {
+
+    public static final String VERTEX_SHADER = FullScreenTriangle.VERTEX_SHADER;
+
+    public static final String FRAGMENT_SHADER
+            = 
+            """
+            #version 330 core
+            
+            #define ENCODE_OUTPUT OUTPUT_ENCODING
+            
+            uniform mat4 projectionView;
+            
+            uniform sampler2D gBufferPosition;
+            uniform sampler2D gBufferLight;
+            
+            layout (location = 0) out vec4 outputColor;
+            
+            void main() {
+                ivec2 pixel = ivec2(gl_FragCoord.xy);
+                
+                vec4 position = texelFetch(gBufferPosition, pixel, 0);
+                if (position.w == 0.0) {
+                    discard;
+                }
+                
+                vec4 clipPosition = projectionView * vec4(position.xyz, 1.0);
+                gl_FragDepth = ((clipPosition.z / clipPosition.w) * 0.5) + 0.5;
+                
+                vec3 light = texelFetch(gBufferLight, pixel, 0).rgb;
+                #if ENCODE_OUTPUT
+                light = pow(light, vec3(1.0/2.2));
+                #endif
+                outputColor = vec4(light, 1.0);
+            }
+            """;
+
+    public static final int SHADER_PROGRAM = ProgramCompiler.compile(VERTEX_SHADER, FRAGMENT_SHADER, new HashMap<>() {
+        {
+            put("OUTPUT_ENCODING", (Main.SRGB_FRAMEBUFFER ? "0" : "1"));
+        }
+    });
+    public static final int PROJECTION_VIEW_INDEX = glGetUniformLocation(SHADER_PROGRAM, "projectionView");
+    public static final int G_BUFFER_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "gBufferPosition");
+    public static final int G_BUFFER_LIGHT_INDEX = glGetUniformLocation(SHADER_PROGRAM, "gBufferLight");
+
+    public static void sendUniforms(GBuffer gBuffer, Matrix4fc projectionView) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer matrixBuffer = stack.mallocFloat(4 * 4);
+            projectionView.get(matrixBuffer);
+            glUniformMatrix4fv(PROJECTION_VIEW_INDEX, false, matrixBuffer);
+        }
+        
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, gBuffer.getPosition());
+        glUniform1i(G_BUFFER_POSITION_INDEX, 0);
+        
+        glActiveTexture(GL_TEXTURE1);
+        glBindTexture(GL_TEXTURE_2D, gBuffer.getLight());
+        glUniform1i(G_BUFFER_LIGHT_INDEX, 1);
+    }
+
+    private DeferredCompositeProgram() {
+
+    }
+}
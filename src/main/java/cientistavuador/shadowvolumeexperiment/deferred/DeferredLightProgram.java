@@ -0,0 +1,160 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.deferred;
+
+import cientistavuador.shadowvolumeexperiment.cube.CubeProgram;
+import cientistavuador.shadowvolumeexperiment.cube.light.Light;
+import cientistavuador.shadowvolumeexperiment.cube.light.directional.DirectionalLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.point.PointLight;
+import cientistavuador.shadowvolumeexperiment.cube.light.spot.SpotLight;
+import cientistavuador.shadowvolumeexperiment.util.ProgramCompiler;
+import org.joml.Vector3f;
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * Shades the pixels of a {@link GBuffer} by a light, with the same shading
+ * as {@link CubeProgram}.
+ *
+ * @author Cien
+ */
+public class DeferredLightProgram {
+
+    public static final String VERTEX_SHADER = FullScreenTriangle.VERTEX_SHADER;
+
+    public static final String FRAGMENT_SHADER
+            = 
+            """
+            #version 330 core
+            
+            uniform sampler2D gBufferAlbedo;
+            uniform sampler2D gBufferNormalSpecular;
+            uniform sampler2D gBufferPosition;
+            """
+            + CubeProgram.LIGHTING
+            + """
+            
+            layout (location = 0) out vec4 outputColor;
+            
+            void main() {
+                ivec2 pixel = ivec2(gl_FragCoord.xy);
+                
+                vec4 position = texelFetch(gBufferPosition, pixel, 0);
+                if (position.w == 0.0) {
+                    discard;
+                }
+                vec4 albedo = texelFetch(gBufferAlbedo, pixel, 0);
+                vec4 normalSpecular = texelFetch(gBufferNormalSpecular, pixel, 0);
+                
+                vec3 resultColor = shade(position.xyz, normalSpecular.xyz, albedo.rgb, vec3(normalSpecular.w));
+                
+                outputColor = vec4(resultColor, 1.0);
+            }
+            """;
+
+    public static final int SHADER_PROGRAM = ProgramCompiler.compile(VERTEX_SHADER, FRAGMENT_SHADER);
+    public static final int G_BUFFER_ALBEDO_INDEX = glGetUniformLocation(SHADER_PROGRAM, "gBufferAlbedo");
+    public static final int G_BUFFER_NORMAL_SPECULAR_INDEX = glGetUniformLocation(SHADER_PROGRAM, "gBufferNormalSpecular");
+    public static final int G_BUFFER_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "gBufferPosition");
+
+    public static final int LIGHT_DIRECTION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightDirection");
+    public static final int POINT_LIGHT_INDEX = glGetUniformLocation(SHADER_PROGRAM, "pointLight");
+    public static final int LIGHT_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightPosition");
+    public static final int LIGHT_RANGE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightRange");
+    public static final int SPOT_DIRECTION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "spotDirection");
+    public static final int SPOT_CONE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "spotCone");
+    public static final int LIGHT_DIFFUSE_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightDiffuse");
+    public static final int LIGHT_SPECULAR_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightSpecular");
+    public static final int LIGHT_AMBIENT_INDEX = glGetUniformLocation(SHADER_PROGRAM, "lightAmbient");
+
+    public static final int CAM_POSITION_INDEX = glGetUniformLocation(SHADER_PROGRAM, "camPosition");
+
+    public static void sendUniforms(GBuffer gBuffer, Vector3f camPosition, Light light) {
+        glUniform3f(CAM_POSITION_INDEX, camPosition.x(), camPosition.y(), camPosition.z());
+        
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, gBuffer.getAlbedo());
+        glUniform1i(G_BUFFER_ALBEDO_INDEX, 0);
+        
+        glActiveTexture(GL_TEXTURE1);
+        glBindTexture(GL_TEXTURE_2D, gBuffer.getNormalSpecular());
+        glUniform1i(G_BUFFER_NORMAL_SPECULAR_INDEX, 1);
+        
+        glActiveTexture(GL_TEXTURE2);
+        glBindTexture(GL_TEXTURE_2D, gBuffer.getPosition());
+        glUniform1i(G_BUFFER_POSITION_INDEX, 2);
+
+        if (light instanceof PointLight point) {
+            glUniform1i(POINT_LIGHT_INDEX, 1);
+            glUniform3f(LIGHT_POSITION_INDEX, point.getPosition().x(), point.getPosition().y(), point.getPosition().z());
+            glUniform1f(LIGHT_RANGE_INDEX, point.getRange());
+            if (light instanceof SpotLight spot) {
+                glUniform3f(SPOT_DIRECTION_INDEX, spot.getDirection().x(), spot.getDirection().y(), spot.getDirection().z());
+                glUniform2f(SPOT_CONE_INDEX,
+                        (float) Math.cos(Math.toRadians(spot.getOuterAngle())),
+                        (float) Math.cos(Math.toRadians(spot.getInnerAngle()))
+                );
+            } else {
+                glUniform2f(SPOT_CONE_INDEX, -1f, -1f);
+            }
+        } else if (light instanceof DirectionalLight directional) {
+            glUniform1i(POINT_LIGHT_INDEX, 0);
+            glUniform3f(
+                    LIGHT_DIRECTION_INDEX,
+                    directional.getDirection().x(), directional.getDirection().y(), directional.getDirection().z()
+            );
+        }
+
+        glUniform3f(LIGHT_DIFFUSE_INDEX, 0f, 0f, 0f);
+        glUniform3f(LIGHT_SPECULAR_INDEX, 0f, 0f, 0f);
+        glUniform3f(LIGHT_AMBIENT_INDEX, 0f, 0f, 0f);
+
+        if (light.getLightMode().diffuse()) {
+            glUniform3f(
+                    LIGHT_DIFFUSE_INDEX,
+                    light.getDiffuseColor().x(), light.getDiffuseColor().y(), light.getDiffuseColor().z()
+            );
+        }
+        
+        if (light.getLightMode().specular()) {
+            glUniform3f(
+                    LIGHT_SPECULAR_INDEX,
+                    light.getSpecularColor().x(), light.getSpecularColor().y(), light.getSpecularColor().z()
+            );
+        }
+        
+        if (light.getLightMode().ambient()) {
+            glUniform3f(
+                    LIGHT_AMBIENT_INDEX,
+                    light.getAmbientColor().x(), light.getAmbientColor().y(), light.getAmbientColor().z()
+            );
+        }
+    }
+
+    private DeferredLightProgram() {
+
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.deferred;
+
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * Surface of every pixel written once per frame, read by the light passes of
+ * the deferred shading.
+ * <p>
+ * The targets are the albedo (srgb encoded), the normal with the specular in
+ * w, the world position with w set to 1 where there is a surface and the
+ * light added by the light passes. The depth and stencil are a renderbuffer,
+ * the shadow volumes of each light are drawn to it.
+ *
+ * @author Cien
+ */
+public class GBuffer {
+
+    public static final int ALBEDO_ATTACHMENT = GL_COLOR_ATTACHMENT0;
+    public static final int NORMAL_SPECULAR_ATTACHMENT = GL_COLOR_ATTACHMENT1;
+    public static final int POSITION_ATTACHMENT = GL_COLOR_ATTACHMENT2;
+    public static final int LIGHT_ATTACHMENT = GL_COLOR_ATTACHMENT3;
+
+    private final int framebuffer;
+    private final int albedo;
+    private final int normalSpecular;
+    private final int position;
+    private final int light;
+    private final int depthStencil;
+
+    private int width = 0;
+    private int height = 0;
+
+    public GBuffer() {
+        this.framebuffer = glGenFramebuffers();
+        this.albedo = glGenTextures();
+        this.normalSpecular = glGenTextures();
+        this.position = glGenTextures();
+        this.light = glGenTextures();
+        this.depthStencil = glGenRenderbuffers();
+    }
+
+    private static void allocate(int texture, int internalFormat, int format, int type, int width, int height) {
+        glBindTexture(GL_TEXTURE_2D, texture);
+        glTexImage2D(GL_TEXTURE_2D, 0, internalFormat, width, height, 0, format, type, 0);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+    }
+
+    //reallocates the targets if the size changed
+    public void resize(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+
+        allocate(this.albedo, GL_SRGB8_ALPHA8, GL_RGBA, GL_UNSIGNED_BYTE, width, height);
+        allocate(this.normalSpecular, GL_RGBA16F, GL_RGBA, GL_FLOAT, width, height);
+        allocate(this.position, GL_RGBA32F, GL_RGBA, GL_FLOAT, width, height);
+        allocate(this.light, GL_RGBA16F, GL_RGBA, GL_FLOAT, width, height);
+
+        glBindRenderbuffer(GL_RENDERBUFFER, this.depthStencil);
+        glRenderbufferStorage(GL_RENDERBUFFER, GL_DEPTH24_STENCIL8, width, height);
+        glBindRenderbuffer(GL_RENDERBUFFER, 0);
+
+        glBindFramebuffer(GL_FRAMEBUFFER, this.framebuffer);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, ALBEDO_ATTACHMENT, GL_TEXTURE_2D, this.albedo, 0);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, NORMAL_SPECULAR_ATTACHMENT, GL_TEXTURE_2D, this.normalSpecular, 0);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, POSITION_ATTACHMENT, GL_TEXTURE_2D, this.position, 0);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, LIGHT_ATTACHMENT, GL_TEXTURE_2D, this.light, 0);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_STENCIL_ATTACHMENT, GL_RENDERBUFFER, this.depthStencil);
+
+        int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+        if (status != GL_FRAMEBUFFER_COMPLETE) {
+            throw new RuntimeException("G-Buffer framebuffer is incomplete! status: 0x" + Integer.toHexString(status));
+        }
+    }
+
+    //binds the framebuffer and clears every target, the surface targets are left as the draw buffers
+    public void bindSurface() {
+        glBindFramebuffer(GL_FRAMEBUFFER, this.framebuffer);
+
+        glDrawBuffers(new int[]{ALBEDO_ATTACHMENT, NORMAL_SPECULAR_ATTACHMENT, POSITION_ATTACHMENT, LIGHT_ATTACHMENT});
+        float[] zero = {0f, 0f, 0f, 0f};
+        for (int i = 0; i < 4; i++) {
+            glClearBufferfv(GL_COLOR, i, zero);
+        }
+        glClearBufferfi(GL_DEPTH_STENCIL, 0, 1f, 0);
+
+        glDrawBuffers(new int[]{ALBEDO_ATTACHMENT, NORMAL_SPECULAR_ATTACHMENT, POSITION_ATTACHMENT});
+    }
+
+    //the light passes only write the light target
+    public void bindLight() {
+        glBindFramebuffer(GL_FRAMEBUFFER, this.framebuffer);
+        glDrawBuffer(LIGHT_ATTACHMENT);
+    }
+
+    public int getFramebuffer() {
+        return framebuffer;
+    }
+
+    public int getAlbedo() {
+        return albedo;
+    }
+
+    public int getNormalSpecular() {
+        return normalSpecular;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getLight() {
+        return light;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+}
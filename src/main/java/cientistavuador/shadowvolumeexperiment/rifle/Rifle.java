@@ -27,7 +27,10 @@
 package cientistavuador.shadowvolumeexperiment.rifle;
 
 import cientistavuador.shadowvolumeexperiment.cube.Cube;
+import cientistavuador.shadowvolumeexperiment.cube.ShadowProxy;
+import cientistavuador.shadowvolumeexperiment.cube.SilhouetteCache;
 import org.joml.Matrix4fc;
+import org.joml.Vector3fc;
 
 /**
  * @author Cien
@@ -43,6 +46,21 @@ public class Rifle extends Cube {
         return RifleVAO.VAO;
     }
 
+    @Override
+    public int getEBO() {
+        return RifleVAO.EBO;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return RifleVAO.RIFLE_VERTEX_COUNT;
+    }
+
+    @Override
+    public int getBaseVertex() {
+        return RifleVAO.RIFLE_BASE_VERTEX;
+    }
+
     @Override
     public int getCount() {
         return RifleVAO.RIFLE_COUNT;
@@ -62,5 +80,40 @@ public class Rifle extends Cube {
     public int getShadowVolumeOffset() {
         return RifleVAO.RIFLE_SHADOW_VOLUME_OFFSET;
     }
+
+    @Override
+    public int getShadowVolumeCapsCount() {
+        return RifleVAO.RIFLE_SHADOW_VOLUME_CAPS_COUNT;
+    }
+
+    @Override
+    public Vector3fc getMin() {
+        return RifleVAO.RIFLE_MIN;
+    }
+
+    @Override
+    public Vector3fc getMax() {
+        return RifleVAO.RIFLE_MAX;
+    }
+
+    @Override
+    public int getShadowVolumeAdjacencyCount() {
+        return RifleVAO.RIFLE_SHADOW_VOLUME_ADJACENCY_COUNT;
+    }
+
+    @Override
+    public int getShadowVolumeAdjacencyOffset() {
+        return RifleVAO.RIFLE_SHADOW_VOLUME_ADJACENCY_OFFSET;
+    }
+
+    @Override
+    public SilhouetteCache getSilhouetteCache() {
+        return RifleVAO.SILHOUETTE_CACHE;
+    }
+
+    @Override
+    public ShadowProxy getShadowProxy() {
+        return RifleVAO.SHADOW_PROXY;
+    }
     
 }
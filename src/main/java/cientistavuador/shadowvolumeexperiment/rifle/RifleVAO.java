@@ -27,67 +27,84 @@
 package cientistavuador.shadowvolumeexperiment.rifle;
 
 import cientistavuador.shadowvolumeexperiment.cube.CubeVAO;
-import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeGenerator;
+import cientistavuador.shadowvolumeexperiment.cube.MeshArena;
+import cientistavuador.shadowvolumeexperiment.cube.ShadowProxy;
+import cientistavuador.shadowvolumeexperiment.cube.SilhouetteCache;
+import cientistavuador.shadowvolumeexperiment.util.ShadowProxyGenerator;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeCache;
+import cientistavuador.shadowvolumeexperiment.util.ShadowVolumeMesh;
+import cientistavuador.shadowvolumeexperiment.util.SilhouetteExtractor;
+import cientistavuador.shadowvolumeexperiment.util.VertexWelder;
 import java.util.Map;
-import static org.lwjgl.opengl.GL33C.*;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
 
 /**
  *
  * @author Cien
  */
 public class RifleVAO {
+    //number of convex hulls of the shadow proxy
+    public static final int SHADOW_PROXY_PIECES = 1;
+    
     public static final int VAO;
+    public static final int EBO;
+    public static final int VBO;
+    public static final int RIFLE_VERTEX_COUNT;
+    public static final int RIFLE_BASE_VERTEX;
     public static final int RIFLE_COUNT;
     public static final int RIFLE_OFFSET;
     public static final int RIFLE_SHADOW_VOLUME_COUNT;
     public static final int RIFLE_SHADOW_VOLUME_OFFSET;
+    public static final int RIFLE_SHADOW_VOLUME_CAPS_COUNT;
+    public static final int RIFLE_SHADOW_VOLUME_ADJACENCY_COUNT;
+    public static final int RIFLE_SHADOW_VOLUME_ADJACENCY_OFFSET;
+    public static final Vector3fc RIFLE_MIN;
+    public static final Vector3fc RIFLE_MAX;
+    public static final SilhouetteCache SILHOUETTE_CACHE;
+    public static final ShadowProxy SHADOW_PROXY;
 
     static {
-        VAO = glGenVertexArrays();
-        glBindVertexArray(VAO);
-        
         Map.Entry<float[], int[]> mesh = RifleMesh.readMesh();
         
-        float[] vertices = mesh.getKey();
+        ShadowVolumeMesh shadowMesh = ShadowVolumeCache.get(mesh.getKey(), CubeVAO.VERTEX_SIZE_ELEMENTS, mesh.getValue(), VertexWelder.DEFAULT_EPSILON);
         
-        int[] indices = mesh.getValue();
-        int[] volumeIndices = ShadowVolumeGenerator.generateShadowVolumeIndices(vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, indices);
+        float[] vertices = shadowMesh.getVertices();
         
-        RIFLE_COUNT = indices.length;
-        RIFLE_OFFSET = 0;
-        RIFLE_SHADOW_VOLUME_COUNT = volumeIndices.length;
-        RIFLE_SHADOW_VOLUME_OFFSET = indices.length * Integer.BYTES;
+        int[] indices = shadowMesh.getIndices();
+        System.out.println("RifleVAO: " + shadowMesh.report());
+        int[] volumeIndices = shadowMesh.getVolumeIndices();
+        int[] adjacencyIndices = shadowMesh.getAdjacencyIndices();
         
-        int[] mixedIndices = new int[indices.length + volumeIndices.length];
+        int[] mixedIndices = new int[indices.length + volumeIndices.length + adjacencyIndices.length];
         System.arraycopy(indices, 0, mixedIndices, 0, indices.length);
         System.arraycopy(volumeIndices, 0, mixedIndices, indices.length, volumeIndices.length);
-
-        int ebo = glGenBuffers();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, mixedIndices, GL_STATIC_DRAW);
-
-        int vbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
-
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, CubeVAO.VERTEX_SIZE_ELEMENTS * Float.BYTES, 0);
-
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(1, 3, GL_FLOAT, false, CubeVAO.VERTEX_SIZE_ELEMENTS * Float.BYTES, (3) * Float.BYTES);
-
-        glEnableVertexAttribArray(2);
-        glVertexAttribPointer(2, 2, GL_FLOAT, false, CubeVAO.VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3) * Float.BYTES);
-
-        glEnableVertexAttribArray(3);
-        glVertexAttribPointer(3, 2, GL_FLOAT, false, CubeVAO.VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3 + 2) * Float.BYTES);
-
-        glEnableVertexAttribArray(4);
-        glVertexAttribPointer(4, 2, GL_FLOAT, false, CubeVAO.VERTEX_SIZE_ELEMENTS * Float.BYTES, (3 + 3 + 2 + 2) * Float.BYTES);
-
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-
-        glBindVertexArray(0);
+        System.arraycopy(adjacencyIndices, 0, mixedIndices, indices.length + volumeIndices.length, adjacencyIndices.length);
+        
+        MeshArena.Mesh arenaMesh = MeshArena.add(vertices, mixedIndices);
+        VAO = MeshArena.VAO;
+        EBO = MeshArena.EBO;
+        VBO = MeshArena.POSITION_VBO;
+        
+        RIFLE_VERTEX_COUNT = arenaMesh.getVertexCount();
+        RIFLE_BASE_VERTEX = arenaMesh.getBaseVertex();
+        RIFLE_COUNT = indices.length;
+        RIFLE_OFFSET = arenaMesh.getIndexOffset();
+        RIFLE_SHADOW_VOLUME_COUNT = volumeIndices.length;
+        RIFLE_SHADOW_VOLUME_OFFSET = arenaMesh.getIndexOffset() + (indices.length * Integer.BYTES);
+        RIFLE_SHADOW_VOLUME_CAPS_COUNT = shadowMesh.getCapsCount();
+        RIFLE_SHADOW_VOLUME_ADJACENCY_COUNT = adjacencyIndices.length;
+        RIFLE_SHADOW_VOLUME_ADJACENCY_OFFSET = arenaMesh.getIndexOffset() + ((indices.length + volumeIndices.length) * Integer.BYTES);
+        
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+        shadowMesh.computeBounds(CubeVAO.VERTEX_SIZE_ELEMENTS, min, max);
+        RIFLE_MIN = min;
+        RIFLE_MAX = max;
+        
+        SILHOUETTE_CACHE = new SilhouetteCache(SilhouetteExtractor.build(vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, indices, shadowMesh.getEdgeIndices()), VBO, RIFLE_BASE_VERTEX);
+        
+        SHADOW_PROXY = new ShadowProxy("RifleVAO", ShadowProxyGenerator.generate(vertices, CubeVAO.VERTEX_SIZE_ELEMENTS, indices, SHADOW_PROXY_PIECES), indices.length / 3);
     }
 
     private RifleVAO() {
@@ -0,0 +1,360 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Position adjacency of a triangle mesh, stored in flat int arrays.
+ * <p>
+ * Every index slot ("corner") is the start of a half edge going to the next
+ * corner of its triangle, corners are grouped by position so the half edges
+ * leaving a position can be walked without any lookup.
+ *
+ * @author Cien
+ */
+public class MeshAdjacency {
+
+    private static int hash(int x, int y, int z) {
+        int h = x;
+        h = (h * 0x9E3779B1) ^ y;
+        h = (h * 0x9E3779B1) ^ z;
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= (h >>> 13);
+        h *= 0xC2B2AE35;
+        h ^= (h >>> 16);
+        return h;
+    }
+
+    //the first 3 floats of a vertex must be the position XYZ
+    //positions are compared by their exact float bits, like Vector3f.equals
+    public static MeshAdjacency build(float[] vertices, int vertexSize, int[] indices) {
+        int numberOfCorners = indices.length;
+
+        //1-map the corners to position ids with an open addressing table
+        int capacity = Integer.highestOneBit(Math.max(numberOfCorners, 8) * 2 - 1) << 1;
+        int mask = capacity - 1;
+        int[] table = new int[capacity];
+        int[] keys = new int[Math.max(numberOfCorners, 1) * 3];
+        int[] cornerPositions = new int[numberOfCorners];
+        int numberOfPositions = 0;
+
+        for (int i = 0; i < numberOfCorners; i++) {
+            int vertexIndex = indices[i] * vertexSize;
+
+            int x = Float.floatToIntBits(vertices[vertexIndex + 0]);
+            int y = Float.floatToIntBits(vertices[vertexIndex + 1]);
+            int z = Float.floatToIntBits(vertices[vertexIndex + 2]);
+
+            int slot = hash(x, y, z) & mask;
+            int position;
+            while (true) {
+                int entry = table[slot];
+                if (entry == 0) {
+                    position = numberOfPositions;
+                    numberOfPositions++;
+
+                    keys[(position * 3) + 0] = x;
+                    keys[(position * 3) + 1] = y;
+                    keys[(position * 3) + 2] = z;
+                    table[slot] = position + 1;
+                    break;
+                }
+                position = entry - 1;
+                if (keys[(position * 3) + 0] == x
+                        && keys[(position * 3) + 1] == y
+                        && keys[(position * 3) + 2] == z) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            cornerPositions[i] = position;
+        }
+
+        return new MeshAdjacency(indices, cornerPositions, numberOfPositions);
+    }
+
+    //uses position ids that were already computed for each vertex, like the ones of VertexWelder
+    public static MeshAdjacency build(int[] indices, int[] vertexPositions, int numberOfPositions) {
+        int[] cornerPositions = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            cornerPositions[i] = vertexPositions[indices[i]];
+        }
+        return new MeshAdjacency(indices, cornerPositions, numberOfPositions);
+    }
+
+    //positions are compared by their exact float bits, like Vector3f.equals
+    //same result as build, the position ids may be numbered differently
+    public static MeshAdjacency buildParallel(float[] vertices, int vertexSize, int[] indices) {
+        int numberOfCorners = indices.length;
+
+        //1-insert the positions concurrently, a slot is owned by the first corner written to it
+        int capacity = Integer.highestOneBit(Math.max(numberOfCorners, 8) * 2 - 1) << 1;
+        int mask = capacity - 1;
+        AtomicIntegerArray table = new AtomicIntegerArray(capacity);
+        int[] cornerSlots = new int[numberOfCorners];
+
+        ParallelRange.forEachChunk(numberOfCorners, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                int vertexIndex = indices[i] * vertexSize;
+
+                int x = Float.floatToIntBits(vertices[vertexIndex + 0]);
+                int y = Float.floatToIntBits(vertices[vertexIndex + 1]);
+                int z = Float.floatToIntBits(vertices[vertexIndex + 2]);
+
+                int slot = hash(x, y, z) & mask;
+                while (true) {
+                    int entry = table.get(slot);
+                    if (entry == 0) {
+                        if (table.compareAndSet(slot, 0, i + 1)) {
+                            break;
+                        }
+                        entry = table.get(slot);
+                    }
+                    int ownerIndex = indices[entry - 1] * vertexSize;
+                    if (Float.floatToIntBits(vertices[ownerIndex + 0]) == x
+                            && Float.floatToIntBits(vertices[ownerIndex + 1]) == y
+                            && Float.floatToIntBits(vertices[ownerIndex + 2]) == z) {
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+
+                cornerSlots[i] = slot;
+            }
+        });
+
+        //2-number the used slots
+        int[] slotPositions = new int[capacity];
+        int numberOfPositions = 0;
+        for (int i = 0; i < capacity; i++) {
+            if (table.get(i) != 0) {
+                slotPositions[i] = numberOfPositions;
+                numberOfPositions++;
+            }
+        }
+
+        int[] cornerPositions = cornerSlots;
+        ParallelRange.forEachChunk(numberOfCorners, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                cornerPositions[i] = slotPositions[cornerSlots[i]];
+            }
+        });
+
+        return groupParallel(indices, cornerPositions, numberOfPositions);
+    }
+
+    //same result as build with the position ids of each vertex
+    public static MeshAdjacency buildParallel(int[] indices, int[] vertexPositions, int numberOfPositions) {
+        int[] cornerPositions = new int[indices.length];
+        ParallelRange.forEachChunk(indices.length, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                cornerPositions[i] = vertexPositions[indices[i]];
+            }
+        });
+        return groupParallel(indices, cornerPositions, numberOfPositions);
+    }
+
+    //groups the corners by position concurrently, then restores the index order of each group
+    private static MeshAdjacency groupParallel(int[] indices, int[] cornerPositions, int numberOfPositions) {
+        int numberOfCorners = indices.length;
+
+        AtomicIntegerArray counts = new AtomicIntegerArray(numberOfPositions + 1);
+        ParallelRange.forEachChunk(numberOfCorners, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                counts.incrementAndGet(cornerPositions[i] + 1);
+            }
+        });
+
+        int[] positionOffsets = new int[numberOfPositions + 1];
+        for (int i = 0; i < numberOfPositions; i++) {
+            positionOffsets[i + 1] = positionOffsets[i] + counts.get(i + 1);
+        }
+
+        int[] positionCorners = new int[numberOfCorners];
+        AtomicIntegerArray cursors = new AtomicIntegerArray(numberOfPositions);
+        ParallelRange.forEachChunk(numberOfCorners, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                int position = cornerPositions[i];
+                positionCorners[positionOffsets[position] + cursors.getAndIncrement(position)] = i;
+            }
+        });
+
+        ParallelRange.forEachChunk(numberOfPositions, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                int groupStart = positionOffsets[i];
+                int groupEnd = positionOffsets[i + 1];
+                if ((groupEnd - groupStart) > 16) {
+                    Arrays.sort(positionCorners, groupStart, groupEnd);
+                    continue;
+                }
+                for (int j = groupStart + 1; j < groupEnd; j++) {
+                    int corner = positionCorners[j];
+                    int k = j - 1;
+                    while (k >= groupStart && positionCorners[k] > corner) {
+                        positionCorners[k + 1] = positionCorners[k];
+                        k--;
+                    }
+                    positionCorners[k + 1] = corner;
+                }
+            }
+        });
+
+        return new MeshAdjacency(indices, cornerPositions, numberOfPositions, positionOffsets, positionCorners);
+    }
+
+    private final int[] indices;
+    private final int[] cornerPositions;
+    private final int numberOfPositions;
+    private final int[] positionOffsets;
+    private final int[] positionCorners;
+
+    private MeshAdjacency(int[] indices, int[] cornerPositions, int numberOfPositions, int[] positionOffsets, int[] positionCorners) {
+        this.indices = indices;
+        this.cornerPositions = cornerPositions;
+        this.numberOfPositions = numberOfPositions;
+        this.positionOffsets = positionOffsets;
+        this.positionCorners = positionCorners;
+    }
+
+    private MeshAdjacency(int[] indices, int[] cornerPositions, int numberOfPositions) {
+        this.indices = indices;
+        this.cornerPositions = cornerPositions;
+        this.numberOfPositions = numberOfPositions;
+
+        //2-group the corners by position, keeping the index order
+        this.positionOffsets = new int[numberOfPositions + 1];
+        for (int i = 0; i < cornerPositions.length; i++) {
+            this.positionOffsets[cornerPositions[i] + 1]++;
+        }
+        for (int i = 0; i < numberOfPositions; i++) {
+            this.positionOffsets[i + 1] += this.positionOffsets[i];
+        }
+
+        this.positionCorners = new int[cornerPositions.length];
+        int[] cursors = new int[numberOfPositions];
+        for (int i = 0; i < cornerPositions.length; i++) {
+            int position = cornerPositions[i];
+            this.positionCorners[this.positionOffsets[position] + cursors[position]] = i;
+            cursors[position]++;
+        }
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public int getNumberOfCorners() {
+        return this.indices.length;
+    }
+
+    public int getNumberOfTriangles() {
+        return this.indices.length / 3;
+    }
+
+    public int getNumberOfPositions() {
+        return numberOfPositions;
+    }
+
+    public int vertexOf(int corner) {
+        return this.indices[corner];
+    }
+
+    public int positionOf(int corner) {
+        return this.cornerPositions[corner];
+    }
+
+    public static int triangleOf(int corner) {
+        return corner / 3;
+    }
+
+    public static int nextCorner(int corner) {
+        return ((corner % 3) == 2 ? corner - 2 : corner + 1);
+    }
+
+    public static int previousCorner(int corner) {
+        return ((corner % 3) == 0 ? corner + 2 : corner - 1);
+    }
+
+    public int cornersStart(int position) {
+        return this.positionOffsets[position];
+    }
+
+    public int cornersEnd(int position) {
+        return this.positionOffsets[position + 1];
+    }
+
+    public int corner(int cornerIndex) {
+        return this.positionCorners[cornerIndex];
+    }
+
+    public boolean triangleHasPosition(int triangle, int position) {
+        return this.cornerPositions[(triangle * 3) + 0] == position
+                || this.cornerPositions[(triangle * 3) + 1] == position
+                || this.cornerPositions[(triangle * 3) + 2] == position;
+    }
+
+    //returns the first half edge of another triangle going the opposite way, or -1 if the edge is open
+    //on non manifold edges the twins may not be mutual, use isTwinOwner to visit each edge once
+    public int twinOf(int corner) {
+        int positionA = this.cornerPositions[corner];
+        int positionB = this.cornerPositions[nextCorner(corner)];
+        int triangle = triangleOf(corner);
+
+        int end = this.positionOffsets[positionB + 1];
+        for (int k = this.positionOffsets[positionB]; k < end; k++) {
+            int other = this.positionCorners[k];
+            if (triangleOf(other) == triangle) {
+                continue;
+            }
+            if (this.cornerPositions[nextCorner(other)] == positionA) {
+                return other;
+            }
+        }
+
+        return -1;
+    }
+
+    public boolean isTwinOwner(int corner, int twin) {
+        return twinOf(twin) != corner || corner < twin;
+    }
+
+    //half edges without a twin
+    public int countOpenEdges() {
+        int open = 0;
+        for (int i = 0; i < this.indices.length; i++) {
+            if (twinOf(i) == -1) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+}
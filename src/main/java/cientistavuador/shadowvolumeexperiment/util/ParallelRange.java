@@ -0,0 +1,102 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *
+ * @author Cien
+ */
+public class ParallelRange {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    @FunctionalInterface
+    public static interface ChunkConsumer {
+
+        public void accept(int chunk, int start, int end);
+    }
+
+    private static class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int length;
+        private final int chunkSize;
+        private final int firstChunk;
+        private final int lastChunk;
+        private final ChunkConsumer consumer;
+
+        public ChunkTask(int length, int chunkSize, int firstChunk, int lastChunk, ChunkConsumer consumer) {
+            this.length = length;
+            this.chunkSize = chunkSize;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if ((this.lastChunk - this.firstChunk) <= 1) {
+                for (int i = this.firstChunk; i < this.lastChunk; i++) {
+                    int start = i * this.chunkSize;
+                    int end = Math.min(start + this.chunkSize, this.length);
+                    this.consumer.accept(i, start, end);
+                }
+                return;
+            }
+            int middle = (this.firstChunk + this.lastChunk) >>> 1;
+            invokeAll(
+                    new ChunkTask(this.length, this.chunkSize, this.firstChunk, middle, this.consumer),
+                    new ChunkTask(this.length, this.chunkSize, middle, this.lastChunk, this.consumer)
+            );
+        }
+    }
+
+    public static int numberOfChunks(int length, int chunkSize) {
+        return (length + chunkSize - 1) / chunkSize;
+    }
+
+    //splits [0, length) in fixed chunks, so the chunk boundaries do not depend on the scheduling
+    public static void forEachChunk(int length, int chunkSize, ChunkConsumer consumer) {
+        int chunks = numberOfChunks(length, chunkSize);
+        if (chunks == 0) {
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(new ChunkTask(length, chunkSize, 0, chunks, consumer));
+    }
+
+    public static void forEachChunk(int length, ChunkConsumer consumer) {
+        forEachChunk(length, DEFAULT_CHUNK_SIZE, consumer);
+    }
+
+    private ParallelRange() {
+
+    }
+}
@@ -150,6 +150,60 @@ public class ProgramCompiler {
         return program;
     }
 
+    //vertex only program capturing the varyings interleaved in a single buffer, draw it with GL_RASTERIZER_DISCARD
+    public static int compileTransformFeedback(String vertexSource, String... varyings) {
+        String shaderName = null;
+        if (!ONLY_OUTPUT_ERRORS) {
+            StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+            for (int i = 0; i < stackTrace.length; i++) {
+                if (i == 0) {
+                    continue;
+                }
+                StackTraceElement e = stackTrace[i];
+                if (!e.getClassName().contains(ProgramCompiler.class.getName())) {
+                    shaderName = e.toString();
+                    System.out.println("Compiling shader in " + shaderName);
+                    break;
+                }
+            }
+        }
+        
+        int vertexShader = glCreateShader(GL_VERTEX_SHADER);
+        glShaderSource(vertexShader, vertexSource);
+        glCompileShader(vertexShader);
+
+        boolean vertexShaderFailed = glGetShaderi(vertexShader, GL_COMPILE_STATUS) != GL_TRUE;
+        if (!ONLY_OUTPUT_ERRORS && !vertexShaderFailed) {
+            System.out.println("Vertex Shader Debug Output -> \n" + glGetShaderInfoLog(vertexShader) + "\n-end-");
+        } else if (vertexShaderFailed) {
+            throw new RuntimeException("Vertex Shader Compilation Failed! -> \n" + glGetShaderInfoLog(vertexShader) + "\n-end-");
+        }
+        
+        int program = glCreateProgram();
+        
+        glAttachShader(program, vertexShader);
+        
+        //the varyings must be set before linking
+        glTransformFeedbackVaryings(program, varyings, GL_INTERLEAVED_ATTRIBS);
+        
+        glLinkProgram(program);
+        
+        boolean programLinkFailed = glGetProgrami(program, GL_LINK_STATUS) != GL_TRUE;
+        if (!ONLY_OUTPUT_ERRORS && !programLinkFailed) {
+            System.out.println("Program Debug Output -> \n" + glGetProgramInfoLog(program) + "\n-end-");
+        } else if (programLinkFailed) {
+            throw new RuntimeException("Program Link Failed! -> \n" + glGetProgramInfoLog(program) + "\n-end-");
+        }
+        
+        glDeleteShader(vertexShader);
+        
+        if (Main.DEBUG_ENABLED && shaderName != null && GL.getCapabilities().GL_KHR_debug) {
+            KHRDebug.glObjectLabel(KHRDebug.GL_PROGRAM, program, "Program_"+shaderName);
+        }
+        
+        return program;
+    }
+
     private ProgramCompiler() {
 
     }
@@ -0,0 +1,370 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 3D convex hull of a point cloud with the QuickHull algorithm.
+ *
+ * @author Cien
+ */
+public class QuickHull {
+
+    //the first 3 floats of a point must be the position XYZ
+    //returns the hull triangles as indices into the points, counter clockwise when seen from outside
+    //returns a empty array if the points are coplanar
+    public static int[] hull(float[] points, int pointSize) {
+        return new QuickHull(points, pointSize).build();
+    }
+
+    private final double[] points;
+    private final int numberOfPoints;
+    private final double epsilon;
+
+    //faces
+    private int[] faceVertices = new int[64 * 3];
+    private double[] facePlanes = new double[64 * 4];
+    private boolean[] faceAlive = new boolean[64];
+    private int[][] faceOutside = new int[64][];
+    private int[] faceOutsideCount = new int[64];
+    private int numberOfFaces = 0;
+
+    //directed edge to the face that owns it, only for alive faces
+    private final Map<Long, Integer> edges = new HashMap<>();
+
+    private QuickHull(float[] points, int pointSize) {
+        this.numberOfPoints = points.length / pointSize;
+        this.points = new double[this.numberOfPoints * 3];
+
+        double maxAbs = 0.0;
+        for (int i = 0; i < this.numberOfPoints; i++) {
+            for (int j = 0; j < 3; j++) {
+                double v = points[(i * pointSize) + j];
+                this.points[(i * 3) + j] = v;
+                maxAbs = Math.max(maxAbs, Math.abs(v));
+            }
+        }
+        this.epsilon = Math.max(maxAbs, 1.0) * 3.0 * Math.ulp(1f);
+    }
+
+    private double x(int p) {
+        return this.points[(p * 3) + 0];
+    }
+
+    private double y(int p) {
+        return this.points[(p * 3) + 1];
+    }
+
+    private double z(int p) {
+        return this.points[(p * 3) + 2];
+    }
+
+    private double distance(int face, int p) {
+        return (this.facePlanes[(face * 4) + 0] * x(p))
+                + (this.facePlanes[(face * 4) + 1] * y(p))
+                + (this.facePlanes[(face * 4) + 2] * z(p))
+                - this.facePlanes[(face * 4) + 3];
+    }
+
+    private static long edgeKey(int a, int b) {
+        return (((long) a) << 32) | (b & 0xFFFFFFFFL);
+    }
+
+    private int addFace(int a, int b, int c) {
+        int face = this.numberOfFaces;
+        if (face == this.faceAlive.length) {
+            int capacity = face * 2;
+            this.faceVertices = Arrays.copyOf(this.faceVertices, capacity * 3);
+            this.facePlanes = Arrays.copyOf(this.facePlanes, capacity * 4);
+            this.faceAlive = Arrays.copyOf(this.faceAlive, capacity);
+            this.faceOutside = Arrays.copyOf(this.faceOutside, capacity);
+            this.faceOutsideCount = Arrays.copyOf(this.faceOutsideCount, capacity);
+        }
+        this.numberOfFaces++;
+
+        this.faceVertices[(face * 3) + 0] = a;
+        this.faceVertices[(face * 3) + 1] = b;
+        this.faceVertices[(face * 3) + 2] = c;
+
+        double abX = x(b) - x(a);
+        double abY = y(b) - y(a);
+        double abZ = z(b) - z(a);
+        double acX = x(c) - x(a);
+        double acY = y(c) - y(a);
+        double acZ = z(c) - z(a);
+        double nX = (abY * acZ) - (abZ * acY);
+        double nY = (abZ * acX) - (abX * acZ);
+        double nZ = (abX * acY) - (abY * acX);
+        double length = Math.sqrt((nX * nX) + (nY * nY) + (nZ * nZ));
+        if (length != 0.0) {
+            nX /= length;
+            nY /= length;
+            nZ /= length;
+        }
+        this.facePlanes[(face * 4) + 0] = nX;
+        this.facePlanes[(face * 4) + 1] = nY;
+        this.facePlanes[(face * 4) + 2] = nZ;
+        this.facePlanes[(face * 4) + 3] = (nX * x(a)) + (nY * y(a)) + (nZ * z(a));
+
+        this.faceAlive[face] = true;
+        this.faceOutside[face] = null;
+        this.faceOutsideCount[face] = 0;
+
+        this.edges.put(edgeKey(a, b), face);
+        this.edges.put(edgeKey(b, c), face);
+        this.edges.put(edgeKey(c, a), face);
+
+        return face;
+    }
+
+    private void removeFace(int face) {
+        int a = this.faceVertices[(face * 3) + 0];
+        int b = this.faceVertices[(face * 3) + 1];
+        int c = this.faceVertices[(face * 3) + 2];
+        this.edges.remove(edgeKey(a, b));
+        this.edges.remove(edgeKey(b, c));
+        this.edges.remove(edgeKey(c, a));
+        this.faceAlive[face] = false;
+    }
+
+    private void addOutside(int face, int p) {
+        int[] outside = this.faceOutside[face];
+        int count = this.faceOutsideCount[face];
+        if (outside == null) {
+            outside = new int[8];
+        } else if (count == outside.length) {
+            outside = Arrays.copyOf(outside, count * 2);
+        }
+        outside[count] = p;
+        this.faceOutside[face] = outside;
+        this.faceOutsideCount[face] = count + 1;
+    }
+
+    //gives the point to the first face that can see it, points that no face can see are inside
+    private void assign(int p, int firstFace, int lastFace) {
+        for (int f = firstFace; f < lastFace; f++) {
+            if (this.faceAlive[f] && distance(f, p) > this.epsilon) {
+                addOutside(f, p);
+                return;
+            }
+        }
+    }
+
+    private int farthestFromLine(int a, int b) {
+        double dX = x(b) - x(a);
+        double dY = y(b) - y(a);
+        double dZ = z(b) - z(a);
+        int best = -1;
+        double bestDistance = 0.0;
+        for (int p = 0; p < this.numberOfPoints; p++) {
+            double pX = x(p) - x(a);
+            double pY = y(p) - y(a);
+            double pZ = z(p) - z(a);
+            double cX = (pY * dZ) - (pZ * dY);
+            double cY = (pZ * dX) - (pX * dZ);
+            double cZ = (pX * dY) - (pY * dX);
+            double distance = (cX * cX) + (cY * cY) + (cZ * cZ);
+            if (distance > bestDistance) {
+                bestDistance = distance;
+                best = p;
+            }
+        }
+        return best;
+    }
+
+    private int[] build() {
+        if (this.numberOfPoints < 4) {
+            return new int[0];
+        }
+
+        //1-initial tetrahedron from the extreme points
+        int[] extremes = new int[6];
+        for (int p = 1; p < this.numberOfPoints; p++) {
+            for (int j = 0; j < 3; j++) {
+                if (this.points[(p * 3) + j] < this.points[(extremes[j * 2] * 3) + j]) {
+                    extremes[j * 2] = p;
+                }
+                if (this.points[(p * 3) + j] > this.points[(extremes[(j * 2) + 1] * 3) + j]) {
+                    extremes[(j * 2) + 1] = p;
+                }
+            }
+        }
+        int a = -1;
+        int b = -1;
+        double bestDistance = -1.0;
+        for (int i = 0; i < 6; i++) {
+            for (int j = i + 1; j < 6; j++) {
+                double dX = x(extremes[i]) - x(extremes[j]);
+                double dY = y(extremes[i]) - y(extremes[j]);
+                double dZ = z(extremes[i]) - z(extremes[j]);
+                double distance = (dX * dX) + (dY * dY) + (dZ * dZ);
+                if (distance > bestDistance) {
+                    bestDistance = distance;
+                    a = extremes[i];
+                    b = extremes[j];
+                }
+            }
+        }
+        if (bestDistance <= (this.epsilon * this.epsilon)) {
+            return new int[0];
+        }
+        int c = farthestFromLine(a, b);
+        if (c == -1) {
+            return new int[0];
+        }
+
+        int base = addFace(a, b, c);
+        int d = -1;
+        double farthest = 0.0;
+        for (int p = 0; p < this.numberOfPoints; p++) {
+            double distance = Math.abs(distance(base, p));
+            if (distance > farthest) {
+                farthest = distance;
+                d = p;
+            }
+        }
+        if (d == -1 || farthest <= this.epsilon) {
+            return new int[0];
+        }
+
+        //the base must face away from the fourth point
+        if (distance(base, d) > 0.0) {
+            removeFace(base);
+            this.numberOfFaces = 0;
+            int swap = b;
+            b = c;
+            c = swap;
+            addFace(a, b, c);
+        }
+        addFace(a, d, b);
+        addFace(b, d, c);
+        addFace(c, d, a);
+
+        for (int p = 0; p < this.numberOfPoints; p++) {
+            if (p == a || p == b || p == c || p == d) {
+                continue;
+            }
+            assign(p, 0, this.numberOfFaces);
+        }
+
+        //2-add the farthest outside point of each face until no face has outside points
+        int[] visible = new int[64];
+        int[] horizon = new int[64];
+        int[] orphans = new int[64];
+        for (int face = 0; face < this.numberOfFaces; face++) {
+            while (this.faceAlive[face] && this.faceOutsideCount[face] > 0) {
+                int[] outside = this.faceOutside[face];
+                int eye = outside[0];
+                double eyeDistance = distance(face, eye);
+                for (int i = 1; i < this.faceOutsideCount[face]; i++) {
+                    double distance = distance(face, outside[i]);
+                    if (distance > eyeDistance) {
+                        eyeDistance = distance;
+                        eye = outside[i];
+                    }
+                }
+
+                //faces that can see the eye point
+                int numberOfVisible = 0;
+                for (int f = 0; f < this.numberOfFaces; f++) {
+                    if (this.faceAlive[f] && distance(f, eye) > this.epsilon) {
+                        if (numberOfVisible == visible.length) {
+                            visible = Arrays.copyOf(visible, numberOfVisible * 2);
+                        }
+                        visible[numberOfVisible++] = f;
+                    }
+                }
+
+                //edges between a visible face and a face that can not see the eye
+                int numberOfHorizon = 0;
+                for (int i = 0; i < numberOfVisible; i++) {
+                    int f = visible[i];
+                    for (int j = 0; j < 3; j++) {
+                        int u = this.faceVertices[(f * 3) + j];
+                        int v = this.faceVertices[(f * 3) + ((j + 1) % 3)];
+                        Integer neighbor = this.edges.get(edgeKey(v, u));
+                        if (neighbor != null && distance(neighbor, eye) > this.epsilon) {
+                            continue;
+                        }
+                        if ((numberOfHorizon + 2) > horizon.length) {
+                            horizon = Arrays.copyOf(horizon, horizon.length * 2);
+                        }
+                        horizon[numberOfHorizon++] = u;
+                        horizon[numberOfHorizon++] = v;
+                    }
+                }
+
+                int numberOfOrphans = 0;
+                for (int i = 0; i < numberOfVisible; i++) {
+                    int f = visible[i];
+                    for (int j = 0; j < this.faceOutsideCount[f]; j++) {
+                        int p = this.faceOutside[f][j];
+                        if (p == eye) {
+                            continue;
+                        }
+                        if (numberOfOrphans == orphans.length) {
+                            orphans = Arrays.copyOf(orphans, numberOfOrphans * 2);
+                        }
+                        orphans[numberOfOrphans++] = p;
+                    }
+                    removeFace(f);
+                    this.faceOutside[f] = null;
+                    this.faceOutsideCount[f] = 0;
+                }
+
+                int firstNewFace = this.numberOfFaces;
+                for (int i = 0; i < numberOfHorizon; i += 2) {
+                    addFace(horizon[i], horizon[i + 1], eye);
+                }
+                for (int i = 0; i < numberOfOrphans; i++) {
+                    assign(orphans[i], firstNewFace, this.numberOfFaces);
+                }
+            }
+        }
+
+        //3-done
+        int alive = 0;
+        for (int f = 0; f < this.numberOfFaces; f++) {
+            if (this.faceAlive[f]) {
+                alive++;
+            }
+        }
+        int[] triangles = new int[alive * 3];
+        int index = 0;
+        for (int f = 0; f < this.numberOfFaces; f++) {
+            if (this.faceAlive[f]) {
+                System.arraycopy(this.faceVertices, f * 3, triangles, index, 3);
+                index += 3;
+            }
+        }
+        return triangles;
+    }
+
+}
@@ -0,0 +1,343 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import cientistavuador.shadowvolumeexperiment.Main;
+import java.util.Arrays;
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * Draw commands sorted by a 64 bit key, the program, the textures, the state
+ * and the vao are only bound when they change from the previous command.
+ * <p>
+ * Key layout, from the most significant bits: pass, program, textures, state,
+ * vao and depth. The program and the vao are gl names bound by the queue, the
+ * textures and the state are ids bound by the {@link Binder} of the pass.
+ * <p>
+ * Commands are stored in flat arrays, the binder draws each one from its
+ * type, object, count, offset, base vertex and extrusion, so adding a command
+ * never allocates.
+ *
+ * @author Cien
+ */
+public class RenderQueue {
+
+    public static final int PASS_BITS = 4;
+    public static final int PROGRAM_BITS = 10;
+    public static final int TEXTURES_BITS = 8;
+    public static final int STATE_BITS = 8;
+    public static final int VAO_BITS = 14;
+    public static final int DEPTH_BITS = 20;
+
+    private static final int DEPTH_SHIFT = 0;
+    private static final int VAO_SHIFT = DEPTH_SHIFT + DEPTH_BITS;
+    private static final int STATE_SHIFT = VAO_SHIFT + VAO_BITS;
+    private static final int TEXTURES_SHIFT = STATE_SHIFT + STATE_BITS;
+    private static final int PROGRAM_SHIFT = TEXTURES_SHIFT + TEXTURES_BITS;
+    private static final int PASS_SHIFT = PROGRAM_SHIFT + PROGRAM_BITS;
+
+    public static final int INITIAL_CAPACITY = 256;
+
+    public static interface Binder {
+
+        //draws the command, the program and the vao of the key are bound and must not be changed
+        public void draw(RenderQueue queue, int command);
+
+        //the program was just bound, per frame uniforms can be sent here
+        public default void programChanged(int program) {
+
+        }
+
+        public default void texturesChanged(int textures) {
+
+        }
+
+        public default void stateChanged(int state) {
+
+        }
+    }
+
+    private static long field(String name, int value, int bits, int shift) {
+        if (value < 0 || value >= (1 << bits)) {
+            throw new IllegalArgumentException(name + " " + value + " does not fit in " + bits + " bits");
+        }
+        return ((long) value) << shift;
+    }
+
+    public static long key(int pass, int program, int textures, int state, int vao, int depth) {
+        return field("pass", pass, PASS_BITS, PASS_SHIFT)
+                | field("program", program, PROGRAM_BITS, PROGRAM_SHIFT)
+                | field("textures", textures, TEXTURES_BITS, TEXTURES_SHIFT)
+                | field("state", state, STATE_BITS, STATE_SHIFT)
+                | field("vao", vao, VAO_BITS, VAO_SHIFT)
+                | field("depth", depth, DEPTH_BITS, DEPTH_SHIFT);
+    }
+
+    private static int unpack(long key, int bits, int shift) {
+        return (int) ((key >>> shift) & ((1L << bits) - 1));
+    }
+
+    //quantized depth for front to back order, the bits of a positive float sort like the float
+    public static int depth(float distance) {
+        if (!(distance > 0f)) {
+            return 0;
+        }
+        return Float.floatToRawIntBits(distance) >>> (31 - DEPTH_BITS);
+    }
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] objects = new int[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private int[] baseVertices = new int[INITIAL_CAPACITY];
+    private float[] extrusions = new float[INITIAL_CAPACITY];
+    //x, y, width and height of each command, a negative width is no scissor
+    private int[] scissors = new int[INITIAL_CAPACITY * 4];
+    private int size = 0;
+
+    private long[] sortKeys = new long[INITIAL_CAPACITY];
+    private long[] tempKeys = new long[INITIAL_CAPACITY];
+    private int[] order = new int[INITIAL_CAPACITY];
+    private int[] tempOrder = new int[INITIAL_CAPACITY];
+    private final int[] histogram = new int[256];
+
+    private boolean sorted = true;
+
+    public RenderQueue() {
+
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    //if false, the commands are submitted in the order they were added
+    public void setSorted(boolean sorted) {
+        this.sorted = sorted;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //type and object tell the binder what to draw, like a mesh or a batch index
+    //offset is in bytes, scissor is copied and may be null
+    public void add(long key, int type, int object, int count, int offset, int baseVertex, float extrusion, int[] scissor) {
+        if (this.size == this.keys.length) {
+            int capacity = this.size * 2;
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.types = Arrays.copyOf(this.types, capacity);
+            this.objects = Arrays.copyOf(this.objects, capacity);
+            this.counts = Arrays.copyOf(this.counts, capacity);
+            this.offsets = Arrays.copyOf(this.offsets, capacity);
+            this.baseVertices = Arrays.copyOf(this.baseVertices, capacity);
+            this.extrusions = Arrays.copyOf(this.extrusions, capacity);
+            this.scissors = Arrays.copyOf(this.scissors, capacity * 4);
+            this.sortKeys = new long[capacity];
+            this.tempKeys = new long[capacity];
+            this.order = new int[capacity];
+            this.tempOrder = new int[capacity];
+        }
+        int command = this.size;
+        this.keys[command] = key;
+        this.types[command] = type;
+        this.objects[command] = object;
+        this.counts[command] = count;
+        this.offsets[command] = offset;
+        this.baseVertices[command] = baseVertex;
+        this.extrusions[command] = extrusion;
+        if (scissor != null) {
+            System.arraycopy(scissor, 0, this.scissors, command * 4, 4);
+        } else {
+            this.scissors[(command * 4) + 2] = -1;
+        }
+        this.size++;
+    }
+
+    //same as add without a scissor, extrusion and index range
+    public void add(long key, int type, int object) {
+        add(key, type, object, 0, 0, 0, 0f, null);
+    }
+
+    public int getType(int command) {
+        return this.types[command];
+    }
+
+    public int getObject(int command) {
+        return this.objects[command];
+    }
+
+    public int getCount(int command) {
+        return this.counts[command];
+    }
+
+    public int getOffset(int command) {
+        return this.offsets[command];
+    }
+
+    public int getBaseVertex(int command) {
+        return this.baseVertices[command];
+    }
+
+    public float getExtrusion(int command) {
+        return this.extrusions[command];
+    }
+
+    //lsd radix sort of the keys with 8 bit digits, digits equal in every key are skipped
+    private void sort() {
+        int length = this.size;
+        long[] srcKeys = this.sortKeys;
+        long[] dstKeys = this.tempKeys;
+        int[] srcOrder = this.order;
+        int[] dstOrder = this.tempOrder;
+
+        long allOr = 0;
+        long allAnd = -1L;
+        for (int i = 0; i < length; i++) {
+            long key = this.keys[i];
+            srcKeys[i] = key;
+            srcOrder[i] = i;
+            allOr |= key;
+            allAnd &= key;
+        }
+
+        if (!this.sorted) {
+            return;
+        }
+
+        long varying = allOr ^ allAnd;
+        for (int shift = 0; shift < Long.SIZE; shift += 8) {
+            if (((varying >>> shift) & 0xFF) == 0) {
+                continue;
+            }
+
+            Arrays.fill(this.histogram, 0);
+            for (int i = 0; i < length; i++) {
+                this.histogram[(int) ((srcKeys[i] >>> shift) & 0xFF)]++;
+            }
+            int sum = 0;
+            for (int i = 0; i < this.histogram.length; i++) {
+                int count = this.histogram[i];
+                this.histogram[i] = sum;
+                sum += count;
+            }
+            for (int i = 0; i < length; i++) {
+                long key = srcKeys[i];
+                int position = this.histogram[(int) ((key >>> shift) & 0xFF)]++;
+                dstKeys[position] = key;
+                dstOrder[position] = srcOrder[i];
+            }
+
+            long[] swapKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = swapKeys;
+            int[] swapOrder = srcOrder;
+            srcOrder = dstOrder;
+            dstOrder = swapOrder;
+        }
+
+        this.sortKeys = srcKeys;
+        this.tempKeys = dstKeys;
+        this.order = srcOrder;
+        this.tempOrder = dstOrder;
+    }
+
+    //sorts and draws every command then clears the queue, the program and the vao are unbound at the end
+    public void submit(Binder binder) {
+        sort();
+
+        int program = -1;
+        int textures = -1;
+        int state = -1;
+        int vao = -1;
+        int scissorX = -1;
+        int scissorY = -1;
+        int scissorWidth = -1;
+        int scissorHeight = -1;
+        int stateChanges = 0;
+
+        for (int i = 0; i < this.size; i++) {
+            long key = this.sortKeys[i];
+
+            int commandProgram = unpack(key, PROGRAM_BITS, PROGRAM_SHIFT);
+            if (commandProgram != program) {
+                program = commandProgram;
+                glUseProgram(program);
+                binder.programChanged(program);
+                stateChanges++;
+            }
+
+            int commandTextures = unpack(key, TEXTURES_BITS, TEXTURES_SHIFT);
+            if (commandTextures != textures) {
+                textures = commandTextures;
+                binder.texturesChanged(textures);
+                stateChanges++;
+            }
+
+            int commandState = unpack(key, STATE_BITS, STATE_SHIFT);
+            if (commandState != state) {
+                state = commandState;
+                binder.stateChanged(state);
+                stateChanges++;
+            }
+
+            int commandVao = unpack(key, VAO_BITS, VAO_SHIFT);
+            if (commandVao != vao) {
+                vao = commandVao;
+                glBindVertexArray(vao);
+                stateChanges++;
+            }
+
+            int command = this.order[i];
+            int scissor = command * 4;
+            if (this.scissors[scissor + 2] >= 0
+                    && (this.scissors[scissor + 0] != scissorX
+                    || this.scissors[scissor + 1] != scissorY
+                    || this.scissors[scissor + 2] != scissorWidth
+                    || this.scissors[scissor + 3] != scissorHeight)) {
+                scissorX = this.scissors[scissor + 0];
+                scissorY = this.scissors[scissor + 1];
+                scissorWidth = this.scissors[scissor + 2];
+                scissorHeight = this.scissors[scissor + 3];
+                glScissor(scissorX, scissorY, scissorWidth, scissorHeight);
+            }
+
+            binder.draw(this, command);
+        }
+
+        if (this.size != 0) {
+            glBindVertexArray(0);
+            glUseProgram(0);
+        }
+
+        Main.NUMBER_OF_STATE_CHANGES += stateChanges;
+
+        this.size = 0;
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Generates low detail meshes that only cast shadows: the convex hull of a
+ * mesh, or the convex hulls of pieces of it.
+ * <p>
+ * The proxy is inside out (reversed winding and normals), so its shadow
+ * volume starts at the back of the hull instead of enclosing it and the
+ * real mesh inside the hull is not shadowed by its own proxy.
+ *
+ * @author Cien
+ */
+public class ShadowProxyGenerator {
+
+    //the first 3 floats must be the position XYZ
+    //pieces is the number of convex hulls, the triangles are split in pieces of similar size along the longest axis
+    //returns flat shaded vertices in the same format (the other attributes are NaN) and the indices
+    public static Map.Entry<float[], int[]> generate(float[] vertices, int vertexSize, int[] indices, int pieces) {
+        int numberOfTriangles = indices.length / 3;
+        int[] triangles = new int[numberOfTriangles];
+        for (int i = 0; i < numberOfTriangles; i++) {
+            triangles[i] = i;
+        }
+
+        //1-split the triangles, always splitting the largest group in half
+        int[] groupStarts = new int[Math.max(pieces, 1) + 1];
+        int numberOfGroups = 1;
+        groupStarts[1] = numberOfTriangles;
+        while (numberOfGroups < pieces) {
+            int largest = 0;
+            for (int i = 1; i < numberOfGroups; i++) {
+                if ((groupStarts[i + 1] - groupStarts[i]) > (groupStarts[largest + 1] - groupStarts[largest])) {
+                    largest = i;
+                }
+            }
+            int start = groupStarts[largest];
+            int end = groupStarts[largest + 1];
+            if ((end - start) < 2) {
+                break;
+            }
+
+            int axis = longestAxis(vertices, vertexSize, indices, triangles, start, end);
+            float[] keys = new float[end - start];
+            for (int i = start; i < end; i++) {
+                keys[i - start] = centroid(vertices, vertexSize, indices, triangles[i], axis);
+            }
+            sortByKeys(triangles, keys, start, end);
+
+            System.arraycopy(groupStarts, largest + 1, groupStarts, largest + 2, numberOfGroups - largest);
+            groupStarts[largest + 1] = (start + end) >>> 1;
+            numberOfGroups++;
+        }
+
+        //2-hull each group
+        float[] outputVertices = new float[64 * vertexSize];
+        int outputVerticesIndex = 0;
+        for (int g = 0; g < numberOfGroups; g++) {
+            int start = groupStarts[g];
+            int end = groupStarts[g + 1];
+
+            float[] points = new float[(end - start) * 3 * 3];
+            int pointsIndex = 0;
+            for (int i = start; i < end; i++) {
+                for (int j = 0; j < 3; j++) {
+                    int vertex = indices[(triangles[i] * 3) + j];
+                    points[pointsIndex++] = vertices[(vertex * vertexSize) + 0];
+                    points[pointsIndex++] = vertices[(vertex * vertexSize) + 1];
+                    points[pointsIndex++] = vertices[(vertex * vertexSize) + 2];
+                }
+            }
+
+            int[] hull = QuickHull.hull(points, 3);
+            for (int i = 0; i < hull.length; i += 3) {
+                //reversed winding
+                int a = hull[i + 0];
+                int b = hull[i + 2];
+                int c = hull[i + 1];
+
+                float abX = points[(b * 3) + 0] - points[(a * 3) + 0];
+                float abY = points[(b * 3) + 1] - points[(a * 3) + 1];
+                float abZ = points[(b * 3) + 2] - points[(a * 3) + 2];
+                float acX = points[(c * 3) + 0] - points[(a * 3) + 0];
+                float acY = points[(c * 3) + 1] - points[(a * 3) + 1];
+                float acZ = points[(c * 3) + 2] - points[(a * 3) + 2];
+                float nX = (abY * acZ) - (abZ * acY);
+                float nY = (abZ * acX) - (abX * acZ);
+                float nZ = (abX * acY) - (abY * acX);
+                float length = (float) Math.sqrt((nX * nX) + (nY * nY) + (nZ * nZ));
+                if (length != 0f) {
+                    nX /= length;
+                    nY /= length;
+                    nZ /= length;
+                }
+
+                if ((outputVerticesIndex + (vertexSize * 3)) > outputVertices.length) {
+                    outputVertices = Arrays.copyOf(outputVertices, (outputVertices.length * 2) + (vertexSize * 3));
+                }
+                for (int vertex : new int[]{a, b, c}) {
+                    Arrays.fill(outputVertices, outputVerticesIndex, outputVerticesIndex + vertexSize, Float.NaN);
+                    outputVertices[outputVerticesIndex + 0] = points[(vertex * 3) + 0];
+                    outputVertices[outputVerticesIndex + 1] = points[(vertex * 3) + 1];
+                    outputVertices[outputVerticesIndex + 2] = points[(vertex * 3) + 2];
+                    outputVertices[outputVerticesIndex + 3] = nX;
+                    outputVertices[outputVerticesIndex + 4] = nY;
+                    outputVertices[outputVerticesIndex + 5] = nZ;
+                    outputVerticesIndex += vertexSize;
+                }
+            }
+        }
+
+        float[] compactVertices = Arrays.copyOf(outputVertices, outputVerticesIndex);
+
+        int[] outputIndices = new int[compactVertices.length / vertexSize];
+        for (int i = 0; i < outputIndices.length; i++) {
+            outputIndices[i] = i;
+        }
+
+        return Map.entry(
+                compactVertices,
+                outputIndices
+        );
+    }
+
+    private static float centroid(float[] vertices, int vertexSize, int[] indices, int triangle, int axis) {
+        return vertices[(indices[(triangle * 3) + 0] * vertexSize) + axis]
+                + vertices[(indices[(triangle * 3) + 1] * vertexSize) + axis]
+                + vertices[(indices[(triangle * 3) + 2] * vertexSize) + axis];
+    }
+
+    private static int longestAxis(float[] vertices, int vertexSize, int[] indices, int[] triangles, int start, int end) {
+        float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+        float[] max = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (int i = start; i < end; i++) {
+            for (int j = 0; j < 3; j++) {
+                int vertex = indices[(triangles[i] * 3) + j];
+                for (int axis = 0; axis < 3; axis++) {
+                    float v = vertices[(vertex * vertexSize) + axis];
+                    min[axis] = Math.min(min[axis], v);
+                    max[axis] = Math.max(max[axis], v);
+                }
+            }
+        }
+        int longest = 0;
+        for (int axis = 1; axis < 3; axis++) {
+            if ((max[axis] - min[axis]) > (max[longest] - min[longest])) {
+                longest = axis;
+            }
+        }
+        return longest;
+    }
+
+    private static void sortByKeys(int[] triangles, float[] keys, int start, int end) {
+        long[] packed = new long[end - start];
+        for (int i = 0; i < packed.length; i++) {
+            //sortable float bits in the high half, the original position in the low half
+            int bits = Float.floatToIntBits(keys[i]);
+            bits ^= ((bits >> 31) & 0x7FFFFFFF);
+            packed[i] = (((long) bits) << 32) | i;
+        }
+        Arrays.sort(packed);
+        int[] sorted = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            sorted[i] = triangles[start + ((int) packed[i])];
+        }
+        System.arraycopy(sorted, 0, triangles, start, sorted.length);
+    }
+
+    private ShadowProxyGenerator() {
+
+    }
+}
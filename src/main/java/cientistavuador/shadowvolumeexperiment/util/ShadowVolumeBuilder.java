@@ -0,0 +1,503 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A mesh and its shadow volume that can be edited one triangle at a time.
+ * <p>
+ * The builder keeps the vertices, the triangles and a table of the edges
+ * between edits, adding or removing a triangle only rebuilds the three edges
+ * of the triangle. The changed vertices and indices are tracked in pages of
+ * {@link #PAGE_SIZE} and flushed as ranges, so the cost of an edit follows
+ * the size of the edit and not the size of the mesh.
+ * <p>
+ * The indices are made of triangle slots and split in three regions, like
+ * the indices of a {@link ShadowVolumeMesh}: the caps, which are also the
+ * surface of the mesh, then one quad for each edge of each slot and then the
+ * triangle adjacency. An edge quad is written in the slot of the half edge
+ * going from the lower to the higher position id, the slot of its twin stays
+ * degenerate. Removed slots are degenerate and reused by later additions,
+ * the regions only move when the builder runs out of slots.
+ * <p>
+ * A vertex is freed when the last triangle using it is removed and reused by
+ * a later vertex.
+ *
+ * @author Cien
+ */
+public class ShadowVolumeBuilder {
+
+    public static final int QUADS_SIZE = 3 * 6;
+    public static final int ADJACENCY_SIZE = 3 * 2;
+    public static final int SLOT_SIZE = 3 + QUADS_SIZE + ADJACENCY_SIZE;
+    public static final int PAGE_SIZE = 64;
+
+    @FunctionalInterface
+    public static interface RangeConsumer {
+
+        public void accept(int offset, int count);
+    }
+
+    //vertices
+    private final int vertexSize;
+    private float[] vertices;
+    private int[] vertexPositions;
+    private int[] vertexReferences;
+    private int[] freeVertices;
+    private int numberOfFreeVertices = 0;
+    private int numberOfVertices = 0;
+    private final BitSet dirtyVertexPages = new BitSet();
+
+    //triangles
+    private int capacity;
+    private int[] triangleVertices;
+    private int[] freeTriangles;
+    private int numberOfFreeTriangles = 0;
+    private int numberOfSlots = 0;
+    private int numberOfTriangles = 0;
+
+    //undirected edges keyed by their two position ids, each one with a list of half edges (corners)
+    private long[] edgeKeys;
+    private int[] edgeTable;
+    private int[] edgeHeads;
+    private int numberOfEdges = 0;
+    private int[] cornerEdges;
+    private int[] cornerNext;
+
+    //output
+    private int[] indices;
+    private final BitSet dirtyIndexPages = new BitSet();
+
+    private int[] forward = new int[8];
+    private int[] backward = new int[8];
+
+    //the first 3 floats of a vertex must be the position XYZ and the next 3 floats the normal XYZ, must be flat shaded
+    public ShadowVolumeBuilder(int vertexSize, int vertexCapacity, int triangleCapacity) {
+        this.vertexSize = vertexSize;
+
+        vertexCapacity = Math.max(vertexCapacity, 16);
+        this.vertices = new float[vertexCapacity * vertexSize];
+        this.vertexPositions = new int[vertexCapacity];
+        this.vertexReferences = new int[vertexCapacity];
+        this.freeVertices = new int[vertexCapacity];
+
+        this.capacity = Math.max(triangleCapacity, 16);
+        this.triangleVertices = new int[this.capacity * 3];
+        this.freeTriangles = new int[this.capacity];
+        this.cornerEdges = new int[this.capacity * 3];
+        this.cornerNext = new int[this.capacity * 3];
+        this.indices = new int[this.capacity * SLOT_SIZE];
+
+        int edgeCapacity = Integer.highestOneBit(Math.max(this.capacity * 3, 8) * 2 - 1) << 1;
+        this.edgeKeys = new long[edgeCapacity / 2];
+        this.edgeHeads = new int[edgeCapacity / 2];
+        this.edgeTable = new int[edgeCapacity];
+    }
+
+    public int getVertexSize() {
+        return vertexSize;
+    }
+
+    public float[] getVertices() {
+        return vertices;
+    }
+
+    //vertices in use are always below this number
+    public int getNumberOfVertices() {
+        return numberOfVertices;
+    }
+
+    public int getVertexCapacity() {
+        return this.vertexPositions.length;
+    }
+
+    public int getNumberOfTriangles() {
+        return numberOfTriangles;
+    }
+
+    //number of triangle slots of the indices
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    //the surface is the start of the caps, includes the removed slots, which are degenerate
+    public int getCount() {
+        return this.numberOfSlots * 3;
+    }
+
+    //the volume starts at the caps and is followed by the quads of the slots in use
+    public int getVolumeCount() {
+        return (this.capacity * 3) + (this.numberOfSlots * QUADS_SIZE);
+    }
+
+    //the indices of the volume before the edge quads, z-pass skips them
+    public int getCapsCount() {
+        return this.capacity * 3;
+    }
+
+    //GL_TRIANGLES_ADJACENCY indices, like the ones of ShadowVolumeGenerator
+    public int getAdjacencyOffset() {
+        return this.capacity * (3 + QUADS_SIZE);
+    }
+
+    public int getAdjacencyCount() {
+        return this.numberOfSlots * ADJACENCY_SIZE;
+    }
+
+    //calls the consumers with the ranges of vertices and indices changed since the last call, in ascending order
+    public void flush(RangeConsumer vertexConsumer, RangeConsumer indexConsumer) {
+        flush(this.dirtyVertexPages, this.numberOfVertices, vertexConsumer);
+        flush(this.dirtyIndexPages, this.indices.length, indexConsumer);
+    }
+
+    private static void flush(BitSet dirtyPages, int length, RangeConsumer consumer) {
+        int page = dirtyPages.nextSetBit(0);
+        while (page != -1) {
+            int end = dirtyPages.nextClearBit(page);
+            int offset = page * PAGE_SIZE;
+            int count = Math.min(end * PAGE_SIZE, length) - offset;
+            if (count > 0) {
+                consumer.accept(offset, count);
+            }
+            page = dirtyPages.nextSetBit(end);
+        }
+        dirtyPages.clear();
+    }
+
+    private void markDirty(int offset, int count) {
+        this.dirtyIndexPages.set(offset / PAGE_SIZE, ((offset + count - 1) / PAGE_SIZE) + 1);
+    }
+
+    private void growVertices() {
+        int capacity = this.vertexPositions.length * 2;
+        this.vertices = Arrays.copyOf(this.vertices, capacity * this.vertexSize);
+        this.vertexPositions = Arrays.copyOf(this.vertexPositions, capacity);
+        this.vertexReferences = Arrays.copyOf(this.vertexReferences, capacity);
+        this.freeVertices = Arrays.copyOf(this.freeVertices, capacity);
+    }
+
+    //position is the position id of the vertex, like the ones of VertexWelder, the vertex must be used by a triangle
+    public int addVertex(float[] vertex, int offset, int position) {
+        int index;
+        if (this.numberOfFreeVertices > 0) {
+            this.numberOfFreeVertices--;
+            index = this.freeVertices[this.numberOfFreeVertices];
+        } else {
+            if (this.numberOfVertices == this.vertexPositions.length) {
+                growVertices();
+            }
+            index = this.numberOfVertices;
+            this.numberOfVertices++;
+        }
+
+        System.arraycopy(vertex, offset, this.vertices, index * this.vertexSize, this.vertexSize);
+        this.vertexPositions[index] = position;
+        this.vertexReferences[index] = 0;
+        this.dirtyVertexPages.set(index / PAGE_SIZE);
+
+        return index;
+    }
+
+    private void releaseVertex(int vertex) {
+        this.vertexReferences[vertex]--;
+        if (this.vertexReferences[vertex] == 0) {
+            this.freeVertices[this.numberOfFreeVertices] = vertex;
+            this.numberOfFreeVertices++;
+        }
+    }
+
+    private int capOffset(int triangle) {
+        return triangle * 3;
+    }
+
+    private int quadOffset(int corner) {
+        return (this.capacity * 3) + (MeshAdjacency.triangleOf(corner) * QUADS_SIZE) + ((corner % 3) * 6);
+    }
+
+    private int adjacencyOffset(int corner) {
+        return getAdjacencyOffset() + (corner * 2);
+    }
+
+    //the regions move to the new capacity, so every index is dirty
+    private void growTriangles() {
+        int oldCapacity = this.capacity;
+        int newCapacity = oldCapacity * 2;
+
+        int[] newIndices = new int[newCapacity * SLOT_SIZE];
+        System.arraycopy(this.indices, 0, newIndices, 0, oldCapacity * 3);
+        System.arraycopy(this.indices, oldCapacity * 3, newIndices, newCapacity * 3, oldCapacity * QUADS_SIZE);
+        System.arraycopy(this.indices, oldCapacity * (3 + QUADS_SIZE), newIndices, newCapacity * (3 + QUADS_SIZE), oldCapacity * ADJACENCY_SIZE);
+
+        this.capacity = newCapacity;
+        this.indices = newIndices;
+        this.triangleVertices = Arrays.copyOf(this.triangleVertices, newCapacity * 3);
+        this.freeTriangles = Arrays.copyOf(this.freeTriangles, newCapacity);
+        this.cornerEdges = Arrays.copyOf(this.cornerEdges, newCapacity * 3);
+        this.cornerNext = Arrays.copyOf(this.cornerNext, newCapacity * 3);
+
+        markDirty(0, newIndices.length);
+    }
+
+    private static int hash(long key) {
+        key ^= (key >>> 33);
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= (key >>> 33);
+        return (int) key;
+    }
+
+    private void growEdges() {
+        int capacity = this.edgeTable.length * 2;
+        int mask = capacity - 1;
+        this.edgeKeys = Arrays.copyOf(this.edgeKeys, capacity / 2);
+        this.edgeHeads = Arrays.copyOf(this.edgeHeads, capacity / 2);
+        this.edgeTable = new int[capacity];
+        for (int i = 0; i < this.numberOfEdges; i++) {
+            int slot = hash(this.edgeKeys[i]) & mask;
+            while (this.edgeTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.edgeTable[slot] = i + 1;
+        }
+    }
+
+    //edges are never removed from the table, an edge without triangles just has a empty list
+    private int edgeOf(int positionA, int positionB) {
+        long key = (((long) Math.min(positionA, positionB)) << 32) | (Math.max(positionA, positionB) & 0xFFFFFFFFL);
+
+        int mask = this.edgeTable.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int entry = this.edgeTable[slot];
+            if (entry == 0) {
+                break;
+            }
+            if (this.edgeKeys[entry - 1] == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if ((this.numberOfEdges + 1) > (this.edgeTable.length / 2)) {
+            growEdges();
+            return edgeOf(positionA, positionB);
+        }
+
+        int edge = this.numberOfEdges;
+        this.numberOfEdges++;
+        this.edgeKeys[edge] = key;
+        this.edgeHeads[edge] = -1;
+        this.edgeTable[slot] = edge + 1;
+        return edge;
+    }
+
+    private int positionOfCorner(int corner) {
+        return this.vertexPositions[this.triangleVertices[corner]];
+    }
+
+    //the opposite vertex across the edge of the corner, the triangle itself while the edge is open
+    private void writeAdjacency(int corner, int twin) {
+        int opposite = this.triangleVertices[MeshAdjacency.previousCorner((twin == -1 ? corner : twin))];
+        int offset = adjacencyOffset(corner);
+        this.indices[offset + 0] = this.triangleVertices[corner];
+        this.indices[offset + 1] = opposite;
+        markDirty(offset, 2);
+    }
+
+    public int addTriangle(int v0, int v1, int v2) {
+        int triangle;
+        if (this.numberOfFreeTriangles > 0) {
+            this.numberOfFreeTriangles--;
+            triangle = this.freeTriangles[this.numberOfFreeTriangles];
+        } else {
+            if (this.numberOfSlots == this.capacity) {
+                growTriangles();
+            }
+            triangle = this.numberOfSlots;
+            this.numberOfSlots++;
+        }
+        this.numberOfTriangles++;
+
+        this.triangleVertices[(triangle * 3) + 0] = v0;
+        this.triangleVertices[(triangle * 3) + 1] = v1;
+        this.triangleVertices[(triangle * 3) + 2] = v2;
+        this.vertexReferences[v0]++;
+        this.vertexReferences[v1]++;
+        this.vertexReferences[v2]++;
+
+        int cap = capOffset(triangle);
+        this.indices[cap + 0] = v0;
+        this.indices[cap + 1] = v1;
+        this.indices[cap + 2] = v2;
+        markDirty(cap, 3);
+
+        for (int j = 0; j < 3; j++) {
+            int corner = (triangle * 3) + j;
+            writeAdjacency(corner, -1);
+
+            int positionA = positionOfCorner(corner);
+            int positionB = positionOfCorner(MeshAdjacency.nextCorner(corner));
+            if (positionA == positionB) {
+                this.cornerEdges[corner] = -1;
+                int quad = quadOffset(corner);
+                Arrays.fill(this.indices, quad, quad + 6, 0);
+                markDirty(quad, 6);
+                continue;
+            }
+            int edge = edgeOf(positionA, positionB);
+            this.cornerEdges[corner] = edge;
+            this.cornerNext[corner] = this.edgeHeads[edge];
+            this.edgeHeads[edge] = corner;
+        }
+
+        for (int j = 0; j < 3; j++) {
+            int edge = this.cornerEdges[(triangle * 3) + j];
+            if (edge != -1) {
+                rebuildEdge(edge);
+            }
+        }
+
+        return triangle;
+    }
+
+    public void removeTriangle(int triangle) {
+        if (triangle < 0 || triangle >= this.numberOfSlots || this.triangleVertices[triangle * 3] == -1) {
+            throw new IllegalArgumentException("Triangle " + triangle + " does not exist.");
+        }
+
+        for (int j = 0; j < 3; j++) {
+            int corner = (triangle * 3) + j;
+            int edge = this.cornerEdges[corner];
+            if (edge == -1) {
+                continue;
+            }
+            int previous = -1;
+            for (int c = this.edgeHeads[edge]; c != -1; c = this.cornerNext[c]) {
+                if (c == corner) {
+                    if (previous == -1) {
+                        this.edgeHeads[edge] = this.cornerNext[c];
+                    } else {
+                        this.cornerNext[previous] = this.cornerNext[c];
+                    }
+                    break;
+                }
+                previous = c;
+            }
+            this.cornerEdges[corner] = -1;
+            rebuildEdge(edge);
+        }
+
+        for (int j = 0; j < 3; j++) {
+            int corner = (triangle * 3) + j;
+            releaseVertex(this.triangleVertices[corner]);
+            this.triangleVertices[corner] = -1;
+
+            int quad = quadOffset(corner);
+            Arrays.fill(this.indices, quad, quad + 6, 0);
+            markDirty(quad, 6);
+
+            int adjacency = adjacencyOffset(corner);
+            Arrays.fill(this.indices, adjacency, adjacency + 2, 0);
+            markDirty(adjacency, 2);
+        }
+
+        int cap = capOffset(triangle);
+        Arrays.fill(this.indices, cap, cap + 3, 0);
+        markDirty(cap, 3);
+
+        this.freeTriangles[this.numberOfFreeTriangles] = triangle;
+        this.numberOfFreeTriangles++;
+        this.numberOfTriangles--;
+    }
+
+    private boolean sameNormal(int vA, int vB) {
+        int a = (vA * this.vertexSize) + 3;
+        int b = (vB * this.vertexSize) + 3;
+        return this.vertices[a + 0] == this.vertices[b + 0]
+                && this.vertices[a + 1] == this.vertices[b + 1]
+                && this.vertices[a + 2] == this.vertices[b + 2];
+    }
+
+    //pairs the half edges going from the lower to the higher position with the ones going back, in list order
+    //unpaired half edges are open and get no quad, like in ShadowVolumeGenerator
+    private void rebuildEdge(int edge) {
+        int numberOfForward = 0;
+        int numberOfBackward = 0;
+        for (int c = this.edgeHeads[edge]; c != -1; c = this.cornerNext[c]) {
+            int offset = quadOffset(c);
+            Arrays.fill(this.indices, offset, offset + 6, 0);
+            markDirty(offset, 6);
+            writeAdjacency(c, -1);
+
+            if (positionOfCorner(c) < positionOfCorner(MeshAdjacency.nextCorner(c))) {
+                if (numberOfForward == this.forward.length) {
+                    this.forward = Arrays.copyOf(this.forward, numberOfForward * 2);
+                }
+                this.forward[numberOfForward++] = c;
+            } else {
+                if (numberOfBackward == this.backward.length) {
+                    this.backward = Arrays.copyOf(this.backward, numberOfBackward * 2);
+                }
+                this.backward[numberOfBackward++] = c;
+            }
+        }
+
+        int pairs = Math.min(numberOfForward, numberOfBackward);
+        for (int i = 0; i < pairs; i++) {
+            int corner = this.forward[i];
+            int twin = this.backward[i];
+
+            writeAdjacency(corner, twin);
+            writeAdjacency(twin, corner);
+
+            int aI = this.triangleVertices[corner];
+            int bI = this.triangleVertices[MeshAdjacency.nextCorner(corner)];
+            int bT = this.triangleVertices[twin];
+            int aT = this.triangleVertices[MeshAdjacency.nextCorner(twin)];
+
+            //both sides always extrude together, the quad would never have any area
+            if (sameNormal(aI, aT) && sameNormal(bI, bT)) {
+                continue;
+            }
+
+            int offset = quadOffset(corner);
+            this.indices[offset + 0] = aI;
+            this.indices[offset + 1] = bT;
+            this.indices[offset + 2] = bI;
+
+            this.indices[offset + 3] = bT;
+            this.indices[offset + 4] = aI;
+            this.indices[offset + 5] = aT;
+        }
+    }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores generated shadow volume meshes on disk, the file name is the hash
+ * of the input vertices, the input indices and everything else that changes
+ * the output.
+ *
+ * @author Cien
+ */
+public class ShadowVolumeCache {
+
+    public static final boolean ENABLED = true;
+    public static final Path DIRECTORY = Path.of(System.getProperty("user.home"), ".shadowvolumeexperiment", "cache");
+    public static final int MAGIC = 0x53564331;
+    public static final String EXTENSION = ".svc";
+
+    //same as ShadowVolumeMesh.generate but reads the result from the cache directory if it was already generated
+    public static ShadowVolumeMesh get(float[] vertices, int vertexSize, int[] indices, float epsilon) {
+        if (!ENABLED) {
+            return ShadowVolumeMesh.generate(vertices, vertexSize, indices, epsilon);
+        }
+
+        String key = key(vertices, vertexSize, indices, epsilon);
+        Path file = DIRECTORY.resolve(key + EXTENSION);
+
+        if (Files.isRegularFile(file)) {
+            try {
+                ShadowVolumeMesh mesh = read(file);
+                if (mesh != null) {
+                    return mesh;
+                }
+                System.err.println("Invalid shadow volume cache file " + file + ", regenerating.");
+            } catch (IOException | RuntimeException ex) {
+                System.err.println("Failed to read shadow volume cache file " + file + ": " + ex);
+            }
+        }
+
+        ShadowVolumeMesh mesh = ShadowVolumeMesh.generate(vertices, vertexSize, indices, epsilon);
+        try {
+            write(file, mesh);
+        } catch (IOException ex) {
+            System.err.println("Failed to write shadow volume cache file " + file + ": " + ex);
+        }
+        return mesh;
+    }
+
+    private static long mix(long h) {
+        h ^= (h >>> 33);
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= (h >>> 33);
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+
+    //128 bit hash with two independent 64 bit lanes, a plain loop is compiled by the jit quickly while a
+    //MessageDigest takes a few hundred milliseconds to warm up, which is most of the startup time saved by a hit
+    private static String key(float[] vertices, int vertexSize, int[] indices, float epsilon) {
+        int[] header = {
+            MAGIC,
+            ShadowVolumeGenerator.VERSION,
+            ShadowVolumeGenerator.UNIQUE_EDGES ? 1 : 0,
+            vertexSize,
+            Float.floatToIntBits(epsilon),
+            vertices.length,
+            indices.length
+        };
+
+        long h1 = 0x243F6A8885A308D3L;
+        long h2 = 0x13198A2E03707344L;
+        for (int value : header) {
+            h1 = Long.rotateLeft(h1 ^ (value * 0x87C37B91114253D5L), 31) * 0x4CF5AD432745937FL;
+            h2 = Long.rotateLeft(h2 + (value * 0x4CF5AD432745937FL), 33) * 0x87C37B91114253D5L;
+        }
+        for (float f : vertices) {
+            int value = Float.floatToIntBits(f);
+            h1 = Long.rotateLeft(h1 ^ (value * 0x87C37B91114253D5L), 31) * 0x4CF5AD432745937FL;
+            h2 = Long.rotateLeft(h2 + (value * 0x4CF5AD432745937FL), 33) * 0x87C37B91114253D5L;
+        }
+        for (int value : indices) {
+            h1 = Long.rotateLeft(h1 ^ (value * 0x87C37B91114253D5L), 31) * 0x4CF5AD432745937FL;
+            h2 = Long.rotateLeft(h2 + (value * 0x4CF5AD432745937FL), 33) * 0x87C37B91114253D5L;
+        }
+        h1 = mix(h1 + h2);
+        h2 = mix(h2 + h1);
+
+        return String.format("%016x%016x", h1, h2);
+    }
+
+    //returns null if the file is not a valid cache file
+    private static ShadowVolumeMesh read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapped.remaining() < (Integer.BYTES * 8) || mapped.getInt() != MAGIC || mapped.getInt() != ShadowVolumeGenerator.VERSION) {
+                return null;
+            }
+
+            int mergedVertices = mapped.getInt();
+            int removedVertices = mapped.getInt();
+            int openEdges = mapped.getInt();
+            float acmrBefore = mapped.getFloat();
+            float atvrBefore = mapped.getFloat();
+            boolean sharedEdgeIndices = mapped.getInt() != 0;
+
+            float[] vertices = new float[checkLength(mapped, mapped.getInt())];
+            mapped.asFloatBuffer().get(vertices);
+            mapped.position(mapped.position() + (vertices.length * Float.BYTES));
+
+            int[] indices = readInts(mapped);
+            int[] volumeIndices = readInts(mapped);
+            int[] adjacencyIndices = readInts(mapped);
+            int[] edgeIndices = (sharedEdgeIndices ? volumeIndices : readInts(mapped));
+
+            return new ShadowVolumeMesh(
+                    vertices, indices, volumeIndices, adjacencyIndices, edgeIndices,
+                    mergedVertices, removedVertices, openEdges,
+                    acmrBefore, atvrBefore
+            );
+        }
+    }
+
+    private static int checkLength(ByteBuffer buffer, int length) throws IOException {
+        if (length < 0 || length > (buffer.remaining() / Integer.BYTES)) {
+            throw new IOException("Truncated file.");
+        }
+        return length;
+    }
+
+    private static int[] readInts(ByteBuffer buffer) throws IOException {
+        int[] array = new int[checkLength(buffer, buffer.getInt())];
+        buffer.asIntBuffer().get(array);
+        buffer.position(buffer.position() + (array.length * Integer.BYTES));
+        return array;
+    }
+
+    private static void write(Path file, ShadowVolumeMesh mesh) throws IOException {
+        boolean sharedEdgeIndices = mesh.getEdgeIndices() == mesh.getVolumeIndices();
+
+        long size = Integer.BYTES * 8L
+                + Integer.BYTES + (mesh.getVertices().length * (long) Float.BYTES)
+                + Integer.BYTES + (mesh.getIndices().length * (long) Integer.BYTES)
+                + Integer.BYTES + (mesh.getVolumeIndices().length * (long) Integer.BYTES)
+                + Integer.BYTES + (mesh.getAdjacencyIndices().length * (long) Integer.BYTES)
+                + (sharedEdgeIndices ? 0 : Integer.BYTES + (mesh.getEdgeIndices().length * (long) Integer.BYTES));
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer
+                .putInt(MAGIC)
+                .putInt(ShadowVolumeGenerator.VERSION)
+                .putInt(mesh.getMergedVertices())
+                .putInt(mesh.getRemovedVertices())
+                .putInt(mesh.getOpenEdges())
+                .putFloat(mesh.getACMRBefore())
+                .putFloat(mesh.getATVRBefore())
+                .putInt(sharedEdgeIndices ? 1 : 0);
+
+        buffer.putInt(mesh.getVertices().length);
+        buffer.asFloatBuffer().put(mesh.getVertices());
+        buffer.position(buffer.position() + (mesh.getVertices().length * Float.BYTES));
+
+        writeInts(buffer, mesh.getIndices());
+        writeInts(buffer, mesh.getVolumeIndices());
+        writeInts(buffer, mesh.getAdjacencyIndices());
+        if (!sharedEdgeIndices) {
+            writeInts(buffer, mesh.getEdgeIndices());
+        }
+        buffer.flip();
+
+        //write to a temporary file first so a crash never leaves a partial file with a valid name
+        Files.createDirectories(DIRECTORY);
+        Path temporary = Files.createTempFile(DIRECTORY, null, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writeInts(ByteBuffer buffer, int[] array) {
+        buffer.putInt(array.length);
+        buffer.asIntBuffer().put(array);
+        buffer.position(buffer.position() + (array.length * Integer.BYTES));
+    }
+
+    private ShadowVolumeCache() {
+
+    }
+}
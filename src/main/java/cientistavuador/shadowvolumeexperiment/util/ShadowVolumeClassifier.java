@@ -0,0 +1,215 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+
+/**
+ * Chooses between z-pass and z-fail for each shadow caster of a directional
+ * or point light.
+ * <p>
+ * z-pass only breaks when a shadow volume crosses the near plane rectangle
+ * of the camera. A volume can only do that if its caster is inside the
+ * region swept by the near plane rectangle towards the light, the classifier
+ * tests the caster bounding box against the planes of that region. For a
+ * point light that region is the pyramid between the rectangle and the
+ * light position. The test is conservative: a box that is not separated by
+ * any plane is reported as z-fail even if it misses the region.
+ *
+ * @author Cien
+ */
+public class ShadowVolumeClassifier {
+
+    //how much the planes are pushed out, covers the precision of the near plane corners
+    public static final float MARGIN = 0.01f;
+    //below this the near plane is considered parallel to the light and is not used as a plane
+    public static final float PARALLEL_EPSILON = 0.0001f;
+
+    public static final int MAX_PLANES = 5;
+
+    private static final int[] CORNERS = {
+        Matrix4fc.CORNER_NXNYNZ,
+        Matrix4fc.CORNER_PXNYNZ,
+        Matrix4fc.CORNER_PXPYNZ,
+        Matrix4fc.CORNER_NXPYNZ
+    };
+
+    //a * x + b * y + c * z + d >= 0 is inside
+    private final float[] planes = new float[MAX_PLANES * 4];
+    private int numberOfPlanes = 0;
+
+    private final Vector3f[] corners = {
+        new Vector3f(), new Vector3f(), new Vector3f(), new Vector3f()
+    };
+    private final Vector3f center = new Vector3f();
+    private final Vector3f inside = new Vector3f();
+    private final Vector3f edge = new Vector3f();
+    private final Vector3f normal = new Vector3f();
+
+    public ShadowVolumeClassifier() {
+
+    }
+
+    public int getNumberOfPlanes() {
+        return numberOfPlanes;
+    }
+
+    private void nearRectangle(Matrix4fc projectionView) {
+        this.numberOfPlanes = 0;
+
+        this.center.zero();
+        for (int i = 0; i < CORNERS.length; i++) {
+            projectionView.frustumCorner(CORNERS[i], this.corners[i]);
+            this.center.add(this.corners[i]);
+        }
+        this.center.div(CORNERS.length);
+    }
+
+    //lightDirection is the direction the light travels, like DirectionalLight.getDirection
+    public void update(Matrix4fc projectionView, Vector3fc lightDirection) {
+        nearRectangle(projectionView);
+
+        float lX = lightDirection.x();
+        float lY = lightDirection.y();
+        float lZ = lightDirection.z();
+        float lLength = (float) Math.sqrt((lX * lX) + (lY * lY) + (lZ * lZ));
+        if (lLength == 0f) {
+            return;
+        }
+        lX /= lLength;
+        lY /= lLength;
+        lZ /= lLength;
+
+        //the sides, each one contains a edge of the rectangle and the light direction
+        for (int i = 0; i < CORNERS.length; i++) {
+            Vector3f a = this.corners[i];
+            Vector3f b = this.corners[(i + 1) % CORNERS.length];
+            b.sub(a, this.edge).cross(lX, lY, lZ, this.normal);
+            addPlane(this.normal, a, this.center);
+        }
+
+        //the near plane, the region is on the side the light comes from
+        this.corners[1].sub(this.corners[0], this.edge)
+                .cross(this.corners[3].x() - this.corners[0].x(), this.corners[3].y() - this.corners[0].y(), this.corners[3].z() - this.corners[0].z(), this.normal);
+        float normalLength = this.normal.length();
+        if (normalLength != 0f) {
+            this.normal.div(normalLength);
+            float facing = this.normal.dot(lX, lY, lZ);
+            if (Math.abs(facing) > PARALLEL_EPSILON) {
+                if (facing > 0f) {
+                    this.normal.negate();
+                }
+                putPlane(this.normal, this.corners[0]);
+            }
+        }
+    }
+
+    public void updatePoint(Matrix4fc projectionView, Vector3fc lightPosition) {
+        nearRectangle(projectionView);
+
+        //a point between the rectangle and the light is inside the pyramid
+        this.inside.set(this.center).add(lightPosition).mul(0.5f);
+
+        //the sides, each one contains a edge of the rectangle and the light position
+        for (int i = 0; i < CORNERS.length; i++) {
+            Vector3f a = this.corners[i];
+            Vector3f b = this.corners[(i + 1) % CORNERS.length];
+            b.sub(a, this.edge).cross(
+                    lightPosition.x() - a.x(), lightPosition.y() - a.y(), lightPosition.z() - a.z(),
+                    this.normal
+            );
+            addPlane(this.normal, a, this.inside);
+        }
+
+        //the near plane, the pyramid is on the side of the light
+        this.corners[1].sub(this.corners[0], this.edge)
+                .cross(this.corners[3].x() - this.corners[0].x(), this.corners[3].y() - this.corners[0].y(), this.corners[3].z() - this.corners[0].z(), this.normal);
+        float normalLength = this.normal.length();
+        if (normalLength != 0f) {
+            this.normal.div(normalLength);
+            float side = this.normal.dot(
+                    lightPosition.x() - this.corners[0].x(),
+                    lightPosition.y() - this.corners[0].y(),
+                    lightPosition.z() - this.corners[0].z()
+            );
+            //a light on the near plane gives a flat pyramid, the sides alone still bound it
+            if (Math.abs(side) > PARALLEL_EPSILON) {
+                if (side < 0f) {
+                    this.normal.negate();
+                }
+                putPlane(this.normal, this.corners[0]);
+            }
+        }
+    }
+
+    //normal does not need to be normalized, it is flipped to have the reference point inside
+    private void addPlane(Vector3f normal, Vector3fc point, Vector3fc inside) {
+        float length = normal.length();
+        if (length <= PARALLEL_EPSILON) {
+            //the edge is parallel to the light, the other planes still bound the region
+            return;
+        }
+        normal.div(length);
+        if (normal.dot(inside.x() - point.x(), inside.y() - point.y(), inside.z() - point.z()) < 0f) {
+            normal.negate();
+        }
+        putPlane(normal, point);
+    }
+
+    private void putPlane(Vector3fc normal, Vector3fc point) {
+        int p = this.numberOfPlanes * 4;
+        this.planes[p + 0] = normal.x();
+        this.planes[p + 1] = normal.y();
+        this.planes[p + 2] = normal.z();
+        this.planes[p + 3] = -normal.dot(point) + MARGIN;
+        this.numberOfPlanes++;
+    }
+
+    //true if the volume of a caster inside this world space box may cross the near plane
+    public boolean requiresZFail(Vector3fc min, Vector3fc max) {
+        for (int i = 0; i < this.numberOfPlanes; i++) {
+            int p = i * 4;
+            float a = this.planes[p + 0];
+            float b = this.planes[p + 1];
+            float c = this.planes[p + 2];
+            float d = this.planes[p + 3];
+
+            //the corner of the box furthest along the plane normal
+            float x = (a >= 0f ? max.x() : min.x());
+            float y = (b >= 0f ? max.y() : min.y());
+            float z = (c >= 0f ? max.z() : min.z());
+
+            if (((a * x) + (b * y) + (c * z) + d) < 0f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import org.joml.Matrix4fc;
+import org.joml.Vector3fc;
+import org.joml.Vector4f;
+
+/**
+ * Culls shadow volumes of a directional or point light against the camera
+ * frustum.
+ * <p>
+ * A volume is inside the convex hull of the caster bounding box and the same
+ * box moved by the extrusion, a plane separates that hull only if it
+ * separates both boxes, so each frustum plane is tested against the box
+ * and its extruded copy. A point light extrusion scales the box around the
+ * light position, every point of the volume is between a point of the box
+ * and its scaled copy, so the same test holds with the scaled box.
+ *
+ * @author Cien
+ */
+public class ShadowVolumeCuller {
+
+    private static final int[] PLANES = {
+        Matrix4fc.PLANE_NX, Matrix4fc.PLANE_PX,
+        Matrix4fc.PLANE_NY, Matrix4fc.PLANE_PY,
+        Matrix4fc.PLANE_NZ, Matrix4fc.PLANE_PZ
+    };
+
+    //a * x + b * y + c * z + d >= 0 is inside
+    private final float[] planes = new float[PLANES.length * 4];
+    //how much each plane distance changes along one unit of the extrusion
+    private final float[] extrusions = new float[PLANES.length];
+
+    private final Vector4f plane = new Vector4f();
+
+    private boolean pointLight = false;
+    private float lightX = 0f;
+    private float lightY = 0f;
+    private float lightZ = 0f;
+
+    public ShadowVolumeCuller() {
+
+    }
+
+    public void update(Matrix4fc projectionView, Vector3fc lightDirection) {
+        this.pointLight = false;
+        for (int i = 0; i < PLANES.length; i++) {
+            projectionView.frustumPlane(PLANES[i], this.plane);
+            this.planes[(i * 4) + 0] = this.plane.x();
+            this.planes[(i * 4) + 1] = this.plane.y();
+            this.planes[(i * 4) + 2] = this.plane.z();
+            this.planes[(i * 4) + 3] = this.plane.w();
+            this.extrusions[i] = (
+                    (this.plane.x() * lightDirection.x())
+                    + (this.plane.y() * lightDirection.y())
+                    + (this.plane.z() * lightDirection.z())
+                    );
+        }
+    }
+
+    //the extrusion of a vertex is its distance to the light position times the extrusion distance
+    public void updatePoint(Matrix4fc projectionView, Vector3fc lightPosition) {
+        this.pointLight = true;
+        this.lightX = lightPosition.x();
+        this.lightY = lightPosition.y();
+        this.lightZ = lightPosition.z();
+        for (int i = 0; i < PLANES.length; i++) {
+            projectionView.frustumPlane(PLANES[i], this.plane);
+            this.planes[(i * 4) + 0] = this.plane.x();
+            this.planes[(i * 4) + 1] = this.plane.y();
+            this.planes[(i * 4) + 2] = this.plane.z();
+            this.planes[(i * 4) + 3] = this.plane.w();
+        }
+    }
+
+    //false if nothing swept by the world space box along the extrusion is inside the frustum
+    //lightDirection * extrusionDistance must be the extrusion done by the shadow volume shaders
+    public boolean isVisible(Vector3fc min, Vector3fc max, float extrusionDistance) {
+        if (this.pointLight) {
+            return isVisiblePoint(min, max, 1f + extrusionDistance);
+        }
+        for (int i = 0; i < PLANES.length; i++) {
+            int p = i * 4;
+            float a = this.planes[p + 0];
+            float b = this.planes[p + 1];
+            float c = this.planes[p + 2];
+            float d = this.planes[p + 3];
+
+            //the corner of the box furthest along the plane normal
+            float x = (a >= 0f ? max.x() : min.x());
+            float y = (b >= 0f ? max.y() : min.y());
+            float z = (c >= 0f ? max.z() : min.z());
+
+            float distance = (a * x) + (b * y) + (c * z) + d;
+            if (Math.max(distance, distance + (this.extrusions[i] * extrusionDistance)) < 0f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isVisiblePoint(Vector3fc min, Vector3fc max, float scale) {
+        //scaling by a positive factor around the light keeps the min and max corners
+        float sMinX = this.lightX + ((min.x() - this.lightX) * scale);
+        float sMinY = this.lightY + ((min.y() - this.lightY) * scale);
+        float sMinZ = this.lightZ + ((min.z() - this.lightZ) * scale);
+        float sMaxX = this.lightX + ((max.x() - this.lightX) * scale);
+        float sMaxY = this.lightY + ((max.y() - this.lightY) * scale);
+        float sMaxZ = this.lightZ + ((max.z() - this.lightZ) * scale);
+
+        for (int i = 0; i < PLANES.length; i++) {
+            int p = i * 4;
+            float a = this.planes[p + 0];
+            float b = this.planes[p + 1];
+            float c = this.planes[p + 2];
+            float d = this.planes[p + 3];
+
+            float distance = (a * (a >= 0f ? max.x() : min.x()))
+                    + (b * (b >= 0f ? max.y() : min.y()))
+                    + (c * (c >= 0f ? max.z() : min.z()))
+                    + d;
+            float scaledDistance = (a * (a >= 0f ? sMaxX : sMinX))
+                    + (b * (b >= 0f ? sMaxY : sMinY))
+                    + (c * (c >= 0f ? sMaxZ : sMinZ))
+                    + d;
+            if (Math.max(distance, scaledDistance) < 0f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
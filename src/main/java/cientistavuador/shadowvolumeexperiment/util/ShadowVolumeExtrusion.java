@@ -0,0 +1,148 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import org.joml.Vector3fc;
+
+/**
+ * Fits the extrusion distance of directional light shadow volumes to the
+ * bounding box of the receivers, and of point light shadow volumes to the
+ * range of the light.
+ * <p>
+ * A shadow only needs to reach the point where the light ray leaves the
+ * receivers box. For each axis the exit distance is linear in the ray
+ * origin, so its maximum over a caster box is at a corner; the smallest of
+ * those per axis maximums bounds the exit distance of every point of the
+ * caster.
+ * <p>
+ * A point light extrusion scales the caster around the light, by one plus
+ * the extrusion distance. Scaling the closest point of the caster box to the
+ * range scales every point, edge and face of the caster past the range.
+ *
+ * @author Cien
+ */
+public class ShadowVolumeExtrusion {
+
+    //extra distance so the dark cap is never exactly on a receiver face
+    public static final float MARGIN = 0.01f;
+
+    private float lX = 0f;
+    private float lY = 0f;
+    private float lZ = 0f;
+
+    private float receiversMinX = 0f;
+    private float receiversMinY = 0f;
+    private float receiversMinZ = 0f;
+    private float receiversMaxX = 0f;
+    private float receiversMaxY = 0f;
+    private float receiversMaxZ = 0f;
+
+    private float maxDistance = Float.POSITIVE_INFINITY;
+
+    private boolean pointLight = false;
+    private float range = 0f;
+
+    public ShadowVolumeExtrusion() {
+
+    }
+
+    //distances are in units of lightDirection, the same units of the extrusion in the shaders
+    //maxDistance caps the result, for a empty receivers box or a light parallel to every axis
+    public void update(Vector3fc lightDirection, Vector3fc receiversMin, Vector3fc receiversMax, float maxDistance) {
+        this.pointLight = false;
+        this.lX = lightDirection.x();
+        this.lY = lightDirection.y();
+        this.lZ = lightDirection.z();
+
+        this.receiversMinX = receiversMin.x();
+        this.receiversMinY = receiversMin.y();
+        this.receiversMinZ = receiversMin.z();
+        this.receiversMaxX = receiversMax.x();
+        this.receiversMaxY = receiversMax.y();
+        this.receiversMaxZ = receiversMax.z();
+
+        this.maxDistance = maxDistance;
+    }
+
+    //the extrusion of a vertex is its distance to the light position times the extrusion distance
+    public void updatePoint(Vector3fc lightPosition, float range, float maxDistance) {
+        this.pointLight = true;
+        this.lX = lightPosition.x();
+        this.lY = lightPosition.y();
+        this.lZ = lightPosition.z();
+        this.range = range;
+        this.maxDistance = maxDistance;
+    }
+
+    private static float exit(float direction, float min, float max, float receiversMin, float receiversMax) {
+        if (direction > 0f) {
+            return (receiversMax - min) / direction;
+        }
+        if (direction < 0f) {
+            return (receiversMin - max) / direction;
+        }
+        return Float.POSITIVE_INFINITY;
+    }
+
+    //extrusion distance for a caster inside the world space box
+    public float compute(Vector3fc min, Vector3fc max) {
+        if (this.pointLight) {
+            return computePoint(min, max);
+        }
+        if (this.receiversMinX > this.receiversMaxX) {
+            return this.maxDistance;
+        }
+
+        float distance = exit(this.lX, min.x(), max.x(), this.receiversMinX, this.receiversMaxX);
+        distance = Math.min(distance, exit(this.lY, min.y(), max.y(), this.receiversMinY, this.receiversMaxY));
+        distance = Math.min(distance, exit(this.lZ, min.z(), max.z(), this.receiversMinZ, this.receiversMaxZ));
+
+        if (distance < 0f) {
+            //the light leaves the receivers before reaching the caster
+            return 0f;
+        }
+        return Math.min(distance + MARGIN, this.maxDistance);
+    }
+
+    private float computePoint(Vector3fc min, Vector3fc max) {
+        float dX = Math.max(Math.max(min.x() - this.lX, this.lX - max.x()), 0f);
+        float dY = Math.max(Math.max(min.y() - this.lY, this.lY - max.y()), 0f);
+        float dZ = Math.max(Math.max(min.z() - this.lZ, this.lZ - max.z()), 0f);
+        float closest = (float) Math.sqrt((dX * dX) + (dY * dY) + (dZ * dZ));
+
+        if (closest >= this.range) {
+            //the caster is out of the range, so is its shadow
+            return 0f;
+        }
+        if (closest == 0f) {
+            //the light is inside the box
+            return this.maxDistance;
+        }
+        return Math.min(((this.range + MARGIN) / closest) - 1f, this.maxDistance);
+    }
+
+}
@@ -26,13 +26,7 @@
  */
 package cientistavuador.shadowvolumeexperiment.util;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import org.joml.Vector2i;
-import org.joml.Vector3f;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -40,110 +34,267 @@ import org.joml.Vector3f;
  */
 public class ShadowVolumeGenerator {
 
+    //must change every time the generated indices change, invalidates the ShadowVolumeCache files
+    public static final int VERSION = 2;
+    public static final boolean UNIQUE_EDGES = true;
+    public static final int PARALLEL_THRESHOLD = 32768;
+
+    //true if a mesh with this many triangles should use the parallel paths
+    public static boolean parallel(int numberOfTriangles) {
+        return numberOfTriangles >= PARALLEL_THRESHOLD
+                && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    public static int[] generate(float[] vertices, int vertexSize, int[] indices) {
+        if (parallel(indices.length / 3)) {
+            return generate(vertices, vertexSize, MeshAdjacency.buildParallel(vertices, vertexSize, indices));
+        }
+        return generate(vertices, vertexSize, MeshAdjacency.build(vertices, vertexSize, indices));
+    }
+
+    public static int[] generate(float[] vertices, int vertexSize, MeshAdjacency adjacency) {
+        boolean parallel = parallel(adjacency.getNumberOfTriangles());
+        if (UNIQUE_EDGES) {
+            if (parallel) {
+                return generateUniqueEdgeShadowVolumeIndicesParallel(vertices, vertexSize, adjacency);
+            }
+            return generateUniqueEdgeShadowVolumeIndices(vertices, vertexSize, adjacency);
+        }
+        if (parallel) {
+            return generateShadowVolumeIndicesParallel(adjacency);
+        }
+        return generateShadowVolumeIndices(adjacency);
+    }
+
     //must be flat shaded
     //the first 3 floats must be the position XYZ
     //slightly based on https://gamedev.stackexchange.com/questions/106742/generate-mesh-of-shadow-volume
     public static int[] generateShadowVolumeIndices(float[] vertices, int vertexSize, int[] indices) {
         //1-map the indices by the positions
-        Map<Vector3f, List<Vector2i>> positionMap = new HashMap<>();
-        for (int i = 0; i < indices.length; i++) {
-            int vertexIndex = indices[i] * vertexSize;
-
-            Vector3f position = new Vector3f(
-                    vertices[vertexIndex + 0],
-                    vertices[vertexIndex + 1],
-                    vertices[vertexIndex + 2]
-            );
-            List<Vector2i> indexList = positionMap.get(position);
-            if (indexList == null) {
-                indexList = new ArrayList<>();
-                positionMap.put(position, indexList);
-            }
-            indexList.add(new Vector2i(indices[i], i / 3));
+        return generateShadowVolumeIndices(MeshAdjacency.build(vertices, vertexSize, indices));
+    }
+
+    public static int[] generateShadowVolumeIndices(MeshAdjacency adjacency) {
+        //2-count the generated indices so nothing needs to grow
+        int numberOfTriangles = adjacency.getNumberOfTriangles();
+        int generatedIndicesLength = 0;
+        for (int i = 0; i < numberOfTriangles; i++) {
+            generatedIndicesLength += triangle(adjacency, i, null, 0);
         }
 
-        //2-generate quads between the triangles with the same positions.
-        Vector3f cache = new Vector3f();
-        int[] generatedIndices = new int[indices.length * 4];
+        //3-generate quads between the triangles with the same positions.
+        int[] generatedIndices = new int[generatedIndicesLength];
         int generatedIndicesIndex = 0;
-        for (int i = 0; i < indices.length / 3; i++) {
-            int vertA = indices[(i * 3) + 0];
-            int vertB = indices[(i * 3) + 1];
-            int vertC = indices[(i * 3) + 2];
+        for (int i = 0; i < numberOfTriangles; i++) {
+            generatedIndicesIndex += triangle(adjacency, i, generatedIndices, generatedIndicesIndex);
+        }
+
+        //4-done
+        return generatedIndices;
+    }
+
+    //same output as generateShadowVolumeIndices, each worker counts and then writes its own range of triangles
+    public static int[] generateShadowVolumeIndicesParallel(float[] vertices, int vertexSize, int[] indices) {
+        return generateShadowVolumeIndicesParallel(MeshAdjacency.buildParallel(vertices, vertexSize, indices));
+    }
 
-            if ((generatedIndicesIndex + 3) > generatedIndices.length) {
-                generatedIndices = Arrays.copyOf(generatedIndices, (generatedIndices.length * 2) + 3);
+    public static int[] generateShadowVolumeIndicesParallel(MeshAdjacency adjacency) {
+        int numberOfTriangles = adjacency.getNumberOfTriangles();
+        int[] chunkOffsets = new int[ParallelRange.numberOfChunks(numberOfTriangles, ParallelRange.DEFAULT_CHUNK_SIZE) + 1];
+        ParallelRange.forEachChunk(numberOfTriangles, (chunk, start, end) -> {
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                count += triangle(adjacency, i, null, 0);
             }
+            chunkOffsets[chunk + 1] = count;
+        });
+        for (int i = 1; i < chunkOffsets.length; i++) {
+            chunkOffsets[i] += chunkOffsets[i - 1];
+        }
+
+        int[] generatedIndices = new int[chunkOffsets[chunkOffsets.length - 1]];
+        ParallelRange.forEachChunk(numberOfTriangles, (chunk, start, end) -> {
+            int generatedIndicesIndex = chunkOffsets[chunk];
+            for (int i = start; i < end; i++) {
+                generatedIndicesIndex += triangle(adjacency, i, generatedIndices, generatedIndicesIndex);
+            }
+        });
+
+        return generatedIndices;
+    }
+
+    //writes the triangle and its edge triangles to output, or only counts them if output is null
+    private static int triangle(MeshAdjacency adjacency, int triangle, int[] output, int offset) {
+        int written = 0;
+
+        if (output != null) {
+            output[offset + 0] = adjacency.vertexOf((triangle * 3) + 0);
+            output[offset + 1] = adjacency.vertexOf((triangle * 3) + 1);
+            output[offset + 2] = adjacency.vertexOf((triangle * 3) + 2);
+        }
+        written += 3;
+
+        for (int j = 0; j < 3; j++) {
+            int cornerA = (triangle * 3) + j;
+            int cornerB = MeshAdjacency.nextCorner(cornerA);
+
+            int vA = adjacency.vertexOf(cornerA);
+            int vB = adjacency.vertexOf(cornerB);
+            int positionA = adjacency.positionOf(cornerA);
+            int positionB = adjacency.positionOf(cornerB);
 
-            generatedIndices[generatedIndicesIndex + 0] = vertA;
-            generatedIndices[generatedIndicesIndex + 1] = vertB;
-            generatedIndices[generatedIndicesIndex + 2] = vertC;
-
-            generatedIndicesIndex += 3;
-
-            for (int j = 0; j < 3; j++) {
-                int vA = 0;
-                int vB = 0;
-                
-                switch (j) {
-                    case 0 -> {
-                        vA = vertA;
-                        vB = vertB;
-                    }
-                    case 1 -> {
-                        vA = vertB;
-                        vB = vertC;
-                    }
-                    case 2 -> {
-                        vA = vertC;
-                        vB = vertA;
-                    }
+            int end = adjacency.cornersEnd(positionB);
+            for (int k = adjacency.cornersStart(positionB); k < end; k++) {
+                int other = adjacency.corner(k);
+                int otherTriangle = MeshAdjacency.triangleOf(other);
+                int vX = adjacency.vertexOf(other);
+
+                if (vX == vB && otherTriangle == triangle) {
+                    continue;
                 }
-                
-                cache.set(
-                        vertices[(vB * vertexSize) + 0],
-                        vertices[(vB * vertexSize) + 1],
-                        vertices[(vB * vertexSize) + 2]
-                );
-                List<Vector2i> indexList = positionMap.get(cache);
-                for (Vector2i vX : indexList) {
-                    if (vX.x() == vB && vX.y() == i) {
-                        continue;
-                    }
-                    
-                    cache.set(
-                            vertices[(vA * vertexSize) + 0],
-                            vertices[(vA * vertexSize) + 1],
-                            vertices[(vA * vertexSize) + 2]
-                    );
-                    List<Vector2i> otherList = positionMap.get(cache);
-                    boolean found = false;
-                    for (Vector2i o : otherList) {
-                        if (o.y() == vX.y()) {
-                            found = true;
-                            break;
-                        }
-                    }
-                    if (!found) {
-                        continue;
-                    }
-
-                    if ((generatedIndicesIndex + 3) > generatedIndices.length) {
-                        generatedIndices = Arrays.copyOf(generatedIndices, (generatedIndices.length * 2) + 3);
-                    }
-
-                    generatedIndices[generatedIndicesIndex + 0] = vA;
-                    generatedIndices[generatedIndicesIndex + 1] = vX.x();
-                    generatedIndices[generatedIndicesIndex + 2] = vB;
-
-                    generatedIndicesIndex += 3;
+
+                if (!adjacency.triangleHasPosition(otherTriangle, positionA)) {
+                    continue;
                 }
+
+                if (output != null) {
+                    output[offset + written + 0] = vA;
+                    output[offset + written + 1] = vX;
+                    output[offset + written + 2] = vB;
+                }
+                written += 3;
             }
-            
         }
 
-        //3-done
-        return Arrays.copyOf(generatedIndices, generatedIndicesIndex);
+        return written;
+    }
+
+    //must be flat shaded
+    //the first 3 floats must be the position XYZ and the next 3 floats the normal XYZ
+    //output is the mesh triangles (the caps) followed by one quad for each shared edge
+    public static int[] generateUniqueEdgeShadowVolumeIndices(float[] vertices, int vertexSize, int[] indices) {
+        //1-map the indices by the positions
+        return generateUniqueEdgeShadowVolumeIndices(vertices, vertexSize, MeshAdjacency.build(vertices, vertexSize, indices));
+    }
+
+    public static int[] generateUniqueEdgeShadowVolumeIndices(float[] vertices, int vertexSize, MeshAdjacency adjacency) {
+        int[] indices = adjacency.getIndices();
+
+        //2-count the quads
+        int numberOfCorners = adjacency.getNumberOfCorners();
+        int generatedIndicesLength = numberOfCorners;
+        for (int i = 0; i < numberOfCorners; i++) {
+            generatedIndicesLength += edge(adjacency, vertices, vertexSize, i, null, 0);
+        }
+
+        //3-copy the caps and generate one quad per edge
+        int[] generatedIndices = new int[generatedIndicesLength];
+        System.arraycopy(indices, 0, generatedIndices, 0, numberOfCorners);
+        int generatedIndicesIndex = numberOfCorners;
+        for (int i = 0; i < numberOfCorners; i++) {
+            generatedIndicesIndex += edge(adjacency, vertices, vertexSize, i, generatedIndices, generatedIndicesIndex);
+        }
+
+        //4-done
+        return generatedIndices;
+    }
+
+    //same output as generateUniqueEdgeShadowVolumeIndices, each worker counts and then writes its own range of edges
+    public static int[] generateUniqueEdgeShadowVolumeIndicesParallel(float[] vertices, int vertexSize, int[] indices) {
+        return generateUniqueEdgeShadowVolumeIndicesParallel(vertices, vertexSize, MeshAdjacency.buildParallel(vertices, vertexSize, indices));
+    }
+
+    public static int[] generateUniqueEdgeShadowVolumeIndicesParallel(float[] vertices, int vertexSize, MeshAdjacency adjacency) {
+        int[] indices = adjacency.getIndices();
+        int numberOfCorners = adjacency.getNumberOfCorners();
+        int[] chunkOffsets = new int[ParallelRange.numberOfChunks(numberOfCorners, ParallelRange.DEFAULT_CHUNK_SIZE) + 1];
+        chunkOffsets[0] = numberOfCorners;
+        ParallelRange.forEachChunk(numberOfCorners, (chunk, start, end) -> {
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                count += edge(adjacency, vertices, vertexSize, i, null, 0);
+            }
+            chunkOffsets[chunk + 1] = count;
+        });
+        for (int i = 1; i < chunkOffsets.length; i++) {
+            chunkOffsets[i] += chunkOffsets[i - 1];
+        }
+
+        int[] generatedIndices = new int[chunkOffsets[chunkOffsets.length - 1]];
+        System.arraycopy(indices, 0, generatedIndices, 0, numberOfCorners);
+        ParallelRange.forEachChunk(numberOfCorners, (chunk, start, end) -> {
+            int generatedIndicesIndex = chunkOffsets[chunk];
+            for (int i = start; i < end; i++) {
+                generatedIndicesIndex += edge(adjacency, vertices, vertexSize, i, generatedIndices, generatedIndicesIndex);
+            }
+        });
+
+        return generatedIndices;
+    }
+
+    private static boolean sameNormal(float[] vertices, int vertexSize, int vA, int vB) {
+        int a = (vA * vertexSize) + 3;
+        int b = (vB * vertexSize) + 3;
+        return vertices[a + 0] == vertices[b + 0]
+                && vertices[a + 1] == vertices[b + 1]
+                && vertices[a + 2] == vertices[b + 2];
+    }
+
+    //writes the quad of the edge starting at corner to output, or only counts it if output is null
+    private static int edge(MeshAdjacency adjacency, float[] vertices, int vertexSize, int corner, int[] output, int offset) {
+        int twin = adjacency.twinOf(corner);
+        if (twin == -1 || !adjacency.isTwinOwner(corner, twin)) {
+            return 0;
+        }
+
+        int aI = adjacency.vertexOf(corner);
+        int bI = adjacency.vertexOf(MeshAdjacency.nextCorner(corner));
+        int bT = adjacency.vertexOf(twin);
+        int aT = adjacency.vertexOf(MeshAdjacency.nextCorner(twin));
+
+        //both sides always extrude together, the quad would never have any area
+        if (sameNormal(vertices, vertexSize, aI, aT) && sameNormal(vertices, vertexSize, bI, bT)) {
+            return 0;
+        }
+
+        if (output != null) {
+            output[offset + 0] = aI;
+            output[offset + 1] = bT;
+            output[offset + 2] = bI;
+
+            output[offset + 3] = bT;
+            output[offset + 4] = aI;
+            output[offset + 5] = aT;
+        }
+        return 6;
+    }
+
+    //must be flat shaded
+    //the first 3 floats must be the position XYZ
+    //output is GL_TRIANGLES_ADJACENCY, each triangle is followed by the opposite vertex of the triangle across each edge
+    //open edges use the opposite vertex of the triangle itself, so the neighbor always faces the same way
+    public static int[] generateAdjacencyIndices(float[] vertices, int vertexSize, int[] indices) {
+        return generateAdjacencyIndices(MeshAdjacency.build(vertices, vertexSize, indices));
+    }
+
+    public static int[] generateAdjacencyIndices(MeshAdjacency adjacency) {
+        int numberOfCorners = adjacency.getNumberOfCorners();
+        int[] generatedIndices = new int[numberOfCorners * 2];
+        for (int i = 0; i < numberOfCorners; i++) {
+            int twin = adjacency.twinOf(i);
+
+            int opposite;
+            if (twin == -1) {
+                opposite = adjacency.vertexOf(MeshAdjacency.previousCorner(i));
+            } else {
+                opposite = adjacency.vertexOf(MeshAdjacency.previousCorner(twin));
+            }
+
+            generatedIndices[(i * 2) + 0] = adjacency.vertexOf(i);
+            generatedIndices[(i * 2) + 1] = opposite;
+        }
+
+        return generatedIndices;
     }
 
     private ShadowVolumeGenerator() {
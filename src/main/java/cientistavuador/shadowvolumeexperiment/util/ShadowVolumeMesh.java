@@ -0,0 +1,188 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import org.joml.Vector3f;
+
+/**
+ * Everything the shadow volume passes need from a mesh: the welded
+ * vertices and indices, the volume indices, the triangle adjacency indices
+ * and the unique edge volume used by the silhouette extractor.
+ * <p>
+ * The welded mesh is reordered by the {@link VertexCacheOptimizer} before
+ * anything is generated from it, so every index buffer follows the optimized
+ * triangle order.
+ *
+ * @author Cien
+ */
+public class ShadowVolumeMesh {
+
+    //must be flat shaded
+    //the first 3 floats must be the position XYZ and the next 3 floats the normal XYZ
+    public static ShadowVolumeMesh generate(float[] vertices, int vertexSize, int[] indices, float epsilon) {
+        boolean parallel = ShadowVolumeGenerator.parallel(indices.length / 3);
+
+        VertexWelder weld;
+        if (parallel) {
+            weld = VertexWelder.weldParallel(vertices, vertexSize, indices, epsilon);
+        } else {
+            weld = VertexWelder.weld(vertices, vertexSize, indices, epsilon);
+        }
+        int numberOfVertices = weld.getVertices().length / vertexSize;
+
+        float acmrBefore = VertexCacheOptimizer.acmr(weld.getIndices(), VertexCacheOptimizer.CACHE_SIZE);
+        float atvrBefore = VertexCacheOptimizer.atvr(weld.getIndices(), VertexCacheOptimizer.CACHE_SIZE);
+
+        //triangles in post transform cache order, then the vertices in the order they are first used
+        int[] triangles = VertexCacheOptimizer.optimizeTriangles(weld.getIndices(), numberOfVertices, VertexCacheOptimizer.CACHE_SIZE);
+        int[] remap = VertexCacheOptimizer.optimizeVertexFetch(triangles, numberOfVertices);
+
+        float[] weldedVertices = VertexCacheOptimizer.remapVertices(weld.getVertices(), vertexSize, remap);
+        int[] weldedIndices = VertexCacheOptimizer.remapIndices(triangles, remap);
+        int[] vertexPositions = VertexCacheOptimizer.remapValues(weld.getVertexPositions(), remap);
+        MeshAdjacency adjacency;
+        if (parallel) {
+            adjacency = MeshAdjacency.buildParallel(weldedIndices, vertexPositions, weld.getNumberOfPositions());
+        } else {
+            adjacency = MeshAdjacency.build(weldedIndices, vertexPositions, weld.getNumberOfPositions());
+        }
+
+        int[] volumeIndices = ShadowVolumeGenerator.generate(weldedVertices, vertexSize, adjacency);
+        int[] edgeIndices = volumeIndices;
+        if (!ShadowVolumeGenerator.UNIQUE_EDGES) {
+            edgeIndices = ShadowVolumeGenerator.generateUniqueEdgeShadowVolumeIndices(weldedVertices, vertexSize, adjacency);
+        }
+
+        return new ShadowVolumeMesh(
+                weldedVertices,
+                weldedIndices,
+                volumeIndices,
+                ShadowVolumeGenerator.generateAdjacencyIndices(adjacency),
+                edgeIndices,
+                weld.getMergedVertices(),
+                weld.getRemovedVertices(),
+                adjacency.countOpenEdges(),
+                acmrBefore,
+                atvrBefore
+        );
+    }
+
+    private final float[] vertices;
+    private final int[] indices;
+    private final int[] volumeIndices;
+    private final int[] adjacencyIndices;
+    private final int[] edgeIndices;
+    private final int mergedVertices;
+    private final int removedVertices;
+    private final int openEdges;
+    private final float acmrBefore;
+    private final float atvrBefore;
+
+    //acmrBefore and atvrBefore are of the welded indices before the VertexCacheOptimizer
+    public ShadowVolumeMesh(float[] vertices, int[] indices, int[] volumeIndices, int[] adjacencyIndices, int[] edgeIndices, int mergedVertices, int removedVertices, int openEdges, float acmrBefore, float atvrBefore) {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.volumeIndices = volumeIndices;
+        this.adjacencyIndices = adjacencyIndices;
+        this.edgeIndices = edgeIndices;
+        this.mergedVertices = mergedVertices;
+        this.removedVertices = removedVertices;
+        this.openEdges = openEdges;
+        this.acmrBefore = acmrBefore;
+        this.atvrBefore = atvrBefore;
+    }
+
+    public float[] getVertices() {
+        return vertices;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public int[] getVolumeIndices() {
+        return volumeIndices;
+    }
+
+    public int[] getAdjacencyIndices() {
+        return adjacencyIndices;
+    }
+
+    //same layout as generateUniqueEdgeShadowVolumeIndices, may be the same array as getVolumeIndices
+    public int[] getEdgeIndices() {
+        return edgeIndices;
+    }
+
+    //number of indices before the edge quads in getVolumeIndices, zero if the caps are mixed with the quads
+    public int getCapsCount() {
+        if (this.volumeIndices == this.edgeIndices) {
+            return this.indices.length;
+        }
+        return 0;
+    }
+
+    //bounding box of the positions used by the indices
+    public void computeBounds(int vertexSize, Vector3f min, Vector3f max) {
+        min.set(Float.POSITIVE_INFINITY);
+        max.set(Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < this.indices.length; i++) {
+            int v = this.indices[i] * vertexSize;
+            float x = this.vertices[v + 0];
+            float y = this.vertices[v + 1];
+            float z = this.vertices[v + 2];
+            min.set(Math.min(min.x(), x), Math.min(min.y(), y), Math.min(min.z(), z));
+            max.set(Math.max(max.x(), x), Math.max(max.y(), y), Math.max(max.z(), z));
+        }
+    }
+
+    public int getMergedVertices() {
+        return mergedVertices;
+    }
+
+    public int getRemovedVertices() {
+        return removedVertices;
+    }
+
+    public int getOpenEdges() {
+        return openEdges;
+    }
+
+    public float getACMRBefore() {
+        return acmrBefore;
+    }
+
+    public float getATVRBefore() {
+        return atvrBefore;
+    }
+
+    public String report() {
+        return this.mergedVertices + " vertices merged, " + this.removedVertices + " vertices removed, " + this.openEdges + " open edges, "
+                + "ACMR " + String.format("%.3f", this.acmrBefore) + " -> " + String.format("%.3f", VertexCacheOptimizer.acmr(this.indices, VertexCacheOptimizer.CACHE_SIZE)) + ", "
+                + "ATVR " + String.format("%.3f", this.atvrBefore) + " -> " + String.format("%.3f", VertexCacheOptimizer.atvr(this.indices, VertexCacheOptimizer.CACHE_SIZE));
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector3fc;
+
+/**
+ * Conservative window space rectangles of shadow volumes of a directional or
+ * point light, clipped to the rectangle of the receivers.
+ * <p>
+ * The rectangle of a box (or of a box swept along the extrusion) is the
+ * bounds of its projected corners. Corners behind the camera are replaced by
+ * the points where the segments between the corners cross the plane just in
+ * front of the camera, those points are inside the convex hull so the
+ * rectangle stays conservative.
+ *
+ * @author Cien
+ */
+public class ShadowVolumeScissor {
+
+    //clip space w of the plane the corners are clipped against
+    public static final float NEAR_W = 0.0001f;
+
+    private final Matrix4f projectionView = new Matrix4f();
+    private float lightX = 0f;
+    private float lightY = 0f;
+    private float lightZ = 0f;
+    private float extrusionX = 0f;
+    private float extrusionY = 0f;
+    private float extrusionZ = 0f;
+    private boolean pointLight = false;
+    private float extrusionScale = 0f;
+    private int width = 1;
+    private int height = 1;
+
+    private final float[] clip = new float[16 * 4];
+    private float ndcMinX;
+    private float ndcMinY;
+    private float ndcMaxX;
+    private float ndcMaxY;
+
+    private int receiversMinX;
+    private int receiversMinY;
+    private int receiversMaxX;
+    private int receiversMaxY;
+
+    public ShadowVolumeScissor() {
+
+    }
+
+    public void update(Matrix4fc projectionView, Vector3fc lightDirection, int width, int height) {
+        this.projectionView.set(projectionView);
+        this.pointLight = false;
+        this.lightX = lightDirection.x();
+        this.lightY = lightDirection.y();
+        this.lightZ = lightDirection.z();
+        this.width = Math.max(width, 1);
+        this.height = Math.max(height, 1);
+
+        this.receiversMinX = this.width;
+        this.receiversMinY = this.height;
+        this.receiversMaxX = 0;
+        this.receiversMaxY = 0;
+    }
+
+    //changes the light without clearing the receivers
+    public void setLightDirection(Vector3fc lightDirection) {
+        this.pointLight = false;
+        this.lightX = lightDirection.x();
+        this.lightY = lightDirection.y();
+        this.lightZ = lightDirection.z();
+    }
+
+    //same as setLightDirection, the extrusion of a vertex becomes its distance to the light times the extrusion distance
+    public void setLightPosition(Vector3fc lightPosition) {
+        this.pointLight = true;
+        this.lightX = lightPosition.x();
+        this.lightY = lightPosition.y();
+        this.lightZ = lightPosition.z();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    //adds a world space receiver box to the receivers rectangle
+    public void addReceiver(Vector3fc min, Vector3fc max) {
+        if (!project(min, max, false)) {
+            return;
+        }
+        this.receiversMinX = Math.min(this.receiversMinX, toWindow(this.ndcMinX, this.width, false));
+        this.receiversMinY = Math.min(this.receiversMinY, toWindow(this.ndcMinY, this.height, false));
+        this.receiversMaxX = Math.max(this.receiversMaxX, toWindow(this.ndcMaxX, this.width, true));
+        this.receiversMaxY = Math.max(this.receiversMaxY, toWindow(this.ndcMaxY, this.height, true));
+    }
+
+    //writes x, y, width and height (in the glScissor order) of the volume of a caster inside the world space box
+    //lightDirection * extrusionDistance must be the extrusion done by the shadow volume shaders
+    //returns false if the rectangle is empty and the volume can not change any receiver pixel
+    public boolean compute(Vector3fc min, Vector3fc max, float extrusionDistance, int[] rect) {
+        if (this.pointLight) {
+            this.extrusionScale = extrusionDistance;
+        } else {
+            this.extrusionX = this.lightX * extrusionDistance;
+            this.extrusionY = this.lightY * extrusionDistance;
+            this.extrusionZ = this.lightZ * extrusionDistance;
+        }
+        return rectangle(min, max, true, rect);
+    }
+
+    //same as compute, for a world space box that is not extruded, like the bounds of a light
+    public boolean compute(Vector3fc min, Vector3fc max, int[] rect) {
+        return rectangle(min, max, false, rect);
+    }
+
+    //the rectangle of the receivers, false if no receiver is on the screen
+    public boolean computeReceivers(int[] rect) {
+        if (this.receiversMinX >= this.receiversMaxX || this.receiversMinY >= this.receiversMaxY) {
+            return false;
+        }
+        rect[0] = this.receiversMinX;
+        rect[1] = this.receiversMinY;
+        rect[2] = this.receiversMaxX - this.receiversMinX;
+        rect[3] = this.receiversMaxY - this.receiversMinY;
+        return true;
+    }
+
+    private boolean rectangle(Vector3fc min, Vector3fc max, boolean swept, int[] rect) {
+        if (!project(min, max, swept)) {
+            return false;
+        }
+        int minX = Math.max(this.receiversMinX, toWindow(this.ndcMinX, this.width, false));
+        int minY = Math.max(this.receiversMinY, toWindow(this.ndcMinY, this.height, false));
+        int maxX = Math.min(this.receiversMaxX, toWindow(this.ndcMaxX, this.width, true));
+        int maxY = Math.min(this.receiversMaxY, toWindow(this.ndcMaxY, this.height, true));
+        if (minX >= maxX || minY >= maxY) {
+            return false;
+        }
+        rect[0] = minX;
+        rect[1] = minY;
+        rect[2] = maxX - minX;
+        rect[3] = maxY - minY;
+        return true;
+    }
+
+    private static int toWindow(float ndc, int size, boolean ceil) {
+        float window = ((ndc * 0.5f) + 0.5f) * size;
+        int value = (int) (ceil ? Math.ceil(window) : Math.floor(window));
+        return Math.max(0, Math.min(value, size));
+    }
+
+    private void corner(int index, float x, float y, float z) {
+        Matrix4f m = this.projectionView;
+        int c = index * 4;
+        this.clip[c + 0] = (m.m00() * x) + (m.m10() * y) + (m.m20() * z) + m.m30();
+        this.clip[c + 1] = (m.m01() * x) + (m.m11() * y) + (m.m21() * z) + m.m31();
+        this.clip[c + 2] = (m.m02() * x) + (m.m12() * y) + (m.m22() * z) + m.m32();
+        this.clip[c + 3] = (m.m03() * x) + (m.m13() * y) + (m.m23() * z) + m.m33();
+    }
+
+    private void include(float x, float y, float w) {
+        float ndcX = x / w;
+        float ndcY = y / w;
+        this.ndcMinX = Math.min(this.ndcMinX, ndcX);
+        this.ndcMinY = Math.min(this.ndcMinY, ndcY);
+        this.ndcMaxX = Math.max(this.ndcMaxX, ndcX);
+        this.ndcMaxY = Math.max(this.ndcMaxY, ndcY);
+    }
+
+    //projects the corners of the box (and of the extruded box if swept) to the ndc bounds, false if everything is behind the camera
+    private boolean project(Vector3fc min, Vector3fc max, boolean swept) {
+        int numberOfCorners = 0;
+        for (int i = 0; i < 8; i++) {
+            float x = ((i & 1) == 0 ? min.x() : max.x());
+            float y = ((i & 2) == 0 ? min.y() : max.y());
+            float z = ((i & 4) == 0 ? min.z() : max.z());
+            corner(numberOfCorners++, x, y, z);
+            if (swept && this.pointLight) {
+                corner(numberOfCorners++,
+                        x + ((x - this.lightX) * this.extrusionScale),
+                        y + ((y - this.lightY) * this.extrusionScale),
+                        z + ((z - this.lightZ) * this.extrusionScale)
+                );
+            } else if (swept) {
+                corner(numberOfCorners++, x + this.extrusionX, y + this.extrusionY, z + this.extrusionZ);
+            }
+        }
+
+        this.ndcMinX = Float.POSITIVE_INFINITY;
+        this.ndcMinY = Float.POSITIVE_INFINITY;
+        this.ndcMaxX = Float.NEGATIVE_INFINITY;
+        this.ndcMaxY = Float.NEGATIVE_INFINITY;
+
+        boolean front = false;
+        for (int i = 0; i < numberOfCorners; i++) {
+            int a = i * 4;
+            float wA = this.clip[a + 3];
+            if (wA < NEAR_W) {
+                continue;
+            }
+            front = true;
+            include(this.clip[a + 0], this.clip[a + 1], wA);
+
+            for (int j = 0; j < numberOfCorners; j++) {
+                int b = j * 4;
+                float wB = this.clip[b + 3];
+                if (wB >= NEAR_W) {
+                    continue;
+                }
+                float t = (wA - NEAR_W) / (wA - wB);
+                float x = this.clip[a + 0] + ((this.clip[b + 0] - this.clip[a + 0]) * t);
+                float y = this.clip[a + 1] + ((this.clip[b + 1] - this.clip[a + 1]) * t);
+                include(x, y, NEAR_W);
+            }
+        }
+
+        return front;
+    }
+
+}
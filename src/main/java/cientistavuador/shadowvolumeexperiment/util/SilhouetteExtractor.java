@@ -0,0 +1,132 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+/**
+ * Finds the silhouette edges of a mesh for a object space light direction.
+ * <p>
+ * The output uses the same layout and winding as
+ * {@link ShadowVolumeGenerator#generateUniqueEdgeShadowVolumeIndices}, but
+ * only keeps the quads of the edges where one side faces the light and the
+ * other side does not.
+ *
+ * @author Cien
+ */
+public class SilhouetteExtractor {
+
+    //must be flat shaded
+    //the first 3 floats must be the position XYZ and the next 3 floats the normal XYZ
+    public static SilhouetteExtractor build(float[] vertices, int vertexSize, int[] indices) {
+        return build(vertices, vertexSize, MeshAdjacency.build(vertices, vertexSize, indices));
+    }
+
+    public static SilhouetteExtractor build(float[] vertices, int vertexSize, MeshAdjacency adjacency) {
+        return build(vertices, vertexSize, adjacency.getIndices(), ShadowVolumeGenerator.generateUniqueEdgeShadowVolumeIndices(vertices, vertexSize, adjacency));
+    }
+
+    //volumeIndices must be the output of generateUniqueEdgeShadowVolumeIndices for the same mesh
+    public static SilhouetteExtractor build(float[] vertices, int vertexSize, int[] indices, int[] volumeIndices) {
+        int numberOfVertices = vertices.length / vertexSize;
+        float[] normals = new float[numberOfVertices * 3];
+        for (int i = 0; i < numberOfVertices; i++) {
+            float x = vertices[(i * vertexSize) + 3];
+            float y = vertices[(i * vertexSize) + 4];
+            float z = vertices[(i * vertexSize) + 5];
+            float length = (float) Math.sqrt((x * x) + (y * y) + (z * z));
+            if (length != 0f) {
+                x /= length;
+                y /= length;
+                z /= length;
+            }
+            normals[(i * 3) + 0] = x;
+            normals[(i * 3) + 1] = y;
+            normals[(i * 3) + 2] = z;
+        }
+
+        int[] edgeQuads = new int[volumeIndices.length - indices.length];
+        System.arraycopy(volumeIndices, indices.length, edgeQuads, 0, edgeQuads.length);
+
+        return new SilhouetteExtractor(indices.clone(), normals, edgeQuads);
+    }
+
+    private final int[] caps;
+    private final float[] normals;
+    private final int[] edgeQuads;
+    private final int numberOfEdges;
+
+    private SilhouetteExtractor(int[] caps, float[] normals, int[] edgeQuads) {
+        this.caps = caps;
+        this.normals = normals;
+        this.edgeQuads = edgeQuads;
+        this.numberOfEdges = edgeQuads.length / 6;
+    }
+
+    public int getNumberOfEdges() {
+        return numberOfEdges;
+    }
+
+    public int getCapsCount() {
+        return this.caps.length;
+    }
+
+    public int maxIndices() {
+        return this.caps.length + (this.numberOfEdges * 6);
+    }
+
+    //facing away from the light, the same test the shadow volume shader does
+    private float facing(int vertex, float dX, float dY, float dZ) {
+        return (this.normals[(vertex * 3) + 0] * dX)
+                + (this.normals[(vertex * 3) + 1] * dY)
+                + (this.normals[(vertex * 3) + 2] * dZ);
+    }
+
+    //writes the caps and the quads of the silhouette edges to output, output must have maxIndices of space after offset
+    //edges with a side within tolerance of the light plane are always written, a extra quad has no area but a missing one is a hole
+    public int extract(float dX, float dY, float dZ, float tolerance, int[] output, int offset) {
+        System.arraycopy(this.caps, 0, output, offset, this.caps.length);
+        int written = this.caps.length;
+
+        for (int i = 0; i < this.numberOfEdges; i++) {
+            //the first vertex of a quad is on one side of the edge and the last vertex on the other side
+            float a = facing(this.edgeQuads[(i * 6) + 0], dX, dY, dZ);
+            float b = facing(this.edgeQuads[(i * 6) + 5], dX, dY, dZ);
+
+            boolean silhouette = (a > 0f) != (b > 0f)
+                    || Math.abs(a) <= tolerance
+                    || Math.abs(b) <= tolerance;
+            if (!silhouette) {
+                continue;
+            }
+
+            System.arraycopy(this.edgeQuads, i * 6, output, offset + written, 6);
+            written += 6;
+        }
+
+        return written;
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+/**
+ * Reorders the triangles of a mesh for the post transform vertex cache with
+ * the Tipsify algorithm of Sander, Nehab and Barczak, and then the vertices
+ * in the order the triangles first use them, for the locality of the vertex
+ * fetch.
+ * <p>
+ * The cache is measured as a fifo, by the average cache miss ratio (ACMR,
+ * transformed vertices per triangle, 0.5 is the best a regular grid can do
+ * and 3.0 is no reuse at all) and the average transformed vertex ratio (ATVR,
+ * transformed vertices per vertex, 1.0 is optimal).
+ *
+ * @author Cien
+ */
+public class VertexCacheOptimizer {
+
+    public static final int CACHE_SIZE = 32;
+
+    //number of vertices used by the indices
+    private static int numberOfVertices(int[] indices) {
+        int max = -1;
+        for (int i = 0; i < indices.length; i++) {
+            max = Math.max(max, indices[i]);
+        }
+        return max + 1;
+    }
+
+    //vertices transformed by a fifo cache of cacheSize vertices
+    private static int transformedVertices(int[] indices, int cacheSize) {
+        //a vertex is in the cache if less than cacheSize vertices were transformed after it
+        int[] insertedAt = new int[numberOfVertices(indices)];
+        int transformed = 0;
+        for (int i = 0; i < indices.length; i++) {
+            int v = indices[i];
+            if (insertedAt[v] != 0 && (transformed - (insertedAt[v] - 1)) <= cacheSize) {
+                continue;
+            }
+            transformed++;
+            insertedAt[v] = transformed;
+        }
+        return transformed;
+    }
+
+    public static float acmr(int[] indices, int cacheSize) {
+        int triangles = indices.length / 3;
+        if (triangles == 0) {
+            return 0f;
+        }
+        return transformedVertices(indices, cacheSize) / ((float) triangles);
+    }
+
+    public static float atvr(int[] indices, int cacheSize) {
+        boolean[] used = new boolean[numberOfVertices(indices)];
+        int unique = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (!used[indices[i]]) {
+                used[indices[i]] = true;
+                unique++;
+            }
+        }
+        if (unique == 0) {
+            return 0f;
+        }
+        return transformedVertices(indices, cacheSize) / ((float) unique);
+    }
+
+    //returns the triangles of indices in the Tipsify order, every index must be less than numberOfVertices
+    public static int[] optimizeTriangles(int[] indices, int numberOfVertices, int cacheSize) {
+        int numberOfTriangles = indices.length / 3;
+
+        //1-triangles of each vertex in flat arrays
+        int[] offsets = new int[numberOfVertices + 1];
+        for (int i = 0; i < numberOfTriangles * 3; i++) {
+            offsets[indices[i] + 1]++;
+        }
+        for (int i = 0; i < numberOfVertices; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] live = new int[numberOfVertices];
+        int[] vertexTriangles = new int[numberOfTriangles * 3];
+        for (int i = 0; i < numberOfTriangles * 3; i++) {
+            int v = indices[i];
+            vertexTriangles[offsets[v] + live[v]] = i / 3;
+            live[v]++;
+        }
+
+        //2-fan around the vertex that is still in the cache and that has the most uses left
+        int[] output = new int[numberOfTriangles * 3];
+        int written = 0;
+        boolean[] emitted = new boolean[numberOfTriangles];
+        int[] cacheTime = new int[numberOfVertices];
+        int timestamp = cacheSize + 1;
+        int[] deadEnd = new int[numberOfTriangles * 3];
+        int deadEndSize = 0;
+        int cursor = 0;
+
+        int fanning = (numberOfVertices > 0 ? 0 : -1);
+        while (fanning >= 0) {
+            int candidatesStart = written;
+            for (int k = offsets[fanning]; k < offsets[fanning + 1]; k++) {
+                int triangle = vertexTriangles[k];
+                if (emitted[triangle]) {
+                    continue;
+                }
+                emitted[triangle] = true;
+                for (int j = 0; j < 3; j++) {
+                    int v = indices[(triangle * 3) + j];
+                    output[written] = v;
+                    written++;
+                    deadEnd[deadEndSize] = v;
+                    deadEndSize++;
+                    live[v]--;
+                    if ((timestamp - cacheTime[v]) > cacheSize) {
+                        cacheTime[v] = timestamp;
+                        timestamp++;
+                    }
+                }
+            }
+
+            //the vertices just written are the candidates
+            int next = -1;
+            int best = -1;
+            for (int k = candidatesStart; k < written; k++) {
+                int v = output[k];
+                if (live[v] <= 0) {
+                    continue;
+                }
+                int priority = 0;
+                if ((timestamp - cacheTime[v] + (2 * live[v])) <= cacheSize) {
+                    priority = timestamp - cacheTime[v];
+                }
+                if (priority > best) {
+                    best = priority;
+                    next = v;
+                }
+            }
+
+            //dead end, go back to a recently used vertex or to the next vertex with triangles left
+            if (next == -1) {
+                while (deadEndSize > 0) {
+                    deadEndSize--;
+                    int v = deadEnd[deadEndSize];
+                    if (live[v] > 0) {
+                        next = v;
+                        break;
+                    }
+                }
+            }
+            if (next == -1) {
+                while (cursor < numberOfVertices) {
+                    if (live[cursor] > 0) {
+                        next = cursor;
+                        break;
+                    }
+                    cursor++;
+                }
+            }
+
+            fanning = next;
+        }
+
+        return output;
+    }
+
+    //returns the new index of each vertex, in the order the indices first use them, unused vertices are moved to the end
+    public static int[] optimizeVertexFetch(int[] indices, int numberOfVertices) {
+        int[] remap = new int[numberOfVertices];
+        for (int i = 0; i < numberOfVertices; i++) {
+            remap[i] = -1;
+        }
+        int next = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (remap[indices[i]] == -1) {
+                remap[indices[i]] = next;
+                next++;
+            }
+        }
+        for (int i = 0; i < numberOfVertices; i++) {
+            if (remap[i] == -1) {
+                remap[i] = next;
+                next++;
+            }
+        }
+        return remap;
+    }
+
+    public static int[] remapIndices(int[] indices, int[] remap) {
+        int[] output = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            output[i] = remap[indices[i]];
+        }
+        return output;
+    }
+
+    //moves the per vertex values of size elements to their new index
+    public static float[] remapVertices(float[] vertices, int vertexSize, int[] remap) {
+        float[] output = new float[vertices.length];
+        for (int i = 0; i < remap.length; i++) {
+            System.arraycopy(vertices, i * vertexSize, output, remap[i] * vertexSize, vertexSize);
+        }
+        return output;
+    }
+
+    public static int[] remapValues(int[] values, int[] remap) {
+        int[] output = new int[values.length];
+        for (int i = 0; i < remap.length; i++) {
+            output[remap[i]] = values[i];
+        }
+        return output;
+    }
+
+    private VertexCacheOptimizer() {
+
+    }
+}
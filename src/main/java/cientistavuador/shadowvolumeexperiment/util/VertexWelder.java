@@ -0,0 +1,478 @@
+/*
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information, please refer to <https://unlicense.org>
+ */
+package cientistavuador.shadowvolumeexperiment.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Welds the positions of a mesh that are closer than a epsilon and removes
+ * the vertices that became identical.
+ * <p>
+ * Every vertex gets a canonical position id, the positions of the vertices
+ * are snapped to the position of their id, so exact comparisons done later
+ * agree with the ids.
+ *
+ * @author Cien
+ */
+public class VertexWelder {
+
+    public static final float DEFAULT_EPSILON = 0.0001f;
+
+    private static int hash(int x, int y, int z) {
+        int h = x;
+        h = (h * 0x9E3779B1) ^ y;
+        h = (h * 0x9E3779B1) ^ z;
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= (h >>> 13);
+        h *= 0xC2B2AE35;
+        h ^= (h >>> 16);
+        return h;
+    }
+
+    private static int cell(float f, float cellSize) {
+        return (int) Math.floor(f / cellSize);
+    }
+
+    private static int capacity(int count) {
+        return Integer.highestOneBit(Math.max(count, 8) * 2 - 1) << 1;
+    }
+
+    private static int attributesHash(float[] vertices, int vertexSize, int vertex, int position) {
+        int h = position * 0x9E3779B1;
+        for (int j = 3; j < vertexSize; j++) {
+            h = (h * 0x9E3779B1) ^ Float.floatToIntBits(vertices[(vertex * vertexSize) + j]);
+        }
+        return hash(h, position, vertexSize);
+    }
+
+    //the first 3 floats of a vertex must be the position XYZ
+    //a epsilon of zero only welds positions with the exact same float bits, like Vector3f.equals
+    public static VertexWelder weld(float[] vertices, int vertexSize, int[] indices, float epsilon) {
+        int numberOfVertices = vertices.length / vertexSize;
+
+        //1-map the vertices to canonical positions
+        float[] positions = new float[Math.max(numberOfVertices, 1) * 3];
+        int[] vertexPositions = new int[numberOfVertices];
+        int numberOfPositions = mapPositions(vertices, vertexSize, null, numberOfVertices, epsilon, positions, vertexPositions);
+        int mergedVertices = countMerged(vertices, vertexSize, positions, vertexPositions, 0, numberOfVertices);
+
+        //2-snap the positions and remove the vertices that are now identical, keeping the order of the vertices
+        int mask = capacity(numberOfVertices) - 1;
+        int[] remap = new int[numberOfVertices];
+        float[] compactVertices = new float[vertices.length];
+        int[] compactPositions = new int[numberOfVertices];
+        int numberOfCompactVertices = 0;
+
+        int[] vertexTable = new int[mask + 1];
+        for (int i = 0; i < numberOfVertices; i++) {
+            int position = vertexPositions[i];
+            int slot = attributesHash(vertices, vertexSize, i, position) & mask;
+
+            int vertex;
+            while (true) {
+                int entry = vertexTable[slot];
+                if (entry == 0) {
+                    vertex = numberOfCompactVertices;
+                    numberOfCompactVertices++;
+
+                    System.arraycopy(vertices, i * vertexSize, compactVertices, vertex * vertexSize, vertexSize);
+                    compactVertices[(vertex * vertexSize) + 0] = positions[(position * 3) + 0];
+                    compactVertices[(vertex * vertexSize) + 1] = positions[(position * 3) + 1];
+                    compactVertices[(vertex * vertexSize) + 2] = positions[(position * 3) + 2];
+                    compactPositions[vertex] = position;
+
+                    vertexTable[slot] = vertex + 1;
+                    break;
+                }
+                vertex = entry - 1;
+                if (compactPositions[vertex] == position && sameAttributes(vertices, vertexSize, i, compactVertices, vertex)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            remap[i] = vertex;
+        }
+
+        int[] compactIndices = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            compactIndices[i] = remap[indices[i]];
+        }
+
+        return new VertexWelder(
+                epsilon,
+                Arrays.copyOf(compactVertices, numberOfCompactVertices * vertexSize),
+                compactIndices,
+                Arrays.copyOf(compactPositions, numberOfCompactVertices),
+                numberOfPositions,
+                mergedVertices,
+                numberOfVertices - numberOfCompactVertices
+        );
+    }
+
+    //same result as weld
+    //the vertices with the exact same position bits always get the same id, so the exact positions are
+    //deduplicated concurrently and only the distinct positions go through the grid, in the order they first appear
+    public static VertexWelder weldParallel(float[] vertices, int vertexSize, int[] indices, float epsilon) {
+        int numberOfVertices = vertices.length / vertexSize;
+        int capacity = capacity(numberOfVertices);
+
+        //1-find the first vertex of each exact position
+        int[] hashes = new int[numberOfVertices];
+        ParallelRange.forEachChunk(numberOfVertices, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                hashes[i] = hash(
+                        Float.floatToIntBits(vertices[(i * vertexSize) + 0]),
+                        Float.floatToIntBits(vertices[(i * vertexSize) + 1]),
+                        Float.floatToIntBits(vertices[(i * vertexSize) + 2])
+                );
+            }
+        });
+        int[] vertexDistinct = new int[numberOfVertices];
+        int[] distinctVertices = new int[Math.max(numberOfVertices, 1)];
+        int numberOfDistinct = firstOccurrencesParallel(hashes, capacity, (a, b) -> {
+            return Float.floatToIntBits(vertices[(a * vertexSize) + 0]) == Float.floatToIntBits(vertices[(b * vertexSize) + 0])
+                    && Float.floatToIntBits(vertices[(a * vertexSize) + 1]) == Float.floatToIntBits(vertices[(b * vertexSize) + 1])
+                    && Float.floatToIntBits(vertices[(a * vertexSize) + 2]) == Float.floatToIntBits(vertices[(b * vertexSize) + 2]);
+        }, vertexDistinct, distinctVertices);
+
+        //2-map the distinct positions to canonical positions, then every vertex
+        float[] positions = new float[Math.max(numberOfDistinct, 1) * 3];
+        int[] distinctPositions = new int[numberOfDistinct];
+        int numberOfPositions = mapPositions(vertices, vertexSize, distinctVertices, numberOfDistinct, epsilon, positions, distinctPositions);
+
+        int[] vertexPositions = vertexDistinct;
+        int[] chunkMerged = new int[ParallelRange.numberOfChunks(numberOfVertices, ParallelRange.DEFAULT_CHUNK_SIZE)];
+        ParallelRange.forEachChunk(numberOfVertices, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                vertexPositions[i] = distinctPositions[vertexDistinct[i]];
+            }
+            chunkMerged[chunk] = countMerged(vertices, vertexSize, positions, vertexPositions, start, end);
+        });
+        int mergedVertices = 0;
+        for (int i = 0; i < chunkMerged.length; i++) {
+            mergedVertices += chunkMerged[i];
+        }
+
+        //3-snap the positions and remove the vertices that are now identical, keeping the order of the vertices
+        ParallelRange.forEachChunk(numberOfVertices, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                hashes[i] = attributesHash(vertices, vertexSize, i, vertexPositions[i]);
+            }
+        });
+        int[] remap = new int[numberOfVertices];
+        int[] firstVertices = new int[Math.max(numberOfVertices, 1)];
+        int numberOfCompactVertices = firstOccurrencesParallel(hashes, capacity, (a, b) -> {
+            return vertexPositions[a] == vertexPositions[b] && sameAttributes(vertices, vertexSize, a, vertices, b);
+        }, remap, firstVertices);
+
+        float[] compactVertices = new float[numberOfCompactVertices * vertexSize];
+        int[] compactPositions = new int[numberOfCompactVertices];
+        ParallelRange.forEachChunk(numberOfCompactVertices, (chunk, start, end) -> {
+            for (int vertex = start; vertex < end; vertex++) {
+                int i = firstVertices[vertex];
+                int position = vertexPositions[i];
+                System.arraycopy(vertices, i * vertexSize, compactVertices, vertex * vertexSize, vertexSize);
+                compactVertices[(vertex * vertexSize) + 0] = positions[(position * 3) + 0];
+                compactVertices[(vertex * vertexSize) + 1] = positions[(position * 3) + 1];
+                compactVertices[(vertex * vertexSize) + 2] = positions[(position * 3) + 2];
+                compactPositions[vertex] = position;
+            }
+        });
+
+        int[] compactIndices = new int[indices.length];
+        ParallelRange.forEachChunk(indices.length, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                compactIndices[i] = remap[indices[i]];
+            }
+        });
+
+        return new VertexWelder(
+                epsilon,
+                compactVertices,
+                compactIndices,
+                compactPositions,
+                numberOfPositions,
+                mergedVertices,
+                numberOfVertices - numberOfCompactVertices
+        );
+    }
+
+    @FunctionalInterface
+    private static interface VertexEquality {
+
+        public boolean equals(int vertexA, int vertexB);
+    }
+
+    //numbers the groups of equal vertices in the order they first appear, with a lock free open addressing table
+    //a slot is claimed with a CAS and then keeps the lowest vertex written to it, so the numbering does not depend on the scheduling
+    //writes the group of each vertex to vertexGroups and the first vertex of each group to groupVertices, returns the number of groups
+    private static int firstOccurrencesParallel(int[] hashes, int capacity, VertexEquality equality, int[] vertexGroups, int[] groupVertices) {
+        int numberOfVertices = hashes.length;
+        int mask = capacity - 1;
+        AtomicIntegerArray table = new AtomicIntegerArray(capacity);
+        int[] vertexSlots = new int[numberOfVertices];
+
+        ParallelRange.forEachChunk(numberOfVertices, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                int slot = hashes[i] & mask;
+                while (true) {
+                    int entry = table.get(slot);
+                    if (entry == 0) {
+                        if (table.compareAndSet(slot, 0, i + 1)) {
+                            break;
+                        }
+                        entry = table.get(slot);
+                    }
+                    if (equality.equals(entry - 1, i)) {
+                        table.accumulateAndGet(slot, i + 1, Math::min);
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                vertexSlots[i] = slot;
+            }
+        });
+
+        //count the first vertices of each chunk, so each chunk numbers its own groups
+        int[] chunkOffsets = new int[ParallelRange.numberOfChunks(numberOfVertices, ParallelRange.DEFAULT_CHUNK_SIZE) + 1];
+        ParallelRange.forEachChunk(numberOfVertices, (chunk, start, end) -> {
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                if (table.get(vertexSlots[i]) == (i + 1)) {
+                    count++;
+                }
+            }
+            chunkOffsets[chunk + 1] = count;
+        });
+        for (int i = 1; i < chunkOffsets.length; i++) {
+            chunkOffsets[i] += chunkOffsets[i - 1];
+        }
+
+        ParallelRange.forEachChunk(numberOfVertices, (chunk, start, end) -> {
+            int group = chunkOffsets[chunk];
+            for (int i = start; i < end; i++) {
+                if (table.get(vertexSlots[i]) == (i + 1)) {
+                    vertexGroups[i] = group;
+                    groupVertices[group] = i;
+                    group++;
+                }
+            }
+        });
+        ParallelRange.forEachChunk(numberOfVertices, (chunk, start, end) -> {
+            for (int i = start; i < end; i++) {
+                int first = table.get(vertexSlots[i]) - 1;
+                if (first != i) {
+                    vertexGroups[i] = vertexGroups[first];
+                }
+            }
+        });
+
+        return chunkOffsets[chunkOffsets.length - 1];
+    }
+
+    //maps the vertices to canonical positions with a uniform grid, the cells are as large as epsilon
+    //so only the 27 cells around a vertex need to be searched
+    //order is the vertices to map, or null to map every vertex in order, returns the number of positions
+    private static int mapPositions(float[] vertices, int vertexSize, int[] order, int count, float epsilon, float[] positions, int[] result) {
+        boolean exact = epsilon <= 0f;
+        float epsilonSquared = epsilon * epsilon;
+
+        int capacity = capacity(count);
+        int mask = capacity - 1;
+        int[] table = new int[capacity];
+        int[] cellKeys = new int[capacity * 3];
+        int[] positionNext = new int[Math.max(count, 1)];
+        int numberOfPositions = 0;
+
+        for (int k = 0; k < count; k++) {
+            int i = (order == null ? k : order[k]);
+            float x = vertices[(i * vertexSize) + 0];
+            float y = vertices[(i * vertexSize) + 1];
+            float z = vertices[(i * vertexSize) + 2];
+
+            int cX;
+            int cY;
+            int cZ;
+            if (exact) {
+                cX = Float.floatToIntBits(x);
+                cY = Float.floatToIntBits(y);
+                cZ = Float.floatToIntBits(z);
+            } else {
+                cX = cell(x, epsilon);
+                cY = cell(y, epsilon);
+                cZ = cell(z, epsilon);
+            }
+
+            //a position with the exact same bits always wins, most vertices end here
+            int found = -1;
+            int ownSlot = findCell(table, cellKeys, mask, cX, cY, cZ);
+            for (int p = table[ownSlot] - 1; p != -1; p = positionNext[p] - 1) {
+                if (Float.floatToIntBits(positions[(p * 3) + 0]) == Float.floatToIntBits(x)
+                        && Float.floatToIntBits(positions[(p * 3) + 1]) == Float.floatToIntBits(y)
+                        && Float.floatToIntBits(positions[(p * 3) + 2]) == Float.floatToIntBits(z)) {
+                    found = p;
+                    break;
+                }
+            }
+
+            //otherwise the oldest position within epsilon, so the result does not depend on the search order
+            if (found == -1 && !exact) {
+                for (int oX = -1; oX <= 1; oX++) {
+                    for (int oY = -1; oY <= 1; oY++) {
+                        for (int oZ = -1; oZ <= 1; oZ++) {
+                            int slot = findCell(table, cellKeys, mask, cX + oX, cY + oY, cZ + oZ);
+                            for (int p = table[slot] - 1; p != -1; p = positionNext[p] - 1) {
+                                if (found != -1 && p > found) {
+                                    continue;
+                                }
+                                float dX = positions[(p * 3) + 0] - x;
+                                float dY = positions[(p * 3) + 1] - y;
+                                float dZ = positions[(p * 3) + 2] - z;
+                                if (((dX * dX) + (dY * dY) + (dZ * dZ)) <= epsilonSquared) {
+                                    found = p;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (found == -1) {
+                found = numberOfPositions;
+                numberOfPositions++;
+
+                positions[(found * 3) + 0] = x;
+                positions[(found * 3) + 1] = y;
+                positions[(found * 3) + 2] = z;
+
+                positionNext[found] = table[ownSlot];
+                table[ownSlot] = found + 1;
+                cellKeys[(ownSlot * 3) + 0] = cX;
+                cellKeys[(ownSlot * 3) + 1] = cY;
+                cellKeys[(ownSlot * 3) + 2] = cZ;
+            }
+
+            result[k] = found;
+        }
+
+        return numberOfPositions;
+    }
+
+    //vertices that were moved to a nearby position
+    private static int countMerged(float[] vertices, int vertexSize, float[] positions, int[] vertexPositions, int start, int end) {
+        int merged = 0;
+        for (int i = start; i < end; i++) {
+            int p = vertexPositions[i];
+            if (Float.floatToIntBits(positions[(p * 3) + 0]) != Float.floatToIntBits(vertices[(i * vertexSize) + 0])
+                    || Float.floatToIntBits(positions[(p * 3) + 1]) != Float.floatToIntBits(vertices[(i * vertexSize) + 1])
+                    || Float.floatToIntBits(positions[(p * 3) + 2]) != Float.floatToIntBits(vertices[(i * vertexSize) + 2])) {
+                merged++;
+            }
+        }
+        return merged;
+    }
+
+    private static int findCell(int[] table, int[] cellKeys, int mask, int x, int y, int z) {
+        int slot = hash(x, y, z) & mask;
+        while (table[slot] != 0) {
+            if (cellKeys[(slot * 3) + 0] == x
+                    && cellKeys[(slot * 3) + 1] == y
+                    && cellKeys[(slot * 3) + 2] == z) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static boolean sameAttributes(float[] vertices, int vertexSize, int vertex, float[] otherVertices, int otherVertex) {
+        for (int j = 3; j < vertexSize; j++) {
+            if (Float.floatToIntBits(vertices[(vertex * vertexSize) + j]) != Float.floatToIntBits(otherVertices[(otherVertex * vertexSize) + j])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final float epsilon;
+    private final float[] vertices;
+    private final int[] indices;
+    private final int[] vertexPositions;
+    private final int numberOfPositions;
+    private final int mergedVertices;
+    private final int removedVertices;
+
+    private VertexWelder(float epsilon, float[] vertices, int[] indices, int[] vertexPositions, int numberOfPositions, int mergedVertices, int removedVertices) {
+        this.epsilon = epsilon;
+        this.vertices = vertices;
+        this.indices = indices;
+        this.vertexPositions = vertexPositions;
+        this.numberOfPositions = numberOfPositions;
+        this.mergedVertices = mergedVertices;
+        this.removedVertices = removedVertices;
+    }
+
+    public float getEpsilon() {
+        return epsilon;
+    }
+
+    //the welded and compacted vertices
+    public float[] getVertices() {
+        return vertices;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    //the canonical position id of each welded vertex
+    public int[] getVertexPositions() {
+        return vertexPositions;
+    }
+
+    public int getNumberOfPositions() {
+        return numberOfPositions;
+    }
+
+    //vertices that were moved to a nearby position
+    public int getMergedVertices() {
+        return mergedVertices;
+    }
+
+    //vertices that were removed because they became identical to another vertex
+    public int getRemovedVertices() {
+        return removedVertices;
+    }
+
+    public MeshAdjacency buildAdjacency() {
+        return MeshAdjacency.build(this.indices, this.vertexPositions, this.numberOfPositions);
+    }
+
+}